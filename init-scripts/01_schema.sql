@@ -132,14 +132,24 @@ CREATE TABLE instancias_reporte (
     fecha_correccion TIMESTAMPTZ,
     corregido_por_id BIGINT REFERENCES usuarios(id_usuario),
 
+    -- Bloqueo optimista (@Version): cada UPDATE/DELETE comprueba y avanza la versión
+    version BIGINT NOT NULL DEFAULT 0,
+
     CONSTRAINT uk_instancia_reporte UNIQUE (reporte_id, periodo_reportado),
     CONSTRAINT chk_fecha_envio CHECK (fecha_envio_real IS NULL OR fecha_envio_real >= fecha_creacion)
 );
 
 CREATE INDEX idx_instancias_reporte ON instancias_reporte(reporte_id);
-CREATE INDEX idx_instancias_fecha_venc ON instancias_reporte(fecha_vencimiento_calculada);
+-- Paginación por cursor: (fecha_vencimiento_calculada, id_instancia), global y por reporte
+CREATE INDEX idx_instancias_venc_id ON instancias_reporte(fecha_vencimiento_calculada, id_instancia);
+CREATE INDEX idx_instancias_reporte_venc_id ON instancias_reporte(reporte_id, fecha_vencimiento_calculada, id_instancia);
 CREATE INDEX idx_instancias_estado ON instancias_reporte(estado_id);
 CREATE INDEX idx_instancias_periodo ON instancias_reporte(periodo_reportado);
+-- Histórico: más recientes primero (mismo orden que ORDEN_HISTORICO, sin enviar al final)
+CREATE INDEX idx_instancias_fecha_envio ON instancias_reporte(fecha_envio_real DESC NULLS LAST, id_instancia DESC);
+-- Pendientes: por estado y fecha de vencimiento
+CREATE INDEX idx_instancias_estado_venc
+    ON instancias_reporte(estado_id, fecha_vencimiento_calculada, id_instancia);
 CREATE INDEX idx_instancias_tiene_correccion 
     ON instancias_reporte(tiene_correccion) 
     WHERE tiene_correccion = true;
@@ -166,12 +176,18 @@ CREATE TABLE alertas (
     enviada BOOLEAN DEFAULT false,
     mensaje TEXT,
     leida BOOLEAN DEFAULT false,
-    fecha_creacion TIMESTAMPTZ DEFAULT NOW()
+    -- Episodio: una fila por (instancia, usuario, tipo) que se actualiza en cada disparo
+    fecha_primer_disparo TIMESTAMPTZ,
+    fecha_ultimo_disparo TIMESTAMPTZ,
+    ocurrencias INTEGER NOT NULL DEFAULT 1,
+    fecha_creacion TIMESTAMPTZ DEFAULT NOW(),
+    CONSTRAINT uq_alertas_episodio UNIQUE (instancia_reporte_id, usuario_destino_id, tipo_alerta_id)
 );
 
 CREATE INDEX idx_alertas_instancia ON alertas(instancia_reporte_id);
 CREATE INDEX idx_alertas_usuario ON alertas(usuario_destino_id, leida);
 CREATE INDEX idx_alertas_programada ON alertas(fecha_programada, enviada);
+CREATE INDEX idx_alertas_programada_id ON alertas(fecha_programada DESC, id_alerta DESC);
 
 -- =====================================================
 -- TABLAS DE AUDITORÍA
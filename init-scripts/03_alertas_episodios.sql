@@ -0,0 +1,44 @@
+-- =====================================================
+-- Migración: alertas como episodios
+-- Una fila por (instancia, usuario, tipo) en lugar de una fila por día.
+-- Idempotente: puede ejecutarse sobre una base nueva o existente.
+-- =====================================================
+
+ALTER TABLE alertas ADD COLUMN IF NOT EXISTS fecha_primer_disparo TIMESTAMPTZ;
+ALTER TABLE alertas ADD COLUMN IF NOT EXISTS fecha_ultimo_disparo TIMESTAMPTZ;
+ALTER TABLE alertas ADD COLUMN IF NOT EXISTS ocurrencias INTEGER NOT NULL DEFAULT 1;
+
+-- Consolidar los duplicados en la fila más reciente de cada episodio
+WITH episodios AS (
+    SELECT instancia_reporte_id, usuario_destino_id, tipo_alerta_id,
+           MAX(id_alerta) AS id_conservar,
+           MIN(COALESCE(fecha_enviada, fecha_programada)) AS primer_disparo,
+           MAX(COALESCE(fecha_enviada, fecha_programada)) AS ultimo_disparo,
+           COUNT(*) AS total,
+           BOOL_AND(leida) AS todas_leidas
+    FROM alertas
+    GROUP BY instancia_reporte_id, usuario_destino_id, tipo_alerta_id
+)
+UPDATE alertas a
+SET fecha_primer_disparo = e.primer_disparo,
+    fecha_ultimo_disparo = e.ultimo_disparo,
+    ocurrencias = e.total,
+    leida = e.todas_leidas
+FROM episodios e
+WHERE a.id_alerta = e.id_conservar
+  AND a.fecha_ultimo_disparo IS NULL;
+
+DELETE FROM alertas a
+USING alertas b
+WHERE a.instancia_reporte_id = b.instancia_reporte_id
+  AND a.usuario_destino_id IS NOT DISTINCT FROM b.usuario_destino_id
+  AND a.tipo_alerta_id = b.tipo_alerta_id
+  AND a.id_alerta < b.id_alerta;
+
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'uq_alertas_episodio') THEN
+        ALTER TABLE alertas ADD CONSTRAINT uq_alertas_episodio
+            UNIQUE (instancia_reporte_id, usuario_destino_id, tipo_alerta_id);
+    END IF;
+END $$;
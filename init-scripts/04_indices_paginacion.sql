@@ -0,0 +1,17 @@
+-- =====================================================
+-- Migración: índices para la paginación por cursor
+-- Cada página es un rango del índice en lugar de un OFFSET creciente.
+-- Idempotente: puede ejecutarse sobre una base nueva o existente.
+-- =====================================================
+
+CREATE INDEX IF NOT EXISTS idx_instancias_venc_id
+    ON instancias_reporte(fecha_vencimiento_calculada, id_instancia);
+
+CREATE INDEX IF NOT EXISTS idx_instancias_reporte_venc_id
+    ON instancias_reporte(reporte_id, fecha_vencimiento_calculada, id_instancia);
+
+-- El índice compuesto cubre las búsquedas por fecha de vencimiento
+DROP INDEX IF EXISTS idx_instancias_fecha_venc;
+
+CREATE INDEX IF NOT EXISTS idx_alertas_programada_id
+    ON alertas(fecha_programada DESC, id_alerta DESC);
@@ -0,0 +1,13 @@
+-- =====================================================
+-- Migración: índice para /pendientes
+-- Las consultas filtran por estado (no por fecha_envio_real), así que el
+-- índice va por estado y fecha de vencimiento; /vencidos usa idx_instancias_venc_id.
+-- Reemplaza los índices parciales sobre fecha_envio_real IS NULL.
+-- Idempotente: puede ejecutarse sobre una base nueva o existente.
+-- =====================================================
+
+DROP INDEX IF EXISTS idx_instancias_pendientes_venc;
+DROP INDEX IF EXISTS idx_instancias_sin_envio_estado;
+
+CREATE INDEX IF NOT EXISTS idx_instancias_estado_venc
+    ON instancias_reporte(estado_id, fecha_vencimiento_calculada, id_instancia);
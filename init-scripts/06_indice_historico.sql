@@ -0,0 +1,19 @@
+-- =====================================================
+-- Migración: índice para el histórico de envíos
+-- Sirve el ORDER BY fecha_envio_real DESC NULLS LAST, id_instancia DESC
+-- (ORDEN_HISTORICO) y los filtros por año/mes (rango sobre fecha_envio_real).
+-- Idempotente: puede ejecutarse sobre una base nueva o existente.
+-- =====================================================
+
+-- Una versión anterior lo creó sin NULLS LAST (orden por defecto de DESC: nulos primero)
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_indexes
+               WHERE indexname = 'idx_instancias_fecha_envio'
+                 AND indexdef NOT LIKE '%NULLS LAST%') THEN
+        DROP INDEX idx_instancias_fecha_envio;
+    END IF;
+END $$;
+
+CREATE INDEX IF NOT EXISTS idx_instancias_fecha_envio
+    ON instancias_reporte(fecha_envio_real DESC NULLS LAST, id_instancia DESC);
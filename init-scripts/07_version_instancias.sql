@@ -0,0 +1,9 @@
+-- =====================================================
+-- Migración: bloqueo optimista de instancias_reporte
+-- Columna de versión para @Version: un UPDATE/DELETE con una versión
+-- desactualizada no afecta filas y la aplicación responde 409.
+-- Idempotente: puede ejecutarse sobre una base nueva o existente.
+-- =====================================================
+
+ALTER TABLE instancias_reporte
+    ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
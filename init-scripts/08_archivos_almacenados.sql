@@ -0,0 +1,18 @@
+-- =====================================================
+-- Migración: índice por contenido de los archivos subidos
+-- Un archivo con el mismo SHA-256 que uno ya almacenado se enlaza
+-- al existente en lugar de subirse otra vez a Drive.
+-- Idempotente: puede ejecutarse sobre una base nueva o existente.
+-- =====================================================
+
+CREATE TABLE IF NOT EXISTS archivos_almacenados (
+    id_archivo BIGSERIAL PRIMARY KEY,
+    sha256 VARCHAR(64) NOT NULL UNIQUE,
+    tamano BIGINT NOT NULL,
+    archivo_id VARCHAR(200) NOT NULL,
+    nombre_archivo VARCHAR(255),
+    link VARCHAR(1024),
+    fecha_creacion TIMESTAMPTZ DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS idx_archivos_almacenados_archivo ON archivos_almacenados(archivo_id);
@@ -0,0 +1,14 @@
+-- =====================================================
+-- Migración: índice de contenido por almacenamiento
+-- El mismo contenido puede estar en Drive y en el almacenamiento local:
+-- la unicidad pasa a ser (almacenamiento, sha256).
+-- Idempotente: puede ejecutarse sobre una base nueva o existente.
+-- =====================================================
+
+ALTER TABLE archivos_almacenados
+    ADD COLUMN IF NOT EXISTS almacenamiento VARCHAR(20) NOT NULL DEFAULT 'drive';
+
+ALTER TABLE archivos_almacenados DROP CONSTRAINT IF EXISTS archivos_almacenados_sha256_key;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_archivos_almacenados_contenido
+    ON archivos_almacenados(almacenamiento, sha256);
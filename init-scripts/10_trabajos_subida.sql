@@ -0,0 +1,28 @@
+-- =====================================================
+-- Migración: envío asíncrono de reportes
+-- POST /api/instancias/{id}/enviar?asincrono=true deja el archivo en un spool,
+-- marca la instancia con subida_pendiente y responde 202 con el id del trabajo.
+-- Idempotente: puede ejecutarse sobre una base nueva o existente.
+-- =====================================================
+
+ALTER TABLE instancias_reporte
+    ADD COLUMN IF NOT EXISTS subida_pendiente BOOLEAN NOT NULL DEFAULT FALSE;
+
+CREATE TABLE IF NOT EXISTS trabajos_subida (
+    id_trabajo VARCHAR(36) PRIMARY KEY,
+    instancia_id BIGINT NOT NULL REFERENCES instancias_reporte(id_instancia) ON DELETE CASCADE,
+    correo VARCHAR(150) NOT NULL,
+    nombre_archivo VARCHAR(255) NOT NULL,
+    tipo_contenido VARCHAR(255),
+    tamano BIGINT NOT NULL,
+    observaciones TEXT,
+    link_evidencia VARCHAR(500),
+    estado VARCHAR(20) NOT NULL,
+    intentos INTEGER NOT NULL DEFAULT 0,
+    mensaje TEXT,
+    fecha_creacion TIMESTAMPTZ DEFAULT NOW(),
+    fecha_actualizacion TIMESTAMPTZ DEFAULT NOW()
+);
+
+-- Recuperación de la cola al arrancar y revisión periódica de pendientes
+CREATE INDEX IF NOT EXISTS idx_trabajos_subida_estado ON trabajos_subida(estado, fecha_creacion);
@@ -44,7 +44,9 @@ public class CorsConfig {
         configuration.setExposedHeaders(Arrays.asList(
                 "Authorization", 
                 "Content-Type",
-                "X-Total-Count"
+                "X-Total-Count",
+                "X-Next-Cursor",
+                "ETag"
         ));
 
         // Tiempo de cache para preflight
@@ -1,5 +1,9 @@
 package com.example.demo.config;
 
+import com.example.demo.service.ConexionesSmtp;
+import jakarta.mail.NoSuchProviderException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.mail.javamail.JavaMailSender;
@@ -27,9 +31,23 @@ public class MailConfig {
     @Value("${spring.mail.password:}")
     private String password;
 
+    @Value("${notificaciones.email.smtp.auth:true}")
+    private boolean auth;
+
+    @Value("${notificaciones.email.smtp.starttls:true}")
+    private boolean starttls;
+
     @Bean
-    public JavaMailSender javaMailSender() {
-        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+    public JavaMailSender javaMailSender(ConexionesSmtp conexionesSmtp) {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl() {
+            @Override
+            protected Transport getTransport(Session session) throws NoSuchProviderException {
+                // Cada conexión real que abra o cierre este Transport queda contada
+                Transport transport = super.getTransport(session);
+                transport.addConnectionListener(conexionesSmtp);
+                return transport;
+            }
+        };
         mailSender.setHost(host);
         mailSender.setPort(port);
         mailSender.setUsername(username);
@@ -37,9 +55,9 @@ public class MailConfig {
 
         Properties props = mailSender.getJavaMailProperties();
         props.put("mail.transport.protocol", "smtp");
-        props.put("mail.smtp.auth", "true");
-        props.put("mail.smtp.starttls.enable", "true");
-        props.put("mail.smtp.starttls.required", "true");
+        props.put("mail.smtp.auth", String.valueOf(auth));
+        props.put("mail.smtp.starttls.enable", String.valueOf(starttls));
+        props.put("mail.smtp.starttls.required", String.valueOf(starttls));
         props.put("mail.debug", "false");
 
         return mailSender;
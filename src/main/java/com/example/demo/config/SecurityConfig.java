@@ -5,6 +5,7 @@ import com.example.demo.security.JwtAuthenticationFilter;
 import com.example.demo.security.JwtUtil;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.ProviderManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
@@ -60,6 +61,9 @@ public class SecurityConfig {
                                 "/webjars/**"
                         ).permitAll()
 
+                        // Descarga de archivos locales: ArchivoController valida la firma del link
+                        .requestMatchers(HttpMethod.GET, "/api/archivos/**").permitAll()
+
                         // Endpoint raíz y health
                         .requestMatchers("/", "/health").permitAll()
 
@@ -1,6 +1,7 @@
 package com.example.demo.controller;
 
 import com.example.demo.dto.AlertaDTO;
+import com.example.demo.dto.PaginaDTO;
 import com.example.demo.entity.Alerta;
 import com.example.demo.service.AlertaService;
 import org.springframework.http.ResponseEntity;
@@ -120,17 +121,39 @@ public class AlertaController {
      * Obtener todas las alertas (solo admin)
      */
     @GetMapping("/todas")
-    public ResponseEntity<List<AlertaDTO>> todasLasAlertas(Authentication authentication) {
-        List<AlertaDTO> alertas = service.listarTodasDTO(authentication);
-        return ResponseEntity.ok(alertas);
+    public ResponseEntity<List<AlertaDTO>> todasLasAlertas(
+            Authentication authentication,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite) {
+        if (cursor == null && limite == null) {
+            return ResponseEntity.ok(service.listarTodasDTO(authentication));
+        }
+        return responderPagina(service.listarTodasDTOPaginado(authentication, false, cursor, limite));
     }
 
     /**
      * Obtener todas las alertas no leídas (solo admin)
      */
     @GetMapping("/todas/no-leidas")
-    public ResponseEntity<List<AlertaDTO>> todasNoLeidas(Authentication authentication) {
-        List<AlertaDTO> alertas = service.listarTodasNoLeidasDTO(authentication);
-        return ResponseEntity.ok(alertas);
+    public ResponseEntity<List<AlertaDTO>> todasNoLeidas(
+            Authentication authentication,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite) {
+        if (cursor == null && limite == null) {
+            return ResponseEntity.ok(service.listarTodasNoLeidasDTO(authentication));
+        }
+        return responderPagina(service.listarTodasDTOPaginado(authentication, true, cursor, limite));
+    }
+
+    /**
+     * Paginación por cursor: el cursor siguiente viaja en X-Next-Cursor y el total en X-Total-Count
+     */
+    private ResponseEntity<List<AlertaDTO>> responderPagina(PaginaDTO<AlertaDTO> pagina) {
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok()
+                .header("X-Total-Count", String.valueOf(pagina.total()));
+        if (pagina.siguienteCursor() != null) {
+            respuesta.header("X-Next-Cursor", pagina.siguienteCursor());
+        }
+        return respuesta.body(pagina.elementos());
     }
 }
\ No newline at end of file
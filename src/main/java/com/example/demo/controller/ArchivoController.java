@@ -0,0 +1,115 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.almacenamiento.AlmacenamientoLocal;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Descarga de los archivos guardados en el almacenamiento local.
+ *
+ * Admite un rango por petición (Range: bytes=inicio-fin) para reanudar descargas.
+ * Si el conector lo permite el contenido se envía con sendfile; si no, con
+ * FileChannel.transferTo hacia la salida de la respuesta.
+ *
+ * La ruta es pública en SecurityConfig: se exige la firma del link ({@code ?firma=})
+ * o un usuario autenticado por JWT. Un identificador inexistente responde 404.
+ */
+@RestController
+@RequestMapping("/api/archivos")
+@CrossOrigin
+@ConditionalOnProperty(name = "almacenamiento.tipo", havingValue = "local")
+public class ArchivoController {
+
+    private static final String SENDFILE_SOPORTADO = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_ARCHIVO = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_INICIO = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_FIN = "org.apache.tomcat.sendfile.end";
+
+    private final AlmacenamientoLocal almacenamiento;
+
+    public ArchivoController(AlmacenamientoLocal almacenamiento) {
+        this.almacenamiento = almacenamiento;
+    }
+
+    @GetMapping("/{archivoId}")
+    public void descargar(@PathVariable String archivoId,
+                          @RequestParam(required = false) String firma,
+                          @RequestHeader(value = HttpHeaders.RANGE, required = false) String rango,
+                          Authentication autenticacion,
+                          HttpServletRequest request,
+                          HttpServletResponse response) throws IOException {
+        if (autenticacion == null && !almacenamiento.firmaValida(archivoId, firma)) {
+            response.setStatus(HttpStatus.FORBIDDEN.value());
+            return;
+        }
+        if (!almacenamiento.existe(archivoId)) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        Path ruta = almacenamiento.ruta(archivoId);
+        String nombre = almacenamiento.nombreArchivo(archivoId);
+        long tamano = Files.size(ruta);
+
+        long inicio = 0;
+        long longitud = tamano;
+        if (rango != null) {
+            List<HttpRange> rangos;
+            try {
+                rangos = HttpRange.parseRanges(rango);
+            } catch (IllegalArgumentException e) {
+                rangos = List.of();
+            }
+            // Solo un rango por petición; fuera del archivo se responde 416
+            if (rangos.size() != 1 || !rangoValido(rangos.get(0), tamano)) {
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + tamano);
+                return;
+            }
+            inicio = rangos.get(0).getRangeStart(tamano);
+            longitud = rangos.get(0).getRangeEnd(tamano) - inicio + 1;
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE,
+                    "bytes " + inicio + "-" + (inicio + longitud - 1) + "/" + tamano);
+        }
+
+        response.setContentType(MediaTypeFactory.getMediaType(nombre)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+        response.setContentLengthLong(longitud);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.inline().filename(nombre, StandardCharsets.UTF_8).build().toString());
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SOPORTADO))) {
+            // Tomcat envía el archivo desde el kernel al terminar la petición
+            request.setAttribute(SENDFILE_ARCHIVO, ruta.toString());
+            request.setAttribute(SENDFILE_INICIO, inicio);
+            request.setAttribute(SENDFILE_FIN, inicio + longitud);
+            return;
+        }
+        almacenamiento.transferir(archivoId, inicio, longitud, Channels.newChannel(response.getOutputStream()));
+    }
+
+    private static boolean rangoValido(HttpRange rango, long tamano) {
+        try {
+            return tamano > 0 && rango.getRangeStart(tamano) < tamano;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -2,7 +2,9 @@ package com.example.demo.controller;
 
 import com.example.demo.entity.EstadoCumplimiento;
 import com.example.demo.service.EstadoCumplimientoService;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -17,9 +19,13 @@ public class EstadoCumplimientoController {
         this.service = service;
     }
 
+    /**
+     * Listado con ETag: si no cambió desde la última petición responde 304
+     */
     @GetMapping
-    public List<EstadoCumplimiento> listar() {
-        return service.listar();
+    public ResponseEntity<List<EstadoCumplimiento>> listar(WebRequest request) {
+        return RespuestaCondicional.responder(request, "estados-cumplimiento", service.obtenerVersion(),
+                () -> ResponseEntity.ok(service.listar()));
     }
 
     @GetMapping("/{id}")
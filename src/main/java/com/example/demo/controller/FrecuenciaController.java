@@ -2,7 +2,9 @@ package com.example.demo.controller;
 
 import com.example.demo.entity.Frecuencia;
 import com.example.demo.service.FrecuenciaService;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -17,9 +19,13 @@ public class FrecuenciaController {
         this.service = service;
     }
 
+    /**
+     * Listado con ETag: si no cambió desde la última petición responde 304
+     */
     @GetMapping
-    public List<Frecuencia> listar() {
-        return service.listar();
+    public ResponseEntity<List<Frecuencia>> listar(WebRequest request) {
+        return RespuestaCondicional.responder(request, "frecuencias", service.obtenerVersion(),
+                () -> ResponseEntity.ok(service.listar()));
     }
 
     @GetMapping("/{id}")
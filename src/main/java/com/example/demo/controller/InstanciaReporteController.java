@@ -1,17 +1,35 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.EnvioInstanciaDTO;
 import com.example.demo.dto.InstanciaReporteDTO;
+import com.example.demo.dto.PaginaDTO;
 import com.example.demo.entity.InstanciaReporte;
+import com.example.demo.service.DespachadorSubidas;
 import com.example.demo.service.InstanciaReporteService;
-import com.example.demo.service.GoogleDriveService;
+import com.example.demo.service.almacenamiento.GestorArchivos;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/instancias")
@@ -19,16 +37,34 @@ import java.util.Map;
 public class InstanciaReporteController {
 
     private final InstanciaReporteService service;
-    private final GoogleDriveService driveService;
+    private final GestorArchivos gestorArchivos;
+    private final DespachadorSubidas despachadorSubidas;
+    private final ObjectMapper objectMapper;
 
-    public InstanciaReporteController(InstanciaReporteService service, GoogleDriveService driveService) {
+    public InstanciaReporteController(InstanciaReporteService service, GestorArchivos gestorArchivos,
+                                      DespachadorSubidas despachadorSubidas, ObjectMapper objectMapper) {
         this.service = service;
-        this.driveService = driveService;
+        this.gestorArchivos = gestorArchivos;
+        this.despachadorSubidas = despachadorSubidas;
+        this.objectMapper = objectMapper;
     }
 
+    /**
+     * Listado de instancias. Con {@code cursor} o {@code limite} se pagina por cursor:
+     * el cursor de la página siguiente viaja en X-Next-Cursor y el total en X-Total-Count.
+     * Responde 304 si el ETag / Last-Modified del cliente sigue vigente.
+     */
     @GetMapping
-    public List<InstanciaReporteDTO> listar() {
-        return service.listarDTO();
+    public ResponseEntity<List<InstanciaReporteDTO>> listar(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite,
+            WebRequest request) {
+        return RespuestaCondicional.responder(request, "instancias", service.obtenerVersion(), () -> {
+            if (cursor == null && limite == null) {
+                return ResponseEntity.ok(service.listarDTO());
+            }
+            return responderPagina(service.listarDTOPaginado(cursor, limite));
+        });
     }
 
     @GetMapping("/{id}")
@@ -52,13 +88,72 @@ public class InstanciaReporteController {
     }
 
     @GetMapping("/reporte/{reporteId}")
-    public List<InstanciaReporteDTO> porReporte(@PathVariable String reporteId) {
-        return service.listarDTOPorReporte(reporteId);
+    public ResponseEntity<List<InstanciaReporteDTO>> porReporte(
+            @PathVariable String reporteId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite) {
+        if (cursor == null && limite == null) {
+            return ResponseEntity.ok(service.listarDTOPorReporte(reporteId));
+        }
+        return responderPagina(service.listarDTOPorReportePaginado(reporteId, cursor, limite));
+    }
+
+    private ResponseEntity<List<InstanciaReporteDTO>> responderPagina(PaginaDTO<InstanciaReporteDTO> pagina) {
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok()
+                .header("X-Total-Count", String.valueOf(pagina.total()));
+        if (pagina.siguienteCursor() != null) {
+            respuesta.header("X-Next-Cursor", pagina.siguienteCursor());
+        }
+        return respuesta.body(pagina.elementos());
+    }
+
+    /**
+     * Exportación completa para auditoría, escrita a medida que se lee de la base.
+     * - formato=ndjson (por defecto): un objeto JSON por línea
+     * - formato=json: un único arreglo JSON
+     * {@code desde}/{@code hasta} acotan por fecha de vencimiento (yyyy-MM-dd).
+     */
+    @GetMapping("/exportar")
+    public void exportar(
+            @RequestParam(defaultValue = "ndjson") String formato,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            HttpServletResponse response) throws IOException {
+        boolean arreglo = "json".equalsIgnoreCase(formato);
+        response.setContentType(arreglo ? MediaType.APPLICATION_JSON_VALUE : MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("instancias-" + LocalDate.now() + (arreglo ? ".json" : ".ndjson"))
+                .build().toString());
+
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            // Sin el espacio que Jackson pone por defecto entre valores raíz: NDJSON separa con saltos de línea
+            json.setRootValueSeparator(null);
+            if (arreglo) {
+                json.writeStartArray();
+            }
+            service.exportar(desde, hasta, dto -> {
+                try {
+                    json.writeObject(dto);
+                    if (!arreglo) {
+                        json.writeRaw('\n');
+                    }
+                } catch (IOException e) {
+                    // Normalmente el cliente cortó la descarga: se aborta el recorrido del cursor
+                    throw new UncheckedIOException(e);
+                }
+            });
+            if (arreglo) {
+                json.writeEndArray();
+            }
+        }
     }
 
     /**
      * Endpoint para enviar un reporte con archivo adjunto.
-     * Sube el archivo a Google Drive y actualiza la instancia.
+     * Sube el archivo al almacenamiento y actualiza la instancia.
+     * Con asincrono=true responde 202 con el id del trabajo y el envío termina en segundo plano
+     * (estado en GET /api/instancias/envios/{trabajoId}).
      */
     @PostMapping(value = "/{id}/enviar", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<?> enviarReporte(
@@ -66,11 +161,30 @@ public class InstanciaReporteController {
             @RequestParam("archivo") MultipartFile archivo,
             @RequestParam(value = "observaciones", required = false) String observaciones,
             @RequestParam(value = "linkEvidencia", required = false) String linkEvidencia,
+            @RequestParam(value = "asincrono", defaultValue = "false") boolean asincrono,
             Authentication authentication) {
         
         try {
+            if (asincrono) {
+                Map<String, Object> trabajo = despachadorSubidas.aceptar(id, archivo, observaciones,
+                        linkEvidencia, authentication);
+                return ResponseEntity.accepted()
+                        .location(URI.create("/api/instancias/envios/" + trabajo.get("trabajoId")))
+                        .body(trabajo);
+            }
             InstanciaReporteDTO resultado = service.enviarReporte(id, archivo, observaciones, linkEvidencia, authentication);
             return ResponseEntity.ok(resultado);
+        } catch (OptimisticLockingFailureException e) {
+            // Conflicto de concurrencia: GlobalExceptionHandler responde 409
+            throw e;
+        } catch (RejectedExecutionException e) {
+            // Cola de envíos asíncronos llena
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "60")
+                    .body(Map.of(
+                        "error", "Error al enviar reporte",
+                        "mensaje", e.getMessage()
+                    ));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of(
                 "error", "Error al enviar reporte",
@@ -79,6 +193,14 @@ public class InstanciaReporteController {
         }
     }
 
+    /**
+     * Estado de un envío asíncrono: PENDIENTE, EN_PROCESO, COMPLETADO (con la instancia) o FALLIDO.
+     */
+    @GetMapping("/envios/{trabajoId}")
+    public Map<String, Object> estadoEnvio(@PathVariable String trabajoId, Authentication authentication) {
+        return despachadorSubidas.consultar(trabajoId, authentication);
+    }
+
     /**
      * Endpoint para enviar solo con link (sin archivo).
      */
@@ -95,6 +217,9 @@ public class InstanciaReporteController {
             
             InstanciaReporteDTO resultado = service.enviarReporteConLink(id, linkReporte, observaciones, linkEvidencia, authentication);
             return ResponseEntity.ok(resultado);
+        } catch (OptimisticLockingFailureException e) {
+            // Conflicto de concurrencia: GlobalExceptionHandler responde 409
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of(
                 "error", "Error al enviar reporte",
@@ -104,11 +229,39 @@ public class InstanciaReporteController {
     }
 
     /**
-     * Obtener instancias pendientes (para gestión).
+     * Envío por lotes con link (solo administrador), p. ej. al cerrar un periodo.
+     * Cuerpo: [{"instanciaId", "linkReporte", "observaciones", "linkEvidenciaEnvio"}, ...]
+     * Todo o nada: si una instancia no es válida no se envía ninguna.
+     */
+    @PostMapping("/enviar-lote")
+    public ResponseEntity<?> enviarLote(
+            @RequestBody List<EnvioInstanciaDTO> envios,
+            Authentication authentication) {
+
+        try {
+            List<InstanciaReporteDTO> resultado = service.enviarLoteConLink(envios, authentication);
+            return ResponseEntity.ok(Map.of(
+                "enviadas", resultado.size(),
+                "instancias", resultado
+            ));
+        } catch (OptimisticLockingFailureException e) {
+            // Conflicto de concurrencia: GlobalExceptionHandler responde 409
+            throw e;
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "Error al enviar el lote",
+                "mensaje", e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * Obtener instancias pendientes (para gestión). Responde 304 si no cambiaron.
      */
     @GetMapping("/pendientes")
-    public List<InstanciaReporteDTO> listarPendientes() {
-        return service.listarPendientes();
+    public ResponseEntity<List<InstanciaReporteDTO>> listarPendientes(WebRequest request) {
+        return RespuestaCondicional.responder(request, "instancias-pendientes", service.obtenerVersionPendientes(),
+                () -> ResponseEntity.ok(service.listarPendientes()));
     }
 
     /**
@@ -124,27 +277,36 @@ public class InstanciaReporteController {
      * - Admin: ve todo
      * - Supervisor: solo reportes de sus supervisados
      * - Responsable: solo sus reportes
+     * Con {@code cursor} o {@code limite} se pagina igual que el listado general.
      */
     @GetMapping("/historico")
-    public List<InstanciaReporteDTO> listarHistorico(
+    public ResponseEntity<List<InstanciaReporteDTO>> listarHistorico(
             @RequestParam(required = false) String reporteId,
             @RequestParam(required = false) Integer entidadId,
             @RequestParam(required = false) Integer year,
             @RequestParam(required = false) Integer mes,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite,
             Authentication authentication) {
-        return service.listarHistorico(reporteId, entidadId, year, mes, authentication);
+        if (cursor == null && limite == null) {
+            return ResponseEntity.ok(service.listarHistorico(reporteId, entidadId, year, mes, authentication));
+        }
+        return responderPagina(service.listarHistoricoPaginado(
+                reporteId, entidadId, year, mes, cursor, limite, authentication));
     }
 
     /**
-     * Verificar si Drive está habilitado.
+     * Verificar si el almacenamiento de archivos (Drive o local) está habilitado.
      */
     @GetMapping("/drive-status")
     public Map<String, Object> driveStatus() {
+        boolean habilitado = gestorArchivos.estaDisponible();
         return Map.of(
-            "enabled", driveService.isDriveEnabled(),
-            "message", driveService.isDriveEnabled() 
-                ? "Google Drive está configurado y funcionando" 
-                : "Google Drive no está configurado. Los archivos se guardarán con link manual."
+            "enabled", habilitado,
+            "almacenamiento", gestorArchivos.nombreAlmacenamiento(),
+            "message", habilitado
+                ? "El almacenamiento de archivos (" + gestorArchivos.nombreAlmacenamiento() + ") está configurado y funcionando"
+                : "El almacenamiento de archivos no está configurado. Los archivos se guardarán con link manual."
         );
     }
 
@@ -169,6 +331,9 @@ public class InstanciaReporteController {
                 "mensaje", "Corrección agregada exitosamente. El archivo original se mantiene para auditoría.",
                 "instancia", resultado
             ));
+        } catch (OptimisticLockingFailureException e) {
+            // Conflicto de concurrencia: GlobalExceptionHandler responde 409
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of(
                 "success", false,
@@ -198,6 +363,9 @@ public class InstanciaReporteController {
                 "mensaje", "Corrección agregada exitosamente.",
                 "instancia", resultado
             ));
+        } catch (OptimisticLockingFailureException e) {
+            // Conflicto de concurrencia: GlobalExceptionHandler responde 409
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of(
                 "success", false,
@@ -0,0 +1,115 @@
+package com.example.demo.controller;
+
+import com.example.demo.entity.Usuario;
+import com.example.demo.repository.UsuarioRepository;
+import com.example.demo.resiliencia.RegistroProveedores;
+import com.example.demo.service.DespachadorCorreos;
+import com.example.demo.service.DespachadorSubidas;
+import com.example.demo.service.DestinatariosNotificacionCache;
+import com.example.demo.service.EmailNotificationService;
+import com.example.demo.service.EstadisticasHibernate;
+import com.example.demo.service.NotificacionService;
+import com.example.demo.service.ReintentoOptimista;
+import com.example.demo.service.SesionSubidaService;
+import com.example.demo.service.almacenamiento.GestorArchivos;
+import com.example.demo.service.notificacion.DespachadorNotificaciones;
+import com.example.demo.service.whatsapp.DespachadorWhatsApp;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Métricas operativas de los componentes de notificación y del acceso a datos.
+ */
+@RestController
+@RequestMapping("/api/metricas")
+@CrossOrigin
+public class MetricasController {
+
+    private final DespachadorCorreos despachadorCorreos;
+    private final DespachadorWhatsApp despachadorWhatsApp;
+    private final RegistroProveedores registroProveedores;
+    private final DestinatariosNotificacionCache destinatariosCache;
+    private final NotificacionService notificacionService;
+    private final DespachadorNotificaciones despachadorNotificaciones;
+    private final EmailNotificationService emailNotificationService;
+    private final EstadisticasHibernate estadisticasHibernate;
+    private final ReintentoOptimista reintentoOptimista;
+    private final SesionSubidaService sesionSubidaService;
+    private final GestorArchivos gestorArchivos;
+    private final DespachadorSubidas despachadorSubidas;
+    private final UsuarioRepository usuarioRepository;
+
+    public MetricasController(DespachadorCorreos despachadorCorreos,
+                              DespachadorWhatsApp despachadorWhatsApp,
+                              RegistroProveedores registroProveedores,
+                              DestinatariosNotificacionCache destinatariosCache,
+                              NotificacionService notificacionService,
+                              DespachadorNotificaciones despachadorNotificaciones,
+                              EmailNotificationService emailNotificationService,
+                              EstadisticasHibernate estadisticasHibernate,
+                              ReintentoOptimista reintentoOptimista,
+                              SesionSubidaService sesionSubidaService,
+                              GestorArchivos gestorArchivos,
+                              DespachadorSubidas despachadorSubidas,
+                              UsuarioRepository usuarioRepository) {
+        this.despachadorCorreos = despachadorCorreos;
+        this.despachadorWhatsApp = despachadorWhatsApp;
+        this.registroProveedores = registroProveedores;
+        this.destinatariosCache = destinatariosCache;
+        this.notificacionService = notificacionService;
+        this.despachadorNotificaciones = despachadorNotificaciones;
+        this.emailNotificationService = emailNotificationService;
+        this.estadisticasHibernate = estadisticasHibernate;
+        this.reintentoOptimista = reintentoOptimista;
+        this.sesionSubidaService = sesionSubidaService;
+        this.gestorArchivos = gestorArchivos;
+        this.despachadorSubidas = despachadorSubidas;
+        this.usuarioRepository = usuarioRepository;
+    }
+
+    @GetMapping
+    public Map<String, Object> metricas() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("timestamp", LocalDateTime.now());
+        response.put("canales", despachadorNotificaciones.obtenerMetricas());
+        response.put("correoResend", emailNotificationService.obtenerMetricas());
+        response.put("correoSmtp", despachadorCorreos.obtenerMetricas());
+        response.put("whatsapp", despachadorWhatsApp.obtenerMetricas());
+        response.put("proveedores", registroProveedores.obtenerMetricas());
+        response.put("cacheDestinatarios", destinatariosCache.obtenerMetricas());
+        response.put("cambiosEstado", notificacionService.obtenerMetricasCambioEstado());
+        response.put("jpa", estadisticasHibernate.obtenerMetricas());
+        response.put("conflictosConcurrencia", reintentoOptimista.obtenerMetricas());
+        response.put("subidasReanudables", sesionSubidaService.obtenerMetricas());
+        response.put("almacenamientoArchivos", gestorArchivos.obtenerMetricas());
+        response.put("enviosAsincronos", despachadorSubidas.obtenerMetricas());
+        return response;
+    }
+
+    /**
+     * Mensajes de WhatsApp que agotaron los reintentos.
+     * SOLO ADMINISTRADORES: incluye teléfonos y el texto completo de cada mensaje.
+     */
+    @GetMapping("/whatsapp/fallidos")
+    public ResponseEntity<?> whatsappFallidos(Authentication authentication) {
+        if (!esAdministrador(authentication)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("error", "Acceso denegado: solo administradores"));
+        }
+        List<DespachadorWhatsApp.MensajeFallido> fallidos = despachadorWhatsApp.obtenerFallidos();
+        return ResponseEntity.ok(fallidos);
+    }
+
+    private boolean esAdministrador(Authentication authentication) {
+        Usuario usuario = usuarioRepository.findByCorreo(authentication.getName()).orElse(null);
+        return usuario != null && usuario.getRol() != null
+                && usuario.getRol().getNombre().toUpperCase().contains("ADMIN");
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.demo.controller;
+
+import com.example.demo.dto.VersionDatos;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.function.Supplier;
+
+/**
+ * GET condicional con ETag / Last-Modified a partir de la versión del listado.
+ *
+ * Si el cliente ya tiene la versión actual (If-None-Match / If-Modified-Since) se responde
+ * 304 sin consultar ni serializar los datos. "no-cache" obliga al navegador a revalidar
+ * en cada petición en lugar de reutilizar la copia por su cuenta.
+ */
+final class RespuestaCondicional {
+
+    private RespuestaCondicional() {
+    }
+
+    static <T> ResponseEntity<T> responder(WebRequest request, String ambito, VersionDatos version,
+                                           Supplier<ResponseEntity<T>> respuesta) {
+        String etag = version.etag(ambito);
+        long ultimaModificacion = version.ultimaModificacionMillis();
+
+        boolean noModificado = ultimaModificacion >= 0
+                ? request.checkNotModified(etag, ultimaModificacion)
+                : request.checkNotModified(etag);
+        if (noModificado) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .cacheControl(CacheControl.noCache())
+                    .build();
+        }
+
+        ResponseEntity<T> completa = respuesta.get();
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(completa.getStatusCode())
+                .headers(completa.getHeaders())
+                .cacheControl(CacheControl.noCache())
+                .eTag(etag);
+        if (ultimaModificacion >= 0) {
+            builder.lastModified(ultimaModificacion);
+        }
+        return builder.body(completa.getBody());
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.demo.controller;
+
+import com.example.demo.dto.InstanciaReporteDTO;
+import com.example.demo.service.SesionSubidaService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Subida reanudable de archivos de envío para conexiones lentas.
+ *
+ * 1. POST /api/subidas con {instanciaId, nombreArchivo, tipoContenido, tamano}
+ * 2. PUT /api/subidas/{id} por fragmento, con Content-Range: bytes inicio-fin/total
+ * 3. GET /api/subidas/{id} para consultar los rangos que faltan tras un corte
+ * 4. POST /api/subidas/{id}/finalizar con {observaciones, linkEvidencia}
+ */
+@RestController
+@RequestMapping("/api/subidas")
+@CrossOrigin
+public class SubidaController {
+
+    private final SesionSubidaService service;
+
+    public SubidaController(SesionSubidaService service) {
+        this.service = service;
+    }
+
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> crear(@RequestBody Map<String, String> datos,
+                                                     Authentication authentication) {
+        Integer instanciaId = datos.get("instanciaId") != null ? Integer.valueOf(datos.get("instanciaId")) : null;
+        Long tamano = datos.get("tamano") != null ? Long.valueOf(datos.get("tamano")) : null;
+        Map<String, Object> sesion = service.crear(instanciaId, datos.get("nombreArchivo"),
+                datos.get("tipoContenido"), tamano, authentication);
+        return ResponseEntity.status(HttpStatus.CREATED).body(sesion);
+    }
+
+    @PutMapping("/{sesionId}")
+    public Map<String, Object> escribir(@PathVariable String sesionId,
+                                        @RequestHeader(HttpHeaders.CONTENT_RANGE) String contentRange,
+                                        HttpServletRequest request,
+                                        Authentication authentication) throws IOException {
+        return service.escribir(sesionId, contentRange, request.getInputStream(), authentication);
+    }
+
+    @GetMapping("/{sesionId}")
+    public Map<String, Object> estado(@PathVariable String sesionId, Authentication authentication) {
+        return service.estado(sesionId, authentication);
+    }
+
+    @PostMapping("/{sesionId}/finalizar")
+    public ResponseEntity<?> finalizar(@PathVariable String sesionId,
+                                       @RequestBody(required = false) Map<String, String> datos,
+                                       Authentication authentication) {
+        Map<String, String> campos = datos != null ? datos : Map.of();
+        try {
+            InstanciaReporteDTO resultado = service.finalizar(sesionId, campos.get("observaciones"),
+                    campos.get("linkEvidencia"), authentication);
+            return ResponseEntity.ok(resultado);
+        } catch (OptimisticLockingFailureException e) {
+            // Conflicto de concurrencia: GlobalExceptionHandler responde 409
+            throw e;
+        } catch (Exception e) {
+            // La sesión se conserva: el cliente puede reintentar la finalización
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "Error al enviar reporte",
+                "mensaje", e.getMessage()
+            ));
+        }
+    }
+
+    @DeleteMapping("/{sesionId}")
+    public ResponseEntity<Void> cancelar(@PathVariable String sesionId, Authentication authentication) {
+        service.cancelar(sesionId, authentication);
+        return ResponseEntity.noContent().build();
+    }
+}
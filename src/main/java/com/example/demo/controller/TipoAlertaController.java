@@ -2,7 +2,9 @@ package com.example.demo.controller;
 
 import com.example.demo.entity.TipoAlerta;
 import com.example.demo.service.TipoAlertaService;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -17,9 +19,13 @@ public class TipoAlertaController {
         this.service = service;
     }
 
+    /**
+     * Listado con ETag: si no cambió desde la última petición responde 304
+     */
     @GetMapping
-    public List<TipoAlerta> listar() {
-        return service.listar();
+    public ResponseEntity<List<TipoAlerta>> listar(WebRequest request) {
+        return RespuestaCondicional.responder(request, "tipos-alerta", service.obtenerVersion(),
+                () -> ResponseEntity.ok(service.listar()));
     }
 
     @GetMapping("/{id}")
@@ -24,6 +24,9 @@ public class AlertaDTO {
     private boolean enviada;
     private String mensaje;
     private boolean leida;
+    private LocalDateTime fechaPrimerDisparo;
+    private LocalDateTime fechaUltimoDisparo;
+    private int ocurrencias;
     
     // Campos adicionales útiles
     private String entidadNombre;
@@ -0,0 +1,26 @@
+package com.example.demo.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Cursor de paginación keyset: el valor de la columna de orden y el id
+ * del último elemento entregado. Viaja al cliente como un token opaco.
+ */
+public record CursorKeyset(String valor, Integer id) {
+
+    public String codificar() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((valor + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static CursorKeyset decodificar(String token) {
+        try {
+            String texto = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separador = texto.lastIndexOf('|');
+            return new CursorKeyset(texto.substring(0, separador), Integer.valueOf(texto.substring(separador + 1)));
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Cursor de paginación inválido");
+        }
+    }
+}
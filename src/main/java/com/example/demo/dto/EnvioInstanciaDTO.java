@@ -2,9 +2,13 @@ package com.example.demo.dto;
 
 import lombok.Data;
 
+/**
+ * Un elemento del envío por lotes (POST /api/instancias/enviar-lote).
+ */
 @Data
 public class EnvioInstanciaDTO {
     private Integer instanciaId;
+    private String linkReporte;
     private String observaciones;
     private String linkEvidenciaEnvio; // Link opcional de evidencia adicional
 }
@@ -1,10 +1,12 @@
 package com.example.demo.dto;
 
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Data
+@NoArgsConstructor
 public class InstanciaReporteDTO {
     private Integer id;
     
@@ -62,4 +64,68 @@ public class InstanciaReporteDTO {
     
     // Flag que indica si se puede corregir (solo admin y si ya fue enviado)
     private boolean puedeCorregir;
-}
\ No newline at end of file
+
+    // Envío asíncrono aceptado: el archivo se está guardando en segundo plano
+    private boolean subidaPendiente;
+
+    // Versión de la fila (bloqueo optimista): se devuelve en PUT para detectar cambios concurrentes
+    private Long version;
+
+    /**
+     * Constructor para proyecciones JPQL ("SELECT new ..."): recibe solo columnas.
+     * Los campos calculados (prioridad, vencido, enviado, días hasta el vencimiento,
+     * puedeCorregir) los completa el servicio.
+     */
+    public InstanciaReporteDTO(Integer id, String reporteId, String reporteNombre, String entidadNombre,
+                               Integer entidadId, String frecuencia, String formatoRequerido, String baseLegal,
+                               String periodoReportado, LocalDate fechaVencimientoCalculada,
+                               LocalDateTime fechaEnvioReal, String estadoNombre, Integer estadoId,
+                               Integer diasDesviacion, String linkReporteFinal, String linkEvidenciaEnvio,
+                               String nombreArchivo, String driveFileId,
+                               String responsableElaboracion, Integer responsableElaboracionId,
+                               String responsableSupervision, Integer responsableSupervisionId,
+                               String enviadoPorNombre, Integer enviadoPorId, String observaciones,
+                               LocalDateTime fechaCreacion, LocalDateTime fechaActualizacion,
+                               Boolean tieneCorreccion, String linkCorreccion, String driveFileIdCorreccion,
+                               String nombreArchivoCorreccion, String motivoCorreccion,
+                               LocalDateTime fechaCorreccion, String corregidoPorNombre, Integer corregidoPorId,
+                               Boolean subidaPendiente, Long version) {
+        this.id = id;
+        this.reporteId = reporteId;
+        this.reporteNombre = reporteNombre;
+        this.entidadNombre = entidadNombre;
+        this.entidadId = entidadId;
+        this.frecuencia = frecuencia;
+        this.formatoRequerido = formatoRequerido;
+        this.baseLegal = baseLegal;
+        this.periodoReportado = periodoReportado;
+        this.fechaVencimientoCalculada = fechaVencimientoCalculada;
+        this.fechaEnvioReal = fechaEnvioReal;
+        this.estadoNombre = estadoNombre;
+        this.estadoId = estadoId;
+        this.diasDesviacion = diasDesviacion;
+        this.linkReporteFinal = linkReporteFinal;
+        this.linkEvidenciaEnvio = linkEvidenciaEnvio;
+        this.nombreArchivo = nombreArchivo;
+        this.driveFileId = driveFileId;
+        this.responsableElaboracion = responsableElaboracion;
+        this.responsableElaboracionId = responsableElaboracionId;
+        this.responsableSupervision = responsableSupervision;
+        this.responsableSupervisionId = responsableSupervisionId;
+        this.enviadoPorNombre = enviadoPorNombre;
+        this.enviadoPorId = enviadoPorId;
+        this.observaciones = observaciones;
+        this.fechaCreacion = fechaCreacion;
+        this.fechaActualizacion = fechaActualizacion;
+        this.tieneCorreccion = tieneCorreccion != null && tieneCorreccion;
+        this.linkCorreccion = linkCorreccion;
+        this.driveFileIdCorreccion = driveFileIdCorreccion;
+        this.nombreArchivoCorreccion = nombreArchivoCorreccion;
+        this.motivoCorreccion = motivoCorreccion;
+        this.fechaCorreccion = fechaCorreccion;
+        this.corregidoPorNombre = corregidoPorNombre;
+        this.corregidoPorId = corregidoPorId;
+        this.subidaPendiente = subidaPendiente != null && subidaPendiente;
+        this.version = version;
+    }
+}
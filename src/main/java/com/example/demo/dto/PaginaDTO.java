@@ -0,0 +1,13 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+/**
+ * Página de resultados con paginación por cursor (keyset).
+ *
+ * @param elementos       elementos de la página
+ * @param siguienteCursor cursor para pedir la página siguiente; null si es la última
+ * @param total           total de elementos del listado completo
+ */
+public record PaginaDTO<T>(List<T> elementos, String siguienteCursor, long total) {
+}
@@ -0,0 +1,64 @@
+package com.example.demo.dto;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Versión barata de un listado para GET condicionales (ETag / Last-Modified).
+ * Cambia si se inserta, borra o modifica alguna fila del ámbito.
+ *
+ * @param total              filas del ámbito
+ * @param ultimoId           id más alto del ámbito
+ * @param ultimaModificacion fecha_actualizacion más reciente; null si la tabla no la tiene
+ */
+public record VersionDatos(long total, long ultimoId, LocalDateTime ultimaModificacion) {
+
+    /**
+     * Tabla sin fecha de actualización: la versión es solo total e id máximo
+     */
+    public VersionDatos(Long total, Integer ultimoId) {
+        this(total, ultimoId, (LocalDateTime) null);
+    }
+
+    public VersionDatos(Long total, Integer ultimoId, LocalDateTime ultimaModificacion) {
+        this(total != null ? total : 0, ultimoId != null ? ultimoId : 0, ultimaModificacion);
+    }
+
+    /**
+     * Ámbito cuya respuesta incluye datos de reportes, usuarios y entidades:
+     * la última modificación es la más reciente de las cuatro tablas.
+     */
+    public VersionDatos(Long total, Integer ultimoId, LocalDateTime ultimaModificacion,
+                        LocalDateTime reportes, LocalDateTime usuarios, LocalDateTime entidades) {
+        this(total, ultimoId, Stream.of(ultimaModificacion, reportes, usuarios, entidades)
+                .filter(Objects::nonNull)
+                .max(LocalDateTime::compareTo)
+                .orElse(null));
+    }
+
+    /**
+     * Para respuestas con campos calculados sobre la fecha actual: no pueden ser anteriores a {@code fecha}
+     */
+    public VersionDatos noAnteriorA(LocalDateTime fecha) {
+        if (ultimaModificacion != null && !ultimaModificacion.isBefore(fecha)) {
+            return this;
+        }
+        return new VersionDatos(total, ultimoId, fecha);
+    }
+
+    public String etag(String ambito) {
+        String marca = ultimaModificacion != null ? "-" + ultimaModificacionMillis() : "";
+        return "W/\"" + ambito + "-" + total + "-" + ultimoId + marca + "\"";
+    }
+
+    /**
+     * Epoch millis para Last-Modified; -1 si no hay fecha
+     */
+    public long ultimaModificacionMillis() {
+        return ultimaModificacion != null
+                ? ultimaModificacion.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : -1;
+    }
+}
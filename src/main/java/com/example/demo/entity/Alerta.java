@@ -4,30 +4,79 @@ import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "alertas")
+@NamedEntityGraph(
+        name = Alerta.GRAFO_BANDEJA,
+        attributeNodes = {
+                @NamedAttributeNode(value = "instancia", subgraph = "instancia"),
+                @NamedAttributeNode("tipo"),
+                @NamedAttributeNode(value = "usuarioDestino", subgraph = "usuario")
+        },
+        subgraphs = {
+                @NamedSubgraph(name = "instancia", attributeNodes = @NamedAttributeNode("reporte")),
+                @NamedSubgraph(name = "usuario", attributeNodes = @NamedAttributeNode("rol"))
+        })
+@NamedEntityGraph(
+        name = Alerta.GRAFO_DETALLE,
+        attributeNodes = {
+                @NamedAttributeNode(value = "instancia", subgraph = "instancia"),
+                @NamedAttributeNode("tipo"),
+                @NamedAttributeNode(value = "usuarioDestino", subgraph = "usuario")
+        },
+        subgraphs = {
+                @NamedSubgraph(name = "instancia", attributeNodes = {
+                        @NamedAttributeNode(value = "reporte", subgraph = "reporte"),
+                        @NamedAttributeNode("estado"),
+                        @NamedAttributeNode(value = "enviadoPor", subgraph = "usuario"),
+                        @NamedAttributeNode(value = "corregidoPor", subgraph = "usuario")
+                }),
+                @NamedSubgraph(name = "reporte", attributeNodes = {
+                        @NamedAttributeNode("entidad"),
+                        @NamedAttributeNode("frecuencia"),
+                        @NamedAttributeNode(value = "responsableElaboracion", subgraph = "usuario"),
+                        @NamedAttributeNode(value = "responsableSupervision", subgraph = "usuario")
+                }),
+                @NamedSubgraph(name = "usuario", attributeNodes = @NamedAttributeNode("rol"))
+        })
+@Table(name = "alertas", uniqueConstraints = @UniqueConstraint(
+        name = "uq_alertas_episodio",
+        columnNames = {"instancia_reporte_id", "usuario_destino_id", "tipo_alerta_id"}))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Alerta {
 
+    /** Lo que muestra la bandeja de alertas: instancia y su reporte, tipo y destinatario */
+    public static final String GRAFO_BANDEJA = "Alerta.bandeja";
+
+    /** La alerta con todo su árbol, para los endpoints que devuelven la entidad completa */
+    public static final String GRAFO_DETALLE = "Alerta.detalle";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "id_alerta")
     private Integer id;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @JoinColumn(name = "instancia_reporte_id", nullable = false)
     private InstanciaReporte instancia;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @JoinColumn(name = "tipo_alerta_id", nullable = false)
     private TipoAlerta tipo;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @JoinColumn(name = "usuario_destino_id", nullable = false)
     private Usuario usuarioDestino;
 
@@ -43,4 +92,13 @@ public class Alerta {
     private String mensaje;
 
     private boolean leida;
+
+    // Episodio: la misma alerta se actualiza en cada disparo en lugar de duplicarse
+    @Column(name = "fecha_primer_disparo")
+    private LocalDateTime fechaPrimerDisparo;
+
+    @Column(name = "fecha_ultimo_disparo")
+    private LocalDateTime fechaUltimoDisparo;
+
+    private int ocurrencias = 1;
 }
\ No newline at end of file
@@ -0,0 +1,54 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Índice por contenido de los archivos subidos: un mismo SHA-256 apunta al archivo
+ * ya almacenado en lugar de subir otra copia.
+ */
+@Entity
+@Table(name = "archivos_almacenados",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"almacenamiento", "sha256"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivoAlmacenado {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_archivo")
+    private Long id;
+
+    // Almacenamiento donde vive el archivo (drive, local)
+    @Column(nullable = false, length = 20)
+    private String almacenamiento;
+
+    @Column(nullable = false, length = 64)
+    private String sha256;
+
+    @Column(nullable = false)
+    private Long tamano;
+
+    // Identificador del archivo en el almacenamiento (ID de Drive, nombre en disco)
+    @Column(name = "archivo_id", nullable = false, length = 200)
+    private String archivoId;
+
+    @Column(name = "nombre_archivo", length = 255)
+    private String nombreArchivo;
+
+    @Column(length = 1024)
+    private String link;
+
+    @Column(name = "fecha_creacion")
+    private LocalDateTime fechaCreacion;
+
+    @PrePersist
+    protected void onCreate() {
+        fechaCreacion = LocalDateTime.now();
+    }
+}
@@ -1,13 +1,20 @@
 package com.example.demo.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDateTime;
 
 @Entity
+@Cacheable
+// Editable desde /api/entidades: la caché se invalida al actualizar
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "catalogo.entidades")
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Table(name = "entidades")
 @Data
 @NoArgsConstructor
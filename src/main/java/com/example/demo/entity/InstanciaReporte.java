@@ -1,26 +1,53 @@
 package com.example.demo.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+@NamedEntityGraph(
+        name = InstanciaReporte.GRAFO_DETALLE,
+        attributeNodes = {
+                @NamedAttributeNode(value = "reporte", subgraph = "reporte"),
+                @NamedAttributeNode("estado"),
+                @NamedAttributeNode(value = "enviadoPor", subgraph = "usuario"),
+                @NamedAttributeNode(value = "corregidoPor", subgraph = "usuario")
+        },
+        subgraphs = {
+                @NamedSubgraph(name = "reporte", attributeNodes = {
+                        @NamedAttributeNode("entidad"),
+                        @NamedAttributeNode("frecuencia"),
+                        @NamedAttributeNode(value = "responsableElaboracion", subgraph = "usuario"),
+                        @NamedAttributeNode(value = "responsableSupervision", subgraph = "usuario")
+                }),
+                @NamedSubgraph(name = "usuario", attributeNodes = @NamedAttributeNode("rol"))
+        })
 @Table(name = "instancias_reporte")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class InstanciaReporte {
 
+    /** Instancia con su reporte (entidad, frecuencia, responsables), estado y usuarios de envío/corrección */
+    public static final String GRAFO_DETALLE = "InstanciaReporte.detalle";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "id_instancia")
     private Integer id;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @JoinColumn(name = "reporte_id", nullable = false)
     private Reporte reporte;
 
@@ -33,7 +60,9 @@ public class InstanciaReporte {
     @Column(name = "fecha_envio_real")
     private LocalDateTime fechaEnvioReal;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @JoinColumn(name = "estado_id", nullable = false)
     private EstadoCumplimiento estado;
 
@@ -50,7 +79,9 @@ public class InstanciaReporte {
     private String observaciones;
 
     // Usuario que envió el reporte
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @JoinColumn(name = "enviado_por_id")
     private Usuario enviadoPor;
 
@@ -95,10 +126,23 @@ public class InstanciaReporte {
     private LocalDateTime fechaCorreccion;
     
     // Usuario que realizó la corrección
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @JoinColumn(name = "corregido_por_id")
     private Usuario corregidoPor;
 
+    // Envío asíncrono aceptado cuyo archivo aún no se ha guardado (ver DespachadorSubidas)
+    @ColumnDefault("false")
+    @Column(name = "subida_pendiente", nullable = false)
+    private Boolean subidaPendiente = false;
+
+    // Bloqueo optimista: un UPDATE con una versión vieja falla en lugar de pisar otro cambio
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
     // ==================================================
 
     @PrePersist
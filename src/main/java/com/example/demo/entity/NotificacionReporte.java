@@ -1,5 +1,6 @@
 package com.example.demo.entity;
 
+import com.example.demo.service.NotificacionReporteListener;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -10,6 +11,7 @@ import lombok.AllArgsConstructor;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@EntityListeners(NotificacionReporteListener.class)
 public class NotificacionReporte {
 
     @Id
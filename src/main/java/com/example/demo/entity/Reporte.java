@@ -1,20 +1,36 @@
 package com.example.demo.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+@NamedEntityGraph(
+        name = Reporte.GRAFO_DETALLE,
+        attributeNodes = {
+                @NamedAttributeNode("entidad"),
+                @NamedAttributeNode("frecuencia"),
+                @NamedAttributeNode(value = "responsableElaboracion", subgraph = "usuario"),
+                @NamedAttributeNode(value = "responsableSupervision", subgraph = "usuario")
+        },
+        subgraphs = @NamedSubgraph(name = "usuario", attributeNodes = @NamedAttributeNode("rol")))
 @Table(name = "reportes")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Reporte {
 
+    /** Reporte con entidad, frecuencia y responsables */
+    public static final String GRAFO_DETALLE = "Reporte.detalle";
+
     @Id
     @Column(name = "id_reporte", length = 50)
     private String id;
@@ -22,7 +38,9 @@ public class Reporte {
     @Column(nullable = false, length = 200)
     private String nombre;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @JoinColumn(name = "entidad_id", nullable = false)
     private Entidad entidad;
 
@@ -35,7 +53,9 @@ public class Reporte {
     @Column(name = "fecha_fin_vigencia")
     private LocalDate fechaFinVigencia;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @JoinColumn(name = "frecuencia_id", nullable = false)
     private Frecuencia frecuencia;
 
@@ -54,11 +74,15 @@ public class Reporte {
     @Column(name = "link_instrucciones", length = 255)
     private String linkInstrucciones;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @JoinColumn(name = "responsable_elaboracion_id", nullable = false)
     private Usuario responsableElaboracion;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @JoinColumn(name = "responsable_supervision_id", nullable = false)
     private Usuario responsableSupervision;
 
@@ -1,11 +1,20 @@
 package com.example.demo.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Immutable;
 
 @Entity
+@Immutable
+@Cacheable
+// Solo se insertan (AlertaScheduler/AlertaEventoService), nunca se modifican
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = "catalogo.tipos-alerta")
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Table(name = "tipos_alerta")
 @Data
 @NoArgsConstructor
@@ -0,0 +1,79 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Envío asíncrono de un reporte: el archivo espera en el spool hasta que un
+ * trabajador lo guarda en el almacenamiento y registra el envío de la instancia.
+ */
+@Entity
+@Table(name = "trabajos_subida")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrabajoSubida {
+
+    public static final String PENDIENTE = "PENDIENTE";
+    public static final String EN_PROCESO = "EN_PROCESO";
+    public static final String COMPLETADO = "COMPLETADO";
+    public static final String FALLIDO = "FALLIDO";
+
+    @Id
+    @Column(name = "id_trabajo", length = 36)
+    private String id;
+
+    @Column(name = "instancia_id", nullable = false)
+    private Integer instanciaId;
+
+    // Usuario que aceptó el envío: el trabajador envía en su nombre
+    @Column(nullable = false, length = 150)
+    private String correo;
+
+    @Column(name = "nombre_archivo", nullable = false, length = 255)
+    private String nombreArchivo;
+
+    @Column(name = "tipo_contenido", length = 255)
+    private String tipoContenido;
+
+    @Column(nullable = false)
+    private Long tamano;
+
+    @Column(columnDefinition = "TEXT")
+    private String observaciones;
+
+    @Column(name = "link_evidencia", length = 500)
+    private String linkEvidencia;
+
+    // PENDIENTE, EN_PROCESO, COMPLETADO o FALLIDO
+    @Column(nullable = false, length = 20)
+    private String estado;
+
+    @Column(nullable = false)
+    private Integer intentos = 0;
+
+    // Último error (en FALLIDO, el motivo definitivo)
+    @Column(columnDefinition = "TEXT")
+    private String mensaje;
+
+    @Column(name = "fecha_creacion")
+    private LocalDateTime fechaCreacion;
+
+    @Column(name = "fecha_actualizacion")
+    private LocalDateTime fechaActualizacion;
+
+    @PrePersist
+    protected void onCreate() {
+        fechaCreacion = LocalDateTime.now();
+        fechaActualizacion = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        fechaActualizacion = LocalDateTime.now();
+    }
+}
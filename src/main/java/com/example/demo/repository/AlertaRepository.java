@@ -3,35 +3,92 @@ package com.example.demo.repository;
 import com.example.demo.entity.Alerta;
 import com.example.demo.entity.InstanciaReporte;
 import com.example.demo.entity.Usuario;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface AlertaRepository extends JpaRepository<Alerta, Integer> {
 
+    @Override
+    @EntityGraph(Alerta.GRAFO_DETALLE)
+    List<Alerta> findAll();
+
+    @Override
+    @EntityGraph(Alerta.GRAFO_DETALLE)
+    Optional<Alerta> findById(Integer id);
+
+    @EntityGraph(Alerta.GRAFO_BANDEJA)
     List<Alerta> findByInstancia(InstanciaReporte instancia);
 
+    @EntityGraph(Alerta.GRAFO_BANDEJA)
     List<Alerta> findByUsuarioDestino(Usuario usuario);
 
+    @EntityGraph(Alerta.GRAFO_BANDEJA)
     List<Alerta> findByUsuarioDestinoAndLeidaFalse(Usuario usuario);
 
+    @EntityGraph(Alerta.GRAFO_BANDEJA)
     List<Alerta> findByEnviadaFalse();
 
-@Query("SELECT COUNT(a) > 0 FROM Alerta a WHERE a.instancia = :instancia " +
-       "AND a.usuarioDestino = :usuario " +
-       "AND a.tipo.nombre = :tipoNombre " +
-       "AND a.fechaEnviada BETWEEN :inicio AND :fin")
-boolean existsByInstanciaAndUsuarioDestinoAndTipoNombreAndFechaEnviadaBetween(
-        @Param("instancia") InstanciaReporte instancia,
-        @Param("usuario") Usuario usuario,
-        @Param("tipoNombre") String tipoNombre,
-        @Param("inicio") LocalDateTime inicio,
-        @Param("fin") LocalDateTime fin
-);
+    long countByUsuarioDestinoAndLeidaFalse(Usuario usuario);
+
+    @EntityGraph(Alerta.GRAFO_BANDEJA)
+    Optional<Alerta> findByInstanciaIdAndUsuarioDestinoIdAndTipoId(Integer instanciaId, Integer usuarioId, Integer tipoId);
+
+    /**
+     * Registra un disparo del episodio (instancia, usuario, tipo): lo crea si no existe
+     * o lo actualiza en el sitio (mensaje, último disparo, ocurrencias) y lo marca como no leído.
+     * Solo actualiza si el último disparo es anterior a {@code desde}. fecha_programada no se toca:
+     * es la clave de la paginación keyset y un episodio que se repite no debe saltar de página.
+     *
+     * @return 1 si se registró el disparo, 0 si ya se había disparado desde {@code desde}
+     */
+    @Modifying
+    @Query(value = "INSERT INTO alertas (instancia_reporte_id, tipo_alerta_id, usuario_destino_id, " +
+            "fecha_programada, fecha_enviada, enviada, mensaje, leida, " +
+            "fecha_primer_disparo, fecha_ultimo_disparo, ocurrencias) " +
+            "VALUES (:instanciaId, :tipoId, :usuarioId, :ahora, :ahora, true, :mensaje, false, :ahora, :ahora, 1) " +
+            "ON CONFLICT (instancia_reporte_id, usuario_destino_id, tipo_alerta_id) DO UPDATE SET " +
+            "mensaje = EXCLUDED.mensaje, " +
+            "fecha_enviada = EXCLUDED.fecha_enviada, " +
+            "fecha_ultimo_disparo = EXCLUDED.fecha_ultimo_disparo, " +
+            "enviada = true, " +
+            "leida = false, " +
+            "ocurrencias = alertas.ocurrencias + 1 " +
+            "WHERE COALESCE(alertas.fecha_ultimo_disparo, alertas.fecha_programada) < :desde",
+            nativeQuery = true)
+    int registrarDisparo(@Param("instanciaId") Integer instanciaId,
+                         @Param("usuarioId") Integer usuarioId,
+                         @Param("tipoId") Integer tipoId,
+                         @Param("mensaje") String mensaje,
+                         @Param("ahora") LocalDateTime ahora,
+                         @Param("desde") LocalDateTime desde);
+
+    // ================= PAGINACIÓN KEYSET (fecha_programada DESC, id DESC) =================
+
+    long countByLeidaFalse();
+
+    @EntityGraph(Alerta.GRAFO_BANDEJA)
+    @Query("SELECT a FROM Alerta a WHERE (:soloNoLeidas = false OR a.leida = false) " +
+           "ORDER BY a.fechaProgramada DESC, a.id DESC")
+    List<Alerta> findPrimeraPagina(@Param("soloNoLeidas") boolean soloNoLeidas, Limit limite);
+
+    @EntityGraph(Alerta.GRAFO_BANDEJA)
+    @Query("SELECT a FROM Alerta a WHERE (:soloNoLeidas = false OR a.leida = false) " +
+           "AND a.fechaProgramada <= :fecha " +
+           "AND (a.fechaProgramada < :fecha OR a.id < :id) " +
+           "ORDER BY a.fechaProgramada DESC, a.id DESC")
+    List<Alerta> findPaginaDespuesDe(@Param("soloNoLeidas") boolean soloNoLeidas,
+                                     @Param("fecha") LocalDateTime fecha,
+                                     @Param("id") Integer id,
+                                     Limit limite);
 
 }
@@ -0,0 +1,52 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.ArchivoAlmacenado;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ArchivoAlmacenadoRepository extends JpaRepository<ArchivoAlmacenado, Long> {
+
+    Optional<ArchivoAlmacenado> findByAlmacenamientoAndSha256(String almacenamiento, String sha256);
+
+    // Recorrido del índice por páginas de id (depuración)
+    List<ArchivoAlmacenado> findByAlmacenamientoAndIdGreaterThanOrderById(String almacenamiento, Long id, Limit limit);
+
+    /**
+     * Archivos que ninguna instancia referencia (ni como envío ni como corrección),
+     * creados antes de {@code limite}
+     */
+    @Query("SELECT a FROM ArchivoAlmacenado a WHERE a.almacenamiento = :almacenamiento " +
+           "AND a.fechaCreacion < :limite " +
+           "AND NOT EXISTS (SELECT i.id FROM InstanciaReporte i " +
+           "                WHERE i.driveFileId = a.archivoId OR i.driveFileIdCorreccion = a.archivoId) " +
+           "ORDER BY a.id")
+    List<ArchivoAlmacenado> findHuerfanos(@Param("almacenamiento") String almacenamiento,
+                                          @Param("limite") LocalDateTime limite, Limit limit);
+
+    /**
+     * De los {@code archivoIds} dados, los que alguna instancia referencia (re-verificación
+     * justo antes de eliminar un lote de huérfanos)
+     */
+    @Query("SELECT a.archivoId FROM ArchivoAlmacenado a WHERE a.almacenamiento = :almacenamiento " +
+           "AND a.archivoId IN :archivoIds " +
+           "AND EXISTS (SELECT i.id FROM InstanciaReporte i " +
+           "            WHERE i.driveFileId = a.archivoId OR i.driveFileIdCorreccion = a.archivoId)")
+    List<String> findReferenciados(@Param("almacenamiento") String almacenamiento,
+                                   @Param("archivoIds") Collection<String> archivoIds);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ArchivoAlmacenado a WHERE a.almacenamiento = :almacenamiento AND a.archivoId = :archivoId")
+    int deleteByArchivoId(@Param("almacenamiento") String almacenamiento, @Param("archivoId") String archivoId);
+}
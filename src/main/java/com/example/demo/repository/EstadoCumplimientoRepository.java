@@ -1,12 +1,24 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.VersionDatos;
 import com.example.demo.entity.EstadoCumplimiento;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
 
 @Repository
 public interface EstadoCumplimientoRepository extends JpaRepository<EstadoCumplimiento, Integer> {
+    // Resultado en la caché de consultas; se invalida al escribir en la tabla
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<EstadoCumplimiento> findByNombre(String nombre);
+
+    // Sin columna de actualización: la aplicación solo inserta en este catálogo, basta con total e id máximo
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT new com.example.demo.dto.VersionDatos(COUNT(e), MAX(e.id)) FROM EstadoCumplimiento e")
+    VersionDatos findVersion();
 }
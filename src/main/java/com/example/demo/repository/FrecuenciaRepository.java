@@ -1,12 +1,24 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.VersionDatos;
 import com.example.demo.entity.Frecuencia;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
 
 @Repository
 public interface FrecuenciaRepository extends JpaRepository<Frecuencia, Integer> {
+    // Resultado en la caché de consultas; se invalida al escribir en la tabla
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Frecuencia> findByNombre(String nombre);
+
+    // Sin columna de actualización: la aplicación solo inserta en este catálogo, basta con total e id máximo
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT new com.example.demo.dto.VersionDatos(COUNT(f), MAX(f.id)) FROM Frecuencia f")
+    VersionDatos findVersion();
 }
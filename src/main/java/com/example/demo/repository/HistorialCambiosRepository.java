@@ -1,6 +1,7 @@
 package com.example.demo.repository;
 
 import com.example.demo.entity.HistorialCambios;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -9,5 +10,6 @@ import java.util.List;
 @Repository
 public interface HistorialCambiosRepository extends JpaRepository<HistorialCambios, Integer> {
 
+    @EntityGraph(attributePaths = "usuario")
     List<HistorialCambios> findByTablaAndRegistroId(String tabla, String registroId);
 }
@@ -1,54 +1,196 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.InstanciaReporteDTO;
+import com.example.demo.dto.VersionDatos;
 import com.example.demo.entity.InstanciaReporte;
 import com.example.demo.entity.Reporte;
 import com.example.demo.entity.EstadoCumplimiento;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface InstanciaReporteRepository extends JpaRepository<InstanciaReporte, Integer> {
+public interface InstanciaReporteRepository extends JpaRepository<InstanciaReporte, Integer>,
+        JpaSpecificationExecutor<InstanciaReporte> {
 
+    // Las asociaciones son LAZY: cada consulta que devuelve entidades declara su plan de carga
+
+    @Override
+    @EntityGraph(InstanciaReporte.GRAFO_DETALLE)
+    List<InstanciaReporte> findAll();
+
+    @Override
+    @EntityGraph(InstanciaReporte.GRAFO_DETALLE)
+    Optional<InstanciaReporte> findById(Integer id);
+
+    @Override
+    @EntityGraph(InstanciaReporte.GRAFO_DETALLE)
+    List<InstanciaReporte> findAll(Specification<InstanciaReporte> spec, Sort sort);
+
+    // Envío por lotes: todas las instancias del lote en una sola consulta
+    @EntityGraph(InstanciaReporte.GRAFO_DETALLE)
+    List<InstanciaReporte> findByIdIn(Collection<Integer> ids);
+
+    // Archivo de Drive enlazado como envío o como corrección de alguna instancia
+    boolean existsByDriveFileIdOrDriveFileIdCorreccion(String driveFileId, String driveFileIdCorreccion);
+
+    @EntityGraph(InstanciaReporte.GRAFO_DETALLE)
     List<InstanciaReporte> findByReporte(Reporte reporte);
 
+    @EntityGraph(InstanciaReporte.GRAFO_DETALLE)
     List<InstanciaReporte> findByEstado(EstadoCumplimiento estado);
 
+    @EntityGraph(InstanciaReporte.GRAFO_DETALLE)
     List<InstanciaReporte> findByFechaVencimientoCalculadaBetween(LocalDate inicio, LocalDate fin);
 
+    @EntityGraph(InstanciaReporte.GRAFO_DETALLE)
     List<InstanciaReporte> findByFechaEnvioRealIsNull();
 
+    @EntityGraph(InstanciaReporte.GRAFO_DETALLE)
     @Query("SELECT i FROM InstanciaReporte i WHERE i.fechaVencimientoCalculada <= :fecha AND i.estado.nombre NOT IN ('Enviado a tiempo', 'Enviado tarde')")
     List<InstanciaReporte> findVencidos(@Param("fecha") LocalDate fecha);
 
+    @EntityGraph(InstanciaReporte.GRAFO_DETALLE)
     @Query("SELECT i FROM InstanciaReporte i WHERE i.fechaVencimientoCalculada BETWEEN :inicio AND :fin AND i.estado.nombre NOT IN ('Enviado a tiempo', 'Enviado tarde')")
     List<InstanciaReporte> findProximosAVencer(@Param("inicio") LocalDate inicio, @Param("fin") LocalDate fin);
 
+    // ================= PROYECCIONES A InstanciaReporteDTO =================
+    // Una sola consulta con las columnas que usa el DTO, sin hidratar el grafo de entidades.
+    // Los campos calculados los completa el servicio.
+
+    String PROYECCION_DTO = "SELECT new com.example.demo.dto.InstanciaReporteDTO(" +
+            "i.id, r.id, r.nombre, ent.razonSocial, ent.id, f.nombre, r.formatoRequerido, r.baseLegal, " +
+            "i.periodoReportado, i.fechaVencimientoCalculada, i.fechaEnvioReal, e.nombre, e.id, " +
+            "i.diasDesviacion, i.linkReporteFinal, i.linkEvidenciaEnvio, i.nombreArchivo, i.driveFileId, " +
+            "re.nombreCompleto, re.id, rs.nombreCompleto, rs.id, ep.nombreCompleto, ep.id, i.observaciones, " +
+            "i.fechaCreacion, i.fechaActualizacion, i.tieneCorreccion, i.linkCorreccion, i.driveFileIdCorreccion, " +
+            "i.nombreArchivoCorreccion, i.motivoCorreccion, i.fechaCorreccion, cp.nombreCompleto, cp.id, i.subidaPendiente, i.version) " +
+            "FROM InstanciaReporte i " +
+            "JOIN i.reporte r JOIN r.entidad ent JOIN r.frecuencia f JOIN i.estado e " +
+            "LEFT JOIN r.responsableElaboracion re LEFT JOIN r.responsableSupervision rs " +
+            "LEFT JOIN i.enviadoPor ep LEFT JOIN i.corregidoPor cp ";
+
+    @Query(PROYECCION_DTO + "ORDER BY i.id")
+    List<InstanciaReporteDTO> findTodasDTO();
+
+    @Query(PROYECCION_DTO + "WHERE r.id = :reporteId ORDER BY i.id")
+    List<InstanciaReporteDTO> findDTOPorReporte(@Param("reporteId") String reporteId);
+
+    // ================= PENDIENTES Y VENCIDOS =================
+    // Se filtra solo por estado (actualizar() admite fechaEnvioReal en una instancia aún
+    // pendiente). El filtro por estado se resuelve contra estados_cumplimiento (pocas filas)
+    // y usa idx_instancias_estado_venc; los vencidos, idx_instancias_venc_id. El orden lo da la base.
+
+    @Query(PROYECCION_DTO +
+           "WHERE (UPPER(e.nombre) LIKE '%PENDIENTE%' OR UPPER(e.nombre) LIKE '%EN PROCESO%') " +
+           "AND UPPER(e.nombre) NOT LIKE '%ENVIADO A TIEMPO%' AND UPPER(e.nombre) NOT LIKE '%ENVIADO TARDE%' " +
+           "ORDER BY i.fechaVencimientoCalculada ASC NULLS LAST, i.id")
+    List<InstanciaReporteDTO> findPendientesOrdenados();
+
+    @Query(PROYECCION_DTO +
+           "WHERE i.fechaVencimientoCalculada < :hoy " +
+           "AND UPPER(e.nombre) NOT LIKE '%ENVIADO A TIEMPO%' AND UPPER(e.nombre) NOT LIKE '%ENVIADO TARDE%' " +
+           "AND UPPER(e.nombre) NOT LIKE '%APROBADO%' " +
+           "ORDER BY i.fechaVencimientoCalculada, i.id")
+    List<InstanciaReporteDTO> findVencidosOrdenados(@Param("hoy") LocalDate hoy);
+
     // ================= RESPONSABLE =================
 
+    @EntityGraph(InstanciaReporte.GRAFO_DETALLE)
     @Query("SELECT i FROM InstanciaReporte i WHERE i.reporte.responsableElaboracion.id = :responsableId AND i.fechaVencimientoCalculada BETWEEN :inicio AND :fin")
     List<InstanciaReporte> findByResponsableAndFechaVencimiento(@Param("responsableId") Integer responsableId, @Param("inicio") LocalDate inicio, @Param("fin") LocalDate fin);
 
+    @EntityGraph(InstanciaReporte.GRAFO_DETALLE)
     @Query("SELECT i FROM InstanciaReporte i WHERE i.reporte.responsableElaboracion.id = :responsableId AND i.fechaVencimientoCalculada BETWEEN :inicio AND :fin AND i.estado.nombre NOT IN ('Enviado a tiempo', 'Enviado tarde')")
     List<InstanciaReporte> findProximosPorResponsable(@Param("responsableId") Integer responsableId, @Param("inicio") LocalDate inicio, @Param("fin") LocalDate fin);
 
+    @EntityGraph(InstanciaReporte.GRAFO_DETALLE)
     @Query("SELECT i FROM InstanciaReporte i WHERE i.reporte.responsableElaboracion.id = :responsableId AND i.fechaVencimientoCalculada < :hoy AND i.estado.nombre NOT IN ('Enviado a tiempo', 'Enviado tarde')")
     List<InstanciaReporte> findVencidosPorResponsable(@Param("responsableId") Integer responsableId, @Param("hoy") LocalDate hoy);
 
     // ================= SUPERVISOR =================
 
+    @EntityGraph(InstanciaReporte.GRAFO_DETALLE)
     @Query("SELECT i FROM InstanciaReporte i WHERE i.reporte.responsableSupervision.id = :supervisorId AND i.fechaVencimientoCalculada BETWEEN :inicio AND :fin")
     List<InstanciaReporte> findBySupervisorAndFechaVencimiento(@Param("supervisorId") Integer supervisorId, @Param("inicio") LocalDate inicio, @Param("fin") LocalDate fin);
 
+    @EntityGraph(InstanciaReporte.GRAFO_DETALLE)
     @Query("SELECT i FROM InstanciaReporte i WHERE i.reporte.responsableSupervision.id = :supervisorId AND i.fechaVencimientoCalculada BETWEEN :inicio AND :fin AND i.estado.nombre NOT IN ('Enviado a tiempo', 'Enviado tarde')")
     List<InstanciaReporte> findProximosPorSupervisor(@Param("supervisorId") Integer supervisorId, @Param("inicio") LocalDate inicio, @Param("fin") LocalDate fin);
 
+    @EntityGraph(InstanciaReporte.GRAFO_DETALLE)
     @Query("SELECT i FROM InstanciaReporte i WHERE i.reporte.responsableSupervision.id = :supervisorId AND i.fechaVencimientoCalculada < :hoy AND i.estado.nombre NOT IN ('Enviado a tiempo', 'Enviado tarde')")
     List<InstanciaReporte> findVencidosPorSupervisor(@Param("supervisorId") Integer supervisorId, @Param("hoy") LocalDate hoy);
 
-}
\ No newline at end of file
+    // ================= PAGINACIÓN KEYSET (fecha_vencimiento_calculada, id) =================
+    // La condición redundante "fecha >= :fecha" permite empezar el recorrido del índice en el cursor
+
+    @Query(PROYECCION_DTO + "ORDER BY i.fechaVencimientoCalculada, i.id")
+    List<InstanciaReporteDTO> findPrimeraPagina(Limit limite);
+
+    @Query(PROYECCION_DTO + "WHERE i.fechaVencimientoCalculada >= :fecha " +
+           "AND (i.fechaVencimientoCalculada > :fecha OR i.id > :id) " +
+           "ORDER BY i.fechaVencimientoCalculada, i.id")
+    List<InstanciaReporteDTO> findPaginaDespuesDe(@Param("fecha") LocalDate fecha, @Param("id") Integer id, Limit limite);
+
+    @Query(PROYECCION_DTO + "WHERE r.id = :reporteId " +
+           "ORDER BY i.fechaVencimientoCalculada, i.id")
+    List<InstanciaReporteDTO> findPrimeraPaginaPorReporte(@Param("reporteId") String reporteId, Limit limite);
+
+    @Query(PROYECCION_DTO + "WHERE r.id = :reporteId " +
+           "AND i.fechaVencimientoCalculada >= :fecha " +
+           "AND (i.fechaVencimientoCalculada > :fecha OR i.id > :id) " +
+           "ORDER BY i.fechaVencimientoCalculada, i.id")
+    List<InstanciaReporteDTO> findPaginaPorReporteDespuesDe(@Param("reporteId") String reporteId,
+                                                            @Param("fecha") LocalDate fecha,
+                                                            @Param("id") Integer id,
+                                                            Limit limite);
+
+    long countByReporteId(String reporteId);
+
+    // ================= EXPORTACIÓN =================
+    // Cursor de solo avance: el driver trae las filas de FETCH_SIZE en FETCH_SIZE y cada DTO se
+    // escribe y se descarta (no son entidades gestionadas). Requiere una transacción abierta.
+
+    int FETCH_SIZE_EXPORTACION = 500;
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + FETCH_SIZE_EXPORTACION),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(PROYECCION_DTO + "WHERE i.fechaVencimientoCalculada BETWEEN :desde AND :hasta " +
+           "ORDER BY i.fechaVencimientoCalculada, i.id")
+    Stream<InstanciaReporteDTO> streamDTOEntre(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+
+    // ================= VERSIÓN PARA GET CONDICIONALES =================
+    // Los DTO llevan nombres de reporte, entidad y responsables: cuentan también sus modificaciones
+
+    String VERSION_INSTANCIAS = "SELECT new com.example.demo.dto.VersionDatos(COUNT(i), MAX(i.id), MAX(i.fechaActualizacion), " +
+            "(SELECT MAX(r.fechaActualizacion) FROM Reporte r), " +
+            "(SELECT MAX(u.fechaActualizacion) FROM Usuario u), " +
+            "(SELECT MAX(en.fechaActualizacion) FROM Entidad en)) " +
+            "FROM InstanciaReporte i ";
+
+    @Query(VERSION_INSTANCIAS)
+    VersionDatos findVersion();
+
+    @Query(VERSION_INSTANCIAS + "WHERE i.fechaEnvioReal IS NULL")
+    VersionDatos findVersionSinEnviar();
+
+}
@@ -0,0 +1,87 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.InstanciaReporte;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Filtros combinables de InstanciaReporte para consultas dinámicas (histórico).
+ */
+public final class InstanciaReporteSpecs {
+
+    private InstanciaReporteSpecs() {
+    }
+
+    /**
+     * Estados de entrega: "Enviado a tiempo", "Enviado tarde" o "Aprobado"
+     */
+    public static Specification<InstanciaReporte> enviadas() {
+        return (root, query, cb) -> {
+            Expression<String> estado = cb.upper(root.get("estado").get("nombre"));
+            return cb.or(
+                    cb.like(estado, "%ENVIADO A TIEMPO%"),
+                    cb.like(estado, "%ENVIADO TARDE%"),
+                    cb.like(estado, "%APROBADO%"));
+        };
+    }
+
+    public static Specification<InstanciaReporte> deResponsable(Integer usuarioId) {
+        return (root, query, cb) -> cb.equal(root.get("reporte").get("responsableElaboracion").get("id"), usuarioId);
+    }
+
+    public static Specification<InstanciaReporte> deSupervisor(Integer usuarioId) {
+        return (root, query, cb) -> cb.equal(root.get("reporte").get("responsableSupervision").get("id"), usuarioId);
+    }
+
+    public static Specification<InstanciaReporte> deReporte(String reporteId) {
+        return reporteId == null ? null
+                : (root, query, cb) -> cb.equal(root.get("reporte").get("id"), reporteId);
+    }
+
+    public static Specification<InstanciaReporte> deEntidad(Integer entidadId) {
+        return entidadId == null ? null
+                : (root, query, cb) -> cb.equal(root.get("reporte").get("entidad").get("id"), entidadId);
+    }
+
+    /**
+     * Envío dentro del año y/o mes indicados. Con año se filtra por rango de
+     * fechas (usa el índice); solo con mes se compara el mes de cualquier año.
+     */
+    public static Specification<InstanciaReporte> enviadaEn(Integer year, Integer mes) {
+        if (year == null && mes == null) {
+            return null;
+        }
+        return (root, query, cb) -> {
+            Path<LocalDateTime> fecha = root.get("fechaEnvioReal");
+            if (year == null) {
+                return cb.equal(cb.function("month", Integer.class, fecha), mes);
+            }
+            LocalDate desde = mes == null ? LocalDate.of(year, 1, 1) : LocalDate.of(year, mes, 1);
+            LocalDate hasta = mes == null ? desde.plusYears(1) : desde.plusMonths(1);
+            return cb.and(
+                    cb.greaterThanOrEqualTo(fecha, desde.atStartOfDay()),
+                    cb.lessThan(fecha, hasta.atStartOfDay()));
+        };
+    }
+
+    /**
+     * Posición posterior al cursor en el orden (fecha_envio_real DESC NULLS LAST, id DESC)
+     */
+    public static Specification<InstanciaReporte> enviadaAntesDe(LocalDateTime fecha, Integer id) {
+        return (root, query, cb) -> {
+            Path<LocalDateTime> fechaEnvio = root.get("fechaEnvioReal");
+            Path<Integer> idInstancia = root.get("id");
+            if (fecha == null) {
+                return cb.and(cb.isNull(fechaEnvio), cb.lessThan(idInstancia, id));
+            }
+            return cb.or(
+                    cb.lessThan(fechaEnvio, fecha),
+                    cb.and(cb.equal(fechaEnvio, fecha), cb.lessThan(idInstancia, id)),
+                    cb.isNull(fechaEnvio));
+        };
+    }
+}
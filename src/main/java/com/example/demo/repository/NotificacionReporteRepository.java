@@ -3,12 +3,22 @@ package com.example.demo.repository;
 import com.example.demo.entity.NotificacionReporte;
 import com.example.demo.entity.Reporte;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface NotificacionReporteRepository extends JpaRepository<NotificacionReporte, Integer> {
 
     List<NotificacionReporte> findByReporte(Reporte reporte);
+
+    @Query("SELECT n.correo FROM NotificacionReporte n WHERE n.reporte.id = :reporteId")
+    List<String> findCorreosByReporteId(@Param("reporteId") String reporteId);
+
+    // Precarga masiva: [reporteId, correo] para varios reportes en una sola consulta
+    @Query("SELECT n.reporte.id, n.correo FROM NotificacionReporte n WHERE n.reporte.id IN :reporteIds")
+    List<Object[]> findReporteIdYCorreoByReporteIdIn(@Param("reporteIds") Collection<String> reporteIds);
 }
@@ -4,21 +4,36 @@ import com.example.demo.entity.Reporte;
 import com.example.demo.entity.Entidad;
 import com.example.demo.entity.Frecuencia;
 import com.example.demo.entity.Usuario;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ReporteRepository extends JpaRepository<Reporte, String> {
 
+    @Override
+    @EntityGraph(Reporte.GRAFO_DETALLE)
+    List<Reporte> findAll();
+
+    @Override
+    @EntityGraph(Reporte.GRAFO_DETALLE)
+    Optional<Reporte> findById(String id);
+
+    @EntityGraph(Reporte.GRAFO_DETALLE)
     List<Reporte> findByEntidad(Entidad entidad);
 
+    @EntityGraph(Reporte.GRAFO_DETALLE)
     List<Reporte> findByFrecuencia(Frecuencia frecuencia);
 
+    @EntityGraph(Reporte.GRAFO_DETALLE)
     List<Reporte> findByResponsableElaboracion(Usuario usuario);
 
+    @EntityGraph(Reporte.GRAFO_DETALLE)
     List<Reporte> findByResponsableSupervision(Usuario usuario);
 
+    @EntityGraph(Reporte.GRAFO_DETALLE)
     List<Reporte> findByActivo(boolean activo);
 }
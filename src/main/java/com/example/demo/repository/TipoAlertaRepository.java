@@ -1,12 +1,24 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.VersionDatos;
 import com.example.demo.entity.TipoAlerta;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
 
 @Repository
 public interface TipoAlertaRepository extends JpaRepository<TipoAlerta, Integer> {
+    // Resultado en la caché de consultas; se invalida al escribir en la tabla
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<TipoAlerta> findByNombre(String nombre);
+
+    // Sin columna de actualización: la aplicación solo inserta en este catálogo, basta con total e id máximo
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("SELECT new com.example.demo.dto.VersionDatos(COUNT(t), MAX(t.id)) FROM TipoAlerta t")
+    VersionDatos findVersion();
 }
@@ -0,0 +1,32 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.TrabajoSubida;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface TrabajoSubidaRepository extends JpaRepository<TrabajoSubida, String> {
+
+    List<TrabajoSubida> findByEstadoOrderByFechaCreacion(String estado);
+
+    long countByEstado(String estado);
+
+    // Trabajos que quedaron a medias por un reinicio vuelven a la cola
+    @Transactional
+    @Modifying
+    @Query("UPDATE TrabajoSubida t SET t.estado = 'PENDIENTE' WHERE t.estado = 'EN_PROCESO'")
+    int reiniciarEnProceso();
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM TrabajoSubida t WHERE t.estado IN :estados AND t.fechaActualizacion < :limite")
+    int deleteFinalizadosAntesDe(@Param("estados") Collection<String> estados, @Param("limite") LocalDateTime limite);
+}
@@ -0,0 +1,51 @@
+package com.example.demo.resiliencia;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limita cuántas llamadas concurrentes puede tener un proveedor, para que uno
+ * lento no acapare todos los hilos de Tomcat, del scheduler o de @Async.
+ */
+public class Bulkhead {
+
+    private final int concurrenciaMaxima;
+    private final long esperaMaximaMs;
+    private final Semaphore permisos;
+    private final AtomicLong rechazos = new AtomicLong();
+
+    public Bulkhead(int concurrenciaMaxima, long esperaMaximaMs) {
+        this.concurrenciaMaxima = concurrenciaMaxima;
+        this.esperaMaximaMs = esperaMaximaMs;
+        this.permisos = new Semaphore(concurrenciaMaxima, true);
+    }
+
+    public boolean adquirir() {
+        try {
+            if (permisos.tryAcquire(esperaMaximaMs, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rechazos.incrementAndGet();
+        return false;
+    }
+
+    public void liberar() {
+        permisos.release();
+    }
+
+    public int enUso() {
+        return concurrenciaMaxima - permisos.availablePermits();
+    }
+
+    public int getConcurrenciaMaxima() {
+        return concurrenciaMaxima;
+    }
+
+    public long getRechazos() {
+        return rechazos.get();
+    }
+}
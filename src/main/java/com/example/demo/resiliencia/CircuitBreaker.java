@@ -0,0 +1,125 @@
+package com.example.demo.resiliencia;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Circuit breaker por proveedor externo.
+ *
+ * - CERRADO: las llamadas pasan; N fallos consecutivos (o llamadas lentas) lo abren.
+ * - ABIERTO: las llamadas se rechazan de inmediato durante {@code esperaAbiertoMs}.
+ * - SEMI_ABIERTO: se deja pasar una sola llamada de prueba; si funciona se cierra,
+ *   si falla vuelve a abrirse.
+ */
+public class CircuitBreaker {
+
+    public enum Estado { CERRADO, ABIERTO, SEMI_ABIERTO }
+
+    private final String nombre;
+    private final int umbralFallos;
+    private final long esperaAbiertoMs;
+    private final long umbralLentoMs;
+
+    private Estado estado = Estado.CERRADO;
+    private int fallosConsecutivos = 0;
+    private long abiertoDesde = 0;
+    private boolean pruebaEnCurso = false;
+
+    private long exitos = 0;
+    private long fallos = 0;
+    private long llamadasLentas = 0;
+    private long rechazos = 0;
+    private long aperturas = 0;
+
+    public CircuitBreaker(String nombre, int umbralFallos, long esperaAbiertoMs, long umbralLentoMs) {
+        this.nombre = nombre;
+        this.umbralFallos = umbralFallos;
+        this.esperaAbiertoMs = esperaAbiertoMs;
+        this.umbralLentoMs = umbralLentoMs;
+    }
+
+    /**
+     * Decide si la llamada puede ir al proveedor
+     */
+    public synchronized boolean permitirLlamada() {
+        switch (estado) {
+            case CERRADO:
+                return true;
+            case ABIERTO:
+                if (System.currentTimeMillis() - abiertoDesde >= esperaAbiertoMs) {
+                    estado = Estado.SEMI_ABIERTO;
+                    pruebaEnCurso = true;
+                    return true;
+                }
+                rechazos++;
+                return false;
+            default:
+                if (pruebaEnCurso) {
+                    rechazos++;
+                    return false;
+                }
+                pruebaEnCurso = true;
+                return true;
+        }
+    }
+
+    public synchronized void registrarExito(long duracionMs) {
+        if (umbralLentoMs > 0 && duracionMs >= umbralLentoMs) {
+            // Un proveedor que responde demasiado lento cuenta como fallo
+            llamadasLentas++;
+            registrarFallo();
+            return;
+        }
+        exitos++;
+        fallosConsecutivos = 0;
+        pruebaEnCurso = false;
+        estado = Estado.CERRADO;
+    }
+
+    /**
+     * La llamada permitida no llegó a ejecutarse (p. ej. bulkhead lleno):
+     * libera la prueba semi-abierta sin cambiar el estado.
+     */
+    public synchronized void cancelarLlamada() {
+        pruebaEnCurso = false;
+    }
+
+    public synchronized void registrarFallo() {
+        fallos++;
+        pruebaEnCurso = false;
+        if (estado == Estado.SEMI_ABIERTO || ++fallosConsecutivos >= umbralFallos) {
+            abrir();
+        }
+    }
+
+    private void abrir() {
+        if (estado != Estado.ABIERTO) {
+            aperturas++;
+        }
+        estado = Estado.ABIERTO;
+        abiertoDesde = System.currentTimeMillis();
+        fallosConsecutivos = 0;
+    }
+
+    public synchronized Estado getEstado() {
+        return estado;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public synchronized Map<String, Object> obtenerMetricas() {
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        metricas.put("estado", estado.name());
+        metricas.put("exitos", exitos);
+        metricas.put("fallos", fallos);
+        metricas.put("llamadasLentas", llamadasLentas);
+        metricas.put("rechazos", rechazos);
+        metricas.put("aperturas", aperturas);
+        if (estado == Estado.ABIERTO) {
+            metricas.put("msParaPrueba", Math.max(0, esperaAbiertoMs - (System.currentTimeMillis() - abiertoDesde)));
+        }
+        return metricas;
+    }
+}
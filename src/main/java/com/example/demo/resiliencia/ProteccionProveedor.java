@@ -0,0 +1,68 @@
+package com.example.demo.resiliencia;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Circuit breaker + bulkhead alrededor de las llamadas a un proveedor externo.
+ */
+public class ProteccionProveedor {
+
+    private final String nombre;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+
+    public ProteccionProveedor(String nombre, CircuitBreaker circuitBreaker, Bulkhead bulkhead) {
+        this.nombre = nombre;
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = bulkhead;
+    }
+
+    /**
+     * Ejecuta la llamada si el circuito y el bulkhead lo permiten.
+     *
+     * @throws ProveedorNoDisponibleException si se rechaza sin llamar al proveedor
+     */
+    public <T> T ejecutar(Callable<T> llamada) throws Exception {
+        if (!circuitBreaker.permitirLlamada()) {
+            throw new ProveedorNoDisponibleException(nombre, "circuito abierto");
+        }
+        if (!bulkhead.adquirir()) {
+            // No se llegó a llamar: liberar la prueba semi-abierta sin penalizar al proveedor
+            circuitBreaker.cancelarLlamada();
+            throw new ProveedorNoDisponibleException(nombre, "demasiadas llamadas concurrentes");
+        }
+
+        long inicio = System.currentTimeMillis();
+        try {
+            T resultado = llamada.call();
+            circuitBreaker.registrarExito(System.currentTimeMillis() - inicio);
+            return resultado;
+        } catch (Exception e) {
+            circuitBreaker.registrarFallo();
+            throw e;
+        } finally {
+            bulkhead.liberar();
+        }
+    }
+
+    /**
+     * Permite consultar el estado sin consumir la prueba semi-abierta
+     */
+    public boolean circuitoAbierto() {
+        return circuitBreaker.getEstado() == CircuitBreaker.Estado.ABIERTO;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public Map<String, Object> obtenerMetricas() {
+        Map<String, Object> metricas = new LinkedHashMap<>(circuitBreaker.obtenerMetricas());
+        metricas.put("concurrenciaEnUso", bulkhead.enUso());
+        metricas.put("concurrenciaMaxima", bulkhead.getConcurrenciaMaxima());
+        metricas.put("rechazosBulkhead", bulkhead.getRechazos());
+        return metricas;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.demo.resiliencia;
+
+/**
+ * Se lanza cuando la llamada a un proveedor se rechaza sin intentarla
+ * (circuito abierto o bulkhead lleno).
+ */
+public class ProveedorNoDisponibleException extends RuntimeException {
+
+    private final String proveedor;
+
+    public ProveedorNoDisponibleException(String proveedor, String motivo) {
+        super("Proveedor " + proveedor + " no disponible: " + motivo);
+        this.proveedor = proveedor;
+    }
+
+    public String getProveedor() {
+        return proveedor;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.demo.resiliencia;
+
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registro de protecciones (circuit breaker + bulkhead) por proveedor externo.
+ *
+ * Configuración por proveedor, p. ej. para "resend":
+ * resiliencia.resend.umbral-fallos, resiliencia.resend.espera-abierto-ms,
+ * resiliencia.resend.umbral-lento-ms, resiliencia.resend.concurrencia-maxima,
+ * resiliencia.resend.espera-bulkhead-ms
+ */
+@Component
+public class RegistroProveedores {
+
+    public static final String RESEND = "resend";
+    public static final String WHATSAPP = "whatsapp";
+    public static final String GOOGLE_DRIVE = "google-drive";
+
+    private final Environment env;
+    private final Map<String, ProteccionProveedor> protecciones = new ConcurrentHashMap<>();
+
+    public RegistroProveedores(Environment env) {
+        this.env = env;
+    }
+
+    public ProteccionProveedor obtener(String proveedor) {
+        return protecciones.computeIfAbsent(proveedor, this::crear);
+    }
+
+    private ProteccionProveedor crear(String proveedor) {
+        String prefijo = "resiliencia." + proveedor + ".";
+        CircuitBreaker circuitBreaker = new CircuitBreaker(
+                proveedor,
+                env.getProperty(prefijo + "umbral-fallos", Integer.class, 5),
+                env.getProperty(prefijo + "espera-abierto-ms", Long.class, 30000L),
+                env.getProperty(prefijo + "umbral-lento-ms", Long.class, 10000L));
+        Bulkhead bulkhead = new Bulkhead(
+                env.getProperty(prefijo + "concurrencia-maxima", Integer.class, 4),
+                env.getProperty(prefijo + "espera-bulkhead-ms", Long.class, 0L));
+        return new ProteccionProveedor(proveedor, circuitBreaker, bulkhead);
+    }
+
+    public Map<String, Object> obtenerMetricas() {
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        protecciones.forEach((nombre, proteccion) -> metricas.put(nombre, proteccion.obtenerMetricas()));
+        return metricas;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.demo.resiliencia;
+
+/**
+ * Limitador de tasa tipo "token bucket".
+ *
+ * Se recargan {@code tasaPorSegundo} tokens por segundo hasta un máximo de
+ * {@code capacidad} (ráfaga permitida). Cada envío consume un token.
+ */
+public class TokenBucket {
+
+    private final double capacidad;
+    private final double tokensPorNano;
+
+    private double tokens;
+    private long ultimaRecarga;
+
+    public TokenBucket(double tasaPorSegundo, double capacidad) {
+        if (tasaPorSegundo <= 0 || capacidad < 1) {
+            throw new IllegalArgumentException("La tasa debe ser positiva y la capacidad al menos 1");
+        }
+        this.capacidad = capacidad;
+        this.tokensPorNano = tasaPorSegundo / 1_000_000_000d;
+        this.tokens = capacidad;
+        this.ultimaRecarga = System.nanoTime();
+    }
+
+    /**
+     * Intenta consumir un token sin bloquear.
+     */
+    public synchronized boolean intentarConsumir() {
+        recargar();
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Consume un token, esperando lo necesario hasta que haya uno disponible.
+     */
+    public void consumir() throws InterruptedException {
+        while (true) {
+            long espera;
+            synchronized (this) {
+                recargar();
+                if (tokens >= 1) {
+                    tokens -= 1;
+                    return;
+                }
+                espera = (long) Math.ceil((1 - tokens) / tokensPorNano);
+            }
+            Thread.sleep(Math.max(1, espera / 1_000_000), (int) (espera % 1_000_000));
+        }
+    }
+
+    public synchronized double tokensDisponibles() {
+        recargar();
+        return tokens;
+    }
+
+    private void recargar() {
+        long ahora = System.nanoTime();
+        tokens = Math.min(capacidad, tokens + (ahora - ultimaRecarga) * tokensPorNano);
+        ultimaRecarga = ahora;
+    }
+}
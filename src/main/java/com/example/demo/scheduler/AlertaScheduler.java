@@ -2,7 +2,9 @@ package com.example.demo.scheduler;
 
 import com.example.demo.entity.*;
 import com.example.demo.repository.*;
+import com.example.demo.service.DestinatariosNotificacionCache;
 import com.example.demo.service.EmailNotificationService;
+import com.example.demo.service.NotificacionService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -15,10 +17,20 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  * Scheduler que genera y envía alertas por EMAIL automáticamente.
+ *
+ * Con {@code notificaciones.alertas.canales-adicionales=true} cada alerta sale además
+ * por NotificacionService: el mismo correo a los correos adicionales del reporte y
+ * WhatsApp al destinatario.
+ *
+ * Cada alerta es un episodio por (instancia, usuario, tipo): los disparos
+ * diarios actualizan la misma fila (último disparo, ocurrencias) en lugar de
+ * insertar una nueva.
  * 
  * MEJORADO PARA PRODUCCIÓN:
  * - Ejecuta cada 2 horas para evitar problemas de sleep en Render
@@ -34,21 +46,30 @@ public class AlertaScheduler {
     private final AlertaRepository alertaRepository;
     private final TipoAlertaRepository tipoAlertaRepository;
     private final EmailNotificationService emailService;
+    private final NotificacionService notificacionService;
+    private final DestinatariosNotificacionCache destinatariosCache;
 
     @Value("${notificaciones.email.habilitado:false}")
     private boolean emailHabilitado;
 
+    @Value("${notificaciones.alertas.canales-adicionales:false}")
+    private boolean canalesAdicionales;
+
     // Variable para trackear última ejecución
     private LocalDateTime ultimaEjecucion = null;
 
     public AlertaScheduler(InstanciaReporteRepository instanciaRepository,
                           AlertaRepository alertaRepository,
                           TipoAlertaRepository tipoAlertaRepository,
-                          EmailNotificationService emailService) {
+                          EmailNotificationService emailService,
+                          NotificacionService notificacionService,
+                          DestinatariosNotificacionCache destinatariosCache) {
         this.instanciaRepository = instanciaRepository;
         this.alertaRepository = alertaRepository;
         this.tipoAlertaRepository = tipoAlertaRepository;
         this.emailService = emailService;
+        this.notificacionService = notificacionService;
+        this.destinatariosCache = destinatariosCache;
     }
 
     @PostConstruct
@@ -91,6 +112,16 @@ public class AlertaScheduler {
         List<InstanciaReporte> instanciasPendientes = instanciaRepository.findByFechaEnvioRealIsNull();
         
         log.info("Procesando {} instancias pendientes", instanciasPendientes.size());
+
+        // Precargar en una sola consulta los destinatarios adicionales de todos los reportes de la corrida;
+        // enviarNotificacion los toma luego de la caché
+        if (canalesAdicionales) {
+            destinatariosCache.precargar(instanciasPendientes.stream()
+                    .map(InstanciaReporte::getReporte)
+                    .filter(Objects::nonNull)
+                    .map(Reporte::getId)
+                    .collect(Collectors.toSet()));
+        }
         
         int alertasGeneradas = 0;
         
@@ -188,29 +219,15 @@ public class AlertaScheduler {
      */
     private boolean generarAlertaResponsable(InstanciaReporte instancia, Usuario responsable, 
                                               String tipoNombre, String color, String mensaje) {
-        // Verificar si ya existe una alerta igual hoy
-        if (existeAlertaHoy(instancia, responsable, tipoNombre)) {
+        TipoAlerta tipoAlerta = obtenerOCrearTipoAlerta(tipoNombre, color);
+
+        // Un solo disparo por día y episodio
+        if (!registrarDisparoHoy(instancia, responsable, tipoAlerta, mensaje)) {
             log.debug("Ya existe alerta {} para instancia {} hoy", tipoNombre, instancia.getId());
             return false;
         }
         
-        TipoAlerta tipoAlerta = obtenerOCrearTipoAlerta(tipoNombre, color);
-        
-        Alerta alerta = new Alerta();
-        alerta.setInstancia(instancia);
-        alerta.setTipo(tipoAlerta);
-        alerta.setUsuarioDestino(responsable);
-        alerta.setMensaje(mensaje);
-        alerta.setFechaProgramada(LocalDateTime.now());
-        alerta.setFechaEnviada(LocalDateTime.now());
-        alerta.setEnviada(true);
-        alerta.setLeida(false);
-        
-        alertaRepository.save(alerta);
-        
-        // Enviar email
-        String asunto = construirAsunto(instancia);
-        emailService.enviarAlerta(responsable, asunto, mensaje, tipoNombre, color);
+        enviarNotificacion(instancia, responsable, tipoAlerta, construirAsunto(instancia), mensaje, color);
         
         String nombreReporte = instancia.getReporte() != null ? instancia.getReporte().getNombre() : String.valueOf(instancia.getId());
         log.info("✓ Alerta {} enviada a {} para reporte {}", tipoNombre, responsable.getNombreCompleto(), nombreReporte);
@@ -224,27 +241,13 @@ public class AlertaScheduler {
     private boolean generarAlertaSupervisor(InstanciaReporte instancia, Usuario supervisor, String mensaje) {
         String tipoNombre = "SUPERVISION";
         
-        if (existeAlertaHoy(instancia, supervisor, tipoNombre)) {
+        TipoAlerta tipoAlerta = obtenerOCrearTipoAlerta(tipoNombre, "azul");
+
+        if (!registrarDisparoHoy(instancia, supervisor, tipoAlerta, mensaje)) {
             return false;
         }
         
-        TipoAlerta tipoAlerta = obtenerOCrearTipoAlerta(tipoNombre, "azul");
-        
-        Alerta alerta = new Alerta();
-        alerta.setInstancia(instancia);
-        alerta.setTipo(tipoAlerta);
-        alerta.setUsuarioDestino(supervisor);
-        alerta.setMensaje(mensaje);
-        alerta.setFechaProgramada(LocalDateTime.now());
-        alerta.setFechaEnviada(LocalDateTime.now());
-        alerta.setEnviada(true);
-        alerta.setLeida(false);
-        
-        alertaRepository.save(alerta);
-        
-        // Enviar email
-        String asunto = "Supervisión: " + construirAsunto(instancia);
-        emailService.enviarAlerta(supervisor, asunto, mensaje, tipoNombre, "azul");
+        enviarNotificacion(instancia, supervisor, tipoAlerta, "Supervisión: " + construirAsunto(instancia), mensaje, "azul");
         
         String nombreReporte = instancia.getReporte() != null ? instancia.getReporte().getNombre() : String.valueOf(instancia.getId());
         log.info("✓ Alerta SUPERVISION enviada a {} para reporte {}", supervisor.getNombreCompleto(), nombreReporte);
@@ -253,14 +256,30 @@ public class AlertaScheduler {
     }
 
     /**
-     * Verificar si ya existe una alerta igual hoy
+     * Crea o actualiza el episodio (instancia, usuario, tipo) si aún no se disparó hoy.
+     *
+     * @return true si se registró el disparo; false si ya se había disparado hoy
      */
-    private boolean existeAlertaHoy(InstanciaReporte instancia, Usuario usuario, String tipoNombre) {
+    private boolean registrarDisparoHoy(InstanciaReporte instancia, Usuario usuario, TipoAlerta tipo, String mensaje) {
         LocalDateTime inicioHoy = LocalDate.now().atStartOfDay();
-        LocalDateTime finHoy = inicioHoy.plusDays(1);
-        
-        return alertaRepository.existsByInstanciaAndUsuarioDestinoAndTipoNombreAndFechaEnviadaBetween(
-                instancia, usuario, tipoNombre, inicioHoy, finHoy);
+
+        return alertaRepository.registrarDisparo(
+                instancia.getId(), usuario.getId(), tipo.getId(), mensaje, LocalDateTime.now(), inicioHoy) > 0;
+    }
+
+    /**
+     * Envía el correo de la alerta al destinatario y, si están habilitados, los canales
+     * adicionales con el mismo asunto y mensaje. La alerta ya está registrada, así que no
+     * vuelve a pasar por la bandeja in-app.
+     */
+    private void enviarNotificacion(InstanciaReporte instancia, Usuario usuario, TipoAlerta tipo,
+                                    String asunto, String mensaje, String color) {
+        emailService.enviarAlerta(usuario, asunto, mensaje, tipo.getNombre(), color);
+
+        if (canalesAdicionales) {
+            alertaRepository.findByInstanciaIdAndUsuarioDestinoIdAndTipoId(instancia.getId(), usuario.getId(), tipo.getId())
+                    .ifPresent(alerta -> notificacionService.enviarCanalesAdicionalesAlerta(alerta, asunto, mensaje, color));
+        }
     }
 
     /**
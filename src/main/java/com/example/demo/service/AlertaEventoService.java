@@ -3,6 +3,7 @@ package com.example.demo.service;
 import com.example.demo.entity.*;
 import com.example.demo.repository.AlertaRepository;
 import com.example.demo.repository.TipoAlertaRepository;
+import org.hibernate.Hibernate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -46,7 +47,8 @@ public class AlertaEventoService {
         }
 
         Reporte reporte = instancia.getReporte();
-        Usuario responsable = reporte.getResponsableElaboracion();
+        // Se entrega a un envío @Async: debe llegar inicializado, no como proxy LAZY
+        Usuario responsable = Hibernate.unproxy(reporte.getResponsableElaboracion(), Usuario.class);
 
         if (responsable == null) {
             log.warn("No se puede notificar asignación: responsable no asignado");
@@ -70,8 +72,7 @@ public class AlertaEventoService {
 
         // Guardar alerta en BD
         TipoAlerta tipoAlerta = obtenerOCrearTipoAlerta("ASIGNACION", "azul");
-        Alerta alerta = crearAlerta(instancia, tipoAlerta, responsable, mensaje.toString());
-        alertaRepository.save(alerta);
+        registrarAlerta(instancia, tipoAlerta, responsable, mensaje.toString());
 
         // Enviar email
         String asunto = "Nueva asignación: " + nombreReporte + " - " + instancia.getPeriodoReportado();
@@ -91,7 +92,7 @@ public class AlertaEventoService {
         }
 
         Reporte reporte = instancia.getReporte();
-        Usuario supervisor = reporte.getResponsableSupervision();
+        Usuario supervisor = Hibernate.unproxy(reporte.getResponsableSupervision(), Usuario.class);
         Usuario responsable = reporte.getResponsableElaboracion();
 
         if (supervisor == null) {
@@ -117,8 +118,7 @@ public class AlertaEventoService {
 
         // Guardar alerta en BD
         TipoAlerta tipoAlerta = obtenerOCrearTipoAlerta("ASIGNACION", "azul");
-        Alerta alerta = crearAlerta(instancia, tipoAlerta, supervisor, mensaje.toString());
-        alertaRepository.save(alerta);
+        registrarAlerta(instancia, tipoAlerta, supervisor, mensaje.toString());
 
         // Enviar email
         String asunto = "Nueva supervisión: " + nombreReporte + " - " + instancia.getPeriodoReportado();
@@ -149,7 +149,7 @@ public class AlertaEventoService {
         }
 
         Reporte reporte = instancia.getReporte();
-        Usuario responsable = reporte.getResponsableElaboracion();
+        Usuario responsable = Hibernate.unproxy(reporte.getResponsableElaboracion(), Usuario.class);
 
         if (responsable == null) {
             return;
@@ -172,8 +172,7 @@ public class AlertaEventoService {
 
         // Guardar alerta en BD
         TipoAlerta tipoAlerta = obtenerOCrearTipoAlerta("ENVIO", "verde");
-        Alerta alerta = crearAlerta(instancia, tipoAlerta, responsable, mensaje.toString());
-        alertaRepository.save(alerta);
+        registrarAlerta(instancia, tipoAlerta, responsable, mensaje.toString());
 
         // Enviar email
         String asunto = "Envío exitoso: " + nombreReporte + " - " + instancia.getPeriodoReportado();
@@ -193,7 +192,7 @@ public class AlertaEventoService {
         }
 
         Reporte reporte = instancia.getReporte();
-        Usuario supervisor = reporte.getResponsableSupervision();
+        Usuario supervisor = Hibernate.unproxy(reporte.getResponsableSupervision(), Usuario.class);
         Usuario responsable = reporte.getResponsableElaboracion();
 
         if (supervisor == null) {
@@ -227,8 +226,7 @@ public class AlertaEventoService {
 
         // Guardar alerta en BD
         TipoAlerta tipoAlerta = obtenerOCrearTipoAlerta("ENVIO", "verde");
-        Alerta alerta = crearAlerta(instancia, tipoAlerta, supervisor, mensaje.toString());
-        alertaRepository.save(alerta);
+        registrarAlerta(instancia, tipoAlerta, supervisor, mensaje.toString());
 
         // Enviar email
         String asunto = "Reporte enviado: " + nombreReporte + " - " + instancia.getPeriodoReportado();
@@ -265,16 +263,11 @@ public class AlertaEventoService {
         return tipoAlertaRepository.save(nuevo);
     }
 
-    private Alerta crearAlerta(InstanciaReporte instancia, TipoAlerta tipo, Usuario destinatario, String mensaje) {
-        Alerta alerta = new Alerta();
-        alerta.setInstancia(instancia);
-        alerta.setTipo(tipo);
-        alerta.setUsuarioDestino(destinatario);
-        alerta.setMensaje(mensaje);
-        alerta.setFechaProgramada(LocalDateTime.now());
-        alerta.setFechaEnviada(LocalDateTime.now());
-        alerta.setEnviada(true);
-        alerta.setLeida(false);
-        return alerta;
+    /**
+     * Guarda la alerta como episodio: si ya existe para (instancia, usuario, tipo) se actualiza
+     */
+    private void registrarAlerta(InstanciaReporte instancia, TipoAlerta tipo, Usuario destinatario, String mensaje) {
+        LocalDateTime ahora = LocalDateTime.now();
+        alertaRepository.registrarDisparo(instancia.getId(), destinatario.getId(), tipo.getId(), mensaje, ahora, ahora);
     }
 }
@@ -1,6 +1,7 @@
 package com.example.demo.service;
 
 import com.example.demo.dto.AlertaDTO;
+import com.example.demo.dto.PaginaDTO;
 import com.example.demo.entity.Alerta;
 import org.springframework.security.core.Authentication;
 
@@ -28,4 +29,10 @@ public interface AlertaService {
     // Para admin
     List<AlertaDTO> listarTodasDTO(Authentication authentication);
     List<AlertaDTO> listarTodasNoLeidasDTO(Authentication authentication);
+
+    /**
+     * Listado de administración paginado por cursor, de la más reciente a la más antigua.
+     */
+    PaginaDTO<AlertaDTO> listarTodasDTOPaginado(Authentication authentication, boolean soloNoLeidas,
+                                                String cursor, Integer limite);
 }
\ No newline at end of file
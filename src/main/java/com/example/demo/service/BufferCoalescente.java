@@ -0,0 +1,80 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BinaryOperator;
+
+/**
+ * Buffer que fusiona valores con la misma clave dentro de una ventana de tiempo.
+ *
+ * Cada clave se emite cuando lleva {@code ventanaMs} sin recibir cambios, o
+ * cuando han pasado {@code esperaMaximaMs} desde el primero (para que una
+ * clave muy activa no se quede retenida indefinidamente).
+ */
+public class BufferCoalescente<K, V> {
+
+    private final Map<K, Entrada<V>> pendientes = new ConcurrentHashMap<>();
+    private final BinaryOperator<V> combinar;
+
+    private final AtomicLong agregados = new AtomicLong();
+    private final AtomicLong emitidos = new AtomicLong();
+
+    /**
+     * @param combinar recibe (valor acumulado, valor nuevo) y devuelve el valor fusionado
+     */
+    public BufferCoalescente(BinaryOperator<V> combinar) {
+        this.combinar = combinar;
+    }
+
+    public void agregar(K clave, V valor) {
+        long ahora = System.currentTimeMillis();
+        agregados.incrementAndGet();
+        pendientes.merge(clave, new Entrada<>(valor, ahora, ahora),
+                (actual, nueva) -> new Entrada<>(combinar.apply(actual.valor(), nueva.valor()),
+                        actual.primeraVez(), ahora));
+    }
+
+    /**
+     * Extrae los valores cuya ventana ya se cerró
+     */
+    public List<V> extraerListos(long ventanaMs, long esperaMaximaMs) {
+        long ahora = System.currentTimeMillis();
+        List<V> listos = new ArrayList<>();
+        for (Map.Entry<K, Entrada<V>> e : pendientes.entrySet()) {
+            Entrada<V> entrada = e.getValue();
+            boolean inactiva = ahora - entrada.ultimaVez() >= ventanaMs;
+            boolean demasiadoVieja = ahora - entrada.primeraVez() >= esperaMaximaMs;
+            // remove(clave, valor) evita perder un agregado concurrente a la misma clave
+            if ((inactiva || demasiadoVieja) && pendientes.remove(e.getKey(), entrada)) {
+                listos.add(entrada.valor());
+            }
+        }
+        emitidos.addAndGet(listos.size());
+        return listos;
+    }
+
+    /**
+     * Extrae todo lo pendiente sin esperar la ventana (p. ej. al apagar)
+     */
+    public List<V> extraerTodos() {
+        return extraerListos(0, 0);
+    }
+
+    public int tamano() {
+        return pendientes.size();
+    }
+
+    public long getAgregados() {
+        return agregados.get();
+    }
+
+    public long getEmitidos() {
+        return emitidos.get();
+    }
+
+    private record Entrada<V>(V valor, long primeraVez, long ultimaVez) {
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.demo.service;
+
+import jakarta.mail.event.ConnectionEvent;
+import jakarta.mail.event.ConnectionListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cuenta las conexiones SMTP reales que abre y cierra el JavaMailSender.
+ *
+ * Se registra como listener en cada Transport (ver MailConfig). JavaMail entrega
+ * los eventos en su propio hilo, así que los contadores pueden ir unos
+ * milisegundos por detrás del envío.
+ */
+@Component
+public class ConexionesSmtp implements ConnectionListener {
+
+    private final AtomicLong abiertas = new AtomicLong();
+    private final AtomicLong cerradas = new AtomicLong();
+
+    @Override
+    public void opened(ConnectionEvent e) {
+        abiertas.incrementAndGet();
+    }
+
+    @Override
+    public void disconnected(ConnectionEvent e) {
+        // Solo se cuentan aperturas y cierres
+    }
+
+    @Override
+    public void closed(ConnectionEvent e) {
+        cerradas.incrementAndGet();
+    }
+
+    public long getAbiertas() {
+        return abiertas.get();
+    }
+
+    public long getCerradas() {
+        return cerradas.get();
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.demo.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Despachador de correos SMTP por lotes.
+ *
+ * Los correos se acumulan durante una ventana corta y se entregan juntos con
+ * JavaMailSender.send(SimpleMailMessage...), que abre UNA sola conexión
+ * (Transport + STARTTLS) para todo el lote en lugar de una por destinatario.
+ */
+@Service
+public class DespachadorCorreos {
+
+    private static final Logger log = LoggerFactory.getLogger(DespachadorCorreos.class);
+
+    private final JavaMailSender mailSender;
+    private final ConexionesSmtp conexionesSmtp;
+    private final Queue<SimpleMailMessage> cola = new ConcurrentLinkedQueue<>();
+
+    @Value("${notificaciones.email.lote.tamano-maximo:50}")
+    private int tamanoMaximoLote;
+
+    // Métricas
+    private final AtomicLong mensajesEncolados = new AtomicLong();
+    private final AtomicLong mensajesEnviados = new AtomicLong();
+    private final AtomicLong mensajesFallidos = new AtomicLong();
+    private final AtomicLong lotesEnviados = new AtomicLong();
+    private final AtomicLong tiempoTotalLotesMs = new AtomicLong();
+    private final AtomicLong tiempoMaximoLoteMs = new AtomicLong();
+    private volatile long ultimoLoteMs = 0;
+    private volatile int ultimoLoteTamano = 0;
+
+    public DespachadorCorreos(JavaMailSender mailSender, ConexionesSmtp conexionesSmtp) {
+        this.mailSender = mailSender;
+        this.conexionesSmtp = conexionesSmtp;
+    }
+
+    /**
+     * Agrega un correo a la cola; se enviará en el próximo lote.
+     */
+    public void encolar(SimpleMailMessage mensaje) {
+        cola.add(mensaje);
+        mensajesEncolados.incrementAndGet();
+    }
+
+    /**
+     * Vacía la cola en lotes de hasta {@code tamanoMaximoLote} mensajes.
+     * Cada lote reutiliza una única conexión SMTP.
+     */
+    @Scheduled(fixedDelayString = "${notificaciones.email.lote.ventana-ms:2000}")
+    public void despacharPendientes() {
+        while (!cola.isEmpty()) {
+            List<SimpleMailMessage> lote = new ArrayList<>();
+            SimpleMailMessage mensaje;
+            while (lote.size() < tamanoMaximoLote && (mensaje = cola.poll()) != null) {
+                lote.add(mensaje);
+            }
+            if (lote.isEmpty()) {
+                return;
+            }
+            enviarLote(lote);
+        }
+    }
+
+    private void enviarLote(List<SimpleMailMessage> lote) {
+        long inicio = System.nanoTime();
+        int fallidos = 0;
+
+        try {
+            mailSender.send(lote.toArray(new SimpleMailMessage[0]));
+        } catch (MailSendException e) {
+            // Fallos parciales: el resto del lote sí se entregó por la misma conexión
+            fallidos = e.getFailedMessages().isEmpty() ? lote.size() : e.getFailedMessages().size();
+            log.error("✗ {} de {} correos del lote fallaron: {}", fallidos, lote.size(), e.getMessage());
+        } catch (Exception e) {
+            fallidos = lote.size();
+            log.error("✗ Error enviando lote de {} correos: {}", lote.size(), e.getMessage());
+        }
+
+        long duracionMs = (System.nanoTime() - inicio) / 1_000_000;
+
+        lotesEnviados.incrementAndGet();
+        mensajesEnviados.addAndGet(lote.size() - fallidos);
+        mensajesFallidos.addAndGet(fallidos);
+        tiempoTotalLotesMs.addAndGet(duracionMs);
+        tiempoMaximoLoteMs.accumulateAndGet(duracionMs, Math::max);
+        ultimoLoteMs = duracionMs;
+        ultimoLoteTamano = lote.size();
+
+        log.debug("✓ Lote SMTP de {} correos enviado en {} ms", lote.size(), duracionMs);
+    }
+
+    @PreDestroy
+    public void alDetener() {
+        // No perder los correos que quedaron en la ventana al apagar
+        despacharPendientes();
+    }
+
+    /**
+     * Métricas de reutilización de conexión y tiempos por lote.
+     * Las conexiones son las que el Transport abrió realmente (un lote puede reconectar).
+     */
+    public Map<String, Object> obtenerMetricas() {
+        long lotes = lotesEnviados.get();
+        long conexiones = conexionesSmtp.getAbiertas();
+        long procesados = mensajesEnviados.get() + mensajesFallidos.get();
+
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        metricas.put("enCola", cola.size());
+        metricas.put("mensajesEncolados", mensajesEncolados.get());
+        metricas.put("mensajesEnviados", mensajesEnviados.get());
+        metricas.put("mensajesFallidos", mensajesFallidos.get());
+        metricas.put("lotesEnviados", lotes);
+        metricas.put("conexionesAbiertas", conexiones);
+        metricas.put("conexionesCerradas", conexionesSmtp.getCerradas());
+        metricas.put("mensajesPorConexion", conexiones > 0 ? (double) procesados / conexiones : 0.0);
+        metricas.put("tiempoPromedioLoteMs", lotes > 0 ? (double) tiempoTotalLotesMs.get() / lotes : 0.0);
+        metricas.put("tiempoMaximoLoteMs", tiempoMaximoLoteMs.get());
+        metricas.put("ultimoLoteMs", ultimoLoteMs);
+        metricas.put("ultimoLoteTamano", ultimoLoteTamano);
+        return metricas;
+    }
+}
@@ -0,0 +1,325 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.TrabajoSubida;
+import com.example.demo.repository.TrabajoSubidaRepository;
+import com.example.demo.resiliencia.ProveedorNoDisponibleException;
+import com.example.demo.service.almacenamiento.GestorArchivos;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Envío asíncrono de reportes con archivo.
+ *
+ * - La petición solo copia el archivo al spool, registra el trabajo, marca la instancia
+ *   con subida pendiente y responde 202 con el id del trabajo.
+ * - Un pool acotado de trabajadores guarda el archivo y registra el envío de la instancia.
+ * - Los errores transitorios (almacenamiento caído, conflicto de versión) se reintentan en
+ *   la revisión periódica; agotados los intentos el trabajo queda FALLIDO y la instancia
+ *   vuelve a admitir envíos.
+ * - Los trabajos viven en la tabla trabajos_subida y el archivo en disco: un reinicio
+ *   retoma los pendientes.
+ */
+@Service
+public class DespachadorSubidas {
+
+    private static final Logger log = LoggerFactory.getLogger(DespachadorSubidas.class);
+
+    private final InstanciaReporteService instanciaService;
+    private final TrabajoSubidaRepository trabajoRepo;
+    private final GestorArchivos archivos;
+    private final Path directorio;
+    private final int maximoIntentos;
+    private final long retencionDias;
+    private final ThreadPoolExecutor hilos;
+
+    // Trabajos ya entregados al pool (en cola o en curso): la revisión periódica no los duplica
+    private final Set<String> enCola = ConcurrentHashMap.newKeySet();
+
+    // Métricas
+    private final AtomicLong aceptados = new AtomicLong();
+    private final AtomicLong completados = new AtomicLong();
+    private final AtomicLong reintentados = new AtomicLong();
+    private final AtomicLong fallidos = new AtomicLong();
+    private final AtomicLong rechazadosPorCarga = new AtomicLong();
+    private final AtomicLong tiempoTotalMs = new AtomicLong();
+
+    public DespachadorSubidas(InstanciaReporteService instanciaService,
+                              TrabajoSubidaRepository trabajoRepo,
+                              GestorArchivos archivos,
+                              @Value("${subidas.asincronas.directorio:./subidas-pendientes}") String directorio,
+                              @Value("${subidas.asincronas.trabajadores:2}") int trabajadores,
+                              @Value("${subidas.asincronas.cola.capacidad:50}") int capacidadCola,
+                              @Value("${subidas.asincronas.reintentos.maximo:3}") int maximoIntentos,
+                              @Value("${subidas.asincronas.retencion-dias:7}") long retencionDias) {
+        this.instanciaService = instanciaService;
+        this.trabajoRepo = trabajoRepo;
+        this.archivos = archivos;
+        this.directorio = Path.of(directorio).toAbsolutePath().normalize();
+        this.maximoIntentos = Math.max(1, maximoIntentos);
+        this.retencionDias = retencionDias;
+
+        AtomicInteger contador = new AtomicInteger();
+        // Cola acotada: sin cupo, el envío se rechaza (503) en lugar de acumular archivos en el spool
+        this.hilos = new ThreadPoolExecutor(trabajadores, trabajadores, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(capacidadCola),
+                r -> {
+                    Thread t = new Thread(r, "subida-asincrona-" + contador.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PostConstruct
+    public void iniciar() throws IOException {
+        Files.createDirectories(directorio);
+        int reiniciados = trabajoRepo.reiniciarEnProceso();
+        log.info("Despachador de subidas asíncronas iniciado: {} trabajadores, spool en {}{}",
+                hilos.getCorePoolSize(), directorio,
+                reiniciados > 0 ? ", " + reiniciados + " trabajo(s) interrumpido(s) vuelven a la cola" : "");
+    }
+
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        // Los trabajos sin terminar quedan PENDIENTE/EN_PROCESO en la base y se retoman al arrancar
+        hilos.shutdown();
+        if (!hilos.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("⚠️ Despachador de subidas detenido con {} envíos en cola", hilos.getQueue().size());
+            hilos.shutdownNow();
+        }
+    }
+
+    /**
+     * Acepta el envío: copia el archivo al spool, registra el trabajo y marca la instancia.
+     *
+     * @throws RejectedExecutionException si la cola de trabajos está llena
+     */
+    public Map<String, Object> aceptar(Integer instanciaId, MultipartFile archivo, String observaciones,
+                                       String linkEvidencia, Authentication authentication) throws IOException {
+        if (archivo == null || archivo.isEmpty()) {
+            throw new RuntimeException("Debe adjuntar un archivo.");
+        }
+        if (!archivos.estaDisponible()) {
+            throw new RuntimeException("El almacenamiento de archivos (" + archivos.nombreAlmacenamiento()
+                    + ") no está configurado. Use links manuales.");
+        }
+        instanciaService.validarEnvio(instanciaId, authentication);
+
+        // Sin cupo se rechaza antes de copiar el archivo
+        if (hilos.getQueue().remainingCapacity() == 0) {
+            rechazadosPorCarga.incrementAndGet();
+            throw new RejectedExecutionException("Hay demasiados envíos en proceso. Intente de nuevo en unos minutos.");
+        }
+
+        String id = UUID.randomUUID().toString();
+        // Reservado antes de guardarlo: la revisión periódica no lo toma antes de marcar la instancia
+        enCola.add(id);
+        TrabajoSubida trabajo;
+        try {
+            archivo.transferTo(spool(id));
+            trabajo = trabajoRepo.save(new TrabajoSubida(id, instanciaId, authentication.getName(),
+                    archivo.getOriginalFilename() != null ? archivo.getOriginalFilename() : "archivo",
+                    archivo.getContentType(), archivo.getSize(), observaciones, linkEvidencia,
+                    TrabajoSubida.PENDIENTE, 0, null, null, null));
+            instanciaService.marcarSubidaPendiente(instanciaId, authentication);
+        } catch (IOException | RuntimeException e) {
+            enCola.remove(id);
+            trabajoRepo.deleteById(id);
+            eliminarSpool(id);
+            throw e;
+        }
+
+        aceptados.incrementAndGet();
+        try {
+            hilos.execute(() -> procesar(id));
+        } catch (RejectedExecutionException e) {
+            // La cola se llenó entre la comprobación y ahora: lo toma la revisión periódica
+            enCola.remove(id);
+        }
+        log.info("Envío asíncrono {} aceptado para la instancia {} ({} bytes)", id, instanciaId, archivo.getSize());
+        return estado(trabajo);
+    }
+
+    /**
+     * Estado del trabajo; solo para el usuario que lo aceptó.
+     * Completado, incluye la instancia actualizada.
+     */
+    public Map<String, Object> consultar(String id, Authentication authentication) {
+        TrabajoSubida trabajo = trabajoRepo.findById(id)
+                .filter(t -> t.getCorreo().equals(authentication.getName()))
+                .orElseThrow(() -> new RuntimeException("Envío no encontrado: " + id));
+
+        Map<String, Object> estado = estado(trabajo);
+        if (TrabajoSubida.COMPLETADO.equals(trabajo.getEstado())) {
+            estado.put("instancia", instanciaService.obtenerDTOPorId(trabajo.getInstanciaId()));
+        }
+        return estado;
+    }
+
+    /**
+     * Entrega al pool los trabajos pendientes (aceptados sin cupo, reintentos, tras un reinicio)
+     * y borra los finalizados hace más de {@code subidas.asincronas.retencion-dias}.
+     */
+    @Scheduled(fixedDelayString = "${subidas.asincronas.revision-ms:30000}")
+    public void revisarPendientes() {
+        for (TrabajoSubida trabajo : trabajoRepo.findByEstadoOrderByFechaCreacion(TrabajoSubida.PENDIENTE)) {
+            if (hilos.getQueue().remainingCapacity() == 0) {
+                break;
+            }
+            String id = trabajo.getId();
+            if (enCola.add(id)) {
+                try {
+                    hilos.execute(() -> procesar(id));
+                } catch (RejectedExecutionException e) {
+                    enCola.remove(id);
+                    break;
+                }
+            }
+        }
+
+        int borrados = trabajoRepo.deleteFinalizadosAntesDe(
+                List.of(TrabajoSubida.COMPLETADO, TrabajoSubida.FALLIDO),
+                LocalDateTime.now().minusDays(retencionDias));
+        if (borrados > 0) {
+            log.info("Trabajos de envío finalizados eliminados: {}", borrados);
+        }
+    }
+
+    private void procesar(String id) {
+        try {
+            TrabajoSubida trabajo = trabajoRepo.findById(id).orElse(null);
+            if (trabajo == null || !TrabajoSubida.PENDIENTE.equals(trabajo.getEstado())) {
+                return;
+            }
+            trabajo.setEstado(TrabajoSubida.EN_PROCESO);
+            trabajo.setIntentos(trabajo.getIntentos() + 1);
+            ejecutar(trabajoRepo.save(trabajo));
+        } catch (Exception e) {
+            log.error("Error inesperado en el envío asíncrono {}: {}", id, e.getMessage(), e);
+        } finally {
+            enCola.remove(id);
+        }
+    }
+
+    private void ejecutar(TrabajoSubida trabajo) {
+        long inicio = System.currentTimeMillis();
+        Path archivo = spool(trabajo.getId());
+        try {
+            if (!Files.isRegularFile(archivo)) {
+                throw new RuntimeException("El archivo del envío ya no está en el spool");
+            }
+            // El trabajador envía en nombre del usuario que aceptó el envío
+            Authentication autor = new UsernamePasswordAuthenticationToken(trabajo.getCorreo(), null, List.of());
+            instanciaService.completarSubidaPendiente(trabajo.getInstanciaId(), archivo, trabajo.getNombreArchivo(),
+                    trabajo.getTipoContenido(), trabajo.getObservaciones(), trabajo.getLinkEvidencia(), autor);
+
+            trabajo.setEstado(TrabajoSubida.COMPLETADO);
+            trabajo.setMensaje(null);
+            trabajoRepo.save(trabajo);
+            eliminarSpool(trabajo.getId());
+
+            long duracion = System.currentTimeMillis() - inicio;
+            completados.incrementAndGet();
+            tiempoTotalMs.addAndGet(duracion);
+            log.info("✓ Envío asíncrono {} completado: instancia {} en {} ms",
+                    trabajo.getId(), trabajo.getInstanciaId(), duracion);
+        } catch (Exception e) {
+            trabajo.setMensaje(e.getMessage());
+            if (esTransitorio(e) && trabajo.getIntentos() < maximoIntentos) {
+                trabajo.setEstado(TrabajoSubida.PENDIENTE);
+                trabajoRepo.save(trabajo);
+                reintentados.incrementAndGet();
+                log.warn("⚠️ Falló el envío asíncrono {} (intento {}/{}): {}. Se reintentará",
+                        trabajo.getId(), trabajo.getIntentos(), maximoIntentos, e.getMessage());
+                return;
+            }
+
+            trabajo.setEstado(TrabajoSubida.FALLIDO);
+            trabajoRepo.save(trabajo);
+            eliminarSpool(trabajo.getId());
+            fallidos.incrementAndGet();
+            log.error("✗ Envío asíncrono {} de la instancia {} fallido tras {} intento(s): {}",
+                    trabajo.getId(), trabajo.getInstanciaId(), trabajo.getIntentos(), e.getMessage());
+            try {
+                instanciaService.liberarSubidaPendiente(trabajo.getInstanciaId());
+            } catch (RuntimeException ex) {
+                log.error("No se pudo liberar la instancia {}: {}", trabajo.getInstanciaId(), ex.getMessage());
+            }
+        }
+    }
+
+    // Fallos que pueden resolverse solos; los de validación (instancia ya enviada, etc.) no se reintentan
+    private static boolean esTransitorio(Exception e) {
+        return e instanceof IOException
+                || e instanceof ProveedorNoDisponibleException
+                || e instanceof OptimisticLockingFailureException
+                || e instanceof TransientDataAccessException;
+    }
+
+    private Path spool(String id) {
+        return directorio.resolve(id + ".spool");
+    }
+
+    private void eliminarSpool(String id) {
+        try {
+            Files.deleteIfExists(spool(id));
+        } catch (IOException e) {
+            log.warn("⚠️ No se pudo eliminar el archivo del spool {}: {}", id, e.getMessage());
+        }
+    }
+
+    private static Map<String, Object> estado(TrabajoSubida trabajo) {
+        Map<String, Object> estado = new LinkedHashMap<>();
+        estado.put("trabajoId", trabajo.getId());
+        estado.put("instanciaId", trabajo.getInstanciaId());
+        estado.put("estado", trabajo.getEstado());
+        estado.put("intentos", trabajo.getIntentos());
+        estado.put("mensaje", trabajo.getMensaje());
+        estado.put("nombreArchivo", trabajo.getNombreArchivo());
+        estado.put("tamano", trabajo.getTamano());
+        estado.put("fechaCreacion", trabajo.getFechaCreacion());
+        estado.put("fechaActualizacion", trabajo.getFechaActualizacion());
+        return estado;
+    }
+
+    public Map<String, Object> obtenerMetricas() {
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        metricas.put("aceptados", aceptados.get());
+        metricas.put("completados", completados.get());
+        metricas.put("reintentados", reintentados.get());
+        metricas.put("fallidos", fallidos.get());
+        metricas.put("rechazadosPorCarga", rechazadosPorCarga.get());
+        metricas.put("enCola", hilos.getQueue().size());
+        metricas.put("enCurso", hilos.getActiveCount());
+        long total = completados.get();
+        metricas.put("tiempoPromedioMs", total > 0 ? tiempoTotalMs.get() / total : 0);
+        return metricas;
+    }
+}
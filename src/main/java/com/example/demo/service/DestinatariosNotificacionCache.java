@@ -0,0 +1,134 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.NotificacionReporteRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché de correos adicionales (reporte_notificaciones) por reporte.
+ *
+ * Los destinatarios adicionales casi nunca cambian, así que se evitan las
+ * consultas por cada alerta. Se invalida ante cualquier escritura en
+ * reporte_notificaciones (ver {@link NotificacionReporteListener}) y, como
+ * red de seguridad, las entradas vencen tras {@code ttl-minutos}.
+ */
+@Component
+public class DestinatariosNotificacionCache {
+
+    private static final Logger log = LoggerFactory.getLogger(DestinatariosNotificacionCache.class);
+
+    private final NotificacionReporteRepository notificacionRepo;
+    private final Map<String, Entrada> cache = new ConcurrentHashMap<>();
+
+    @Value("${notificaciones.destinatarios.cache.ttl-minutos:30}")
+    private long ttlMinutos;
+
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+    private final AtomicLong invalidaciones = new AtomicLong();
+
+    public DestinatariosNotificacionCache(NotificacionReporteRepository notificacionRepo) {
+        this.notificacionRepo = notificacionRepo;
+    }
+
+    /**
+     * Correos adicionales configurados para un reporte
+     */
+    public List<String> obtenerCorreos(String reporteId) {
+        Entrada entrada = cache.get(reporteId);
+        if (entrada != null && !entrada.vencida(ttlMinutos)) {
+            aciertos.incrementAndGet();
+            return entrada.correos();
+        }
+
+        fallos.incrementAndGet();
+        List<String> correos = List.copyOf(notificacionRepo.findCorreosByReporteId(reporteId));
+        cache.put(reporteId, new Entrada(correos, System.currentTimeMillis()));
+        return correos;
+    }
+
+    /**
+     * Carga con UNA consulta IN los destinatarios de todos los reportes indicados
+     * que no estén ya en caché.
+     */
+    public void precargar(Collection<String> reporteIds) {
+        Set<String> faltantes = new HashSet<>();
+        for (String id : reporteIds) {
+            Entrada entrada = cache.get(id);
+            if (id != null && (entrada == null || entrada.vencida(ttlMinutos))) {
+                faltantes.add(id);
+            }
+        }
+        if (faltantes.isEmpty()) {
+            return;
+        }
+
+        Map<String, List<String>> porReporte = new HashMap<>();
+        for (Object[] fila : notificacionRepo.findReporteIdYCorreoByReporteIdIn(faltantes)) {
+            porReporte.computeIfAbsent((String) fila[0], k -> new ArrayList<>()).add((String) fila[1]);
+        }
+
+        long ahora = System.currentTimeMillis();
+        for (String id : faltantes) {
+            // Los reportes sin destinatarios también se cachean (lista vacía)
+            cache.put(id, new Entrada(List.copyOf(porReporte.getOrDefault(id, List.of())), ahora));
+        }
+        log.debug("Destinatarios precargados para {} reportes", faltantes.size());
+    }
+
+    /**
+     * Invalida la entrada de un reporte. Si hay una transacción activa se
+     * invalida también al confirmar, para no re-cachear datos anteriores al commit.
+     */
+    public void invalidar(String reporteId) {
+        if (reporteId == null) {
+            cache.clear();
+        } else {
+            cache.remove(reporteId);
+        }
+        invalidaciones.incrementAndGet();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (reporteId == null) {
+                        cache.clear();
+                    } else {
+                        cache.remove(reporteId);
+                    }
+                }
+            });
+        }
+    }
+
+    public Map<String, Object> obtenerMetricas() {
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        metricas.put("entradas", cache.size());
+        metricas.put("aciertos", aciertos.get());
+        metricas.put("fallos", fallos.get());
+        metricas.put("invalidaciones", invalidaciones.get());
+        return metricas;
+    }
+
+    private record Entrada(List<String> correos, long cargadoEn) {
+        boolean vencida(long ttlMinutos) {
+            return System.currentTimeMillis() - cargadoEn > ttlMinutos * 60_000;
+        }
+    }
+}
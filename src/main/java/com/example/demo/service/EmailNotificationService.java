@@ -1,16 +1,22 @@
 package com.example.demo.service;
 
 import com.example.demo.entity.Usuario;
+import com.example.demo.resiliencia.ProteccionProveedor;
+import com.example.demo.resiliencia.ProveedorNoDisponibleException;
+import com.example.demo.resiliencia.RegistroProveedores;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Servicio de Email usando Resend HTTP API
@@ -35,7 +41,27 @@ public class EmailNotificationService {
     @Value("${notificaciones.email.habilitado:false}")
     private boolean emailEnabled;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    // Configurable para apuntar a un servidor simulado en pruebas de carga
+    @Value("${resend.api.url:https://api.resend.com}")
+    private String resendApiUrl;
+
+    private final RegistroLatencias latencias = new RegistroLatencias(10_000);
+    private final AtomicLong enviados = new AtomicLong();
+    private final AtomicLong fallidos = new AtomicLong();
+
+    private final RestTemplate restTemplate;
+    private final ProteccionProveedor proteccionResend;
+
+    public EmailNotificationService(RegistroProveedores registroProveedores,
+                                    @Value("${resend.timeout.conexion-ms:5000}") int timeoutConexionMs,
+                                    @Value("${resend.timeout.lectura-ms:10000}") int timeoutLecturaMs) {
+        // Sin timeouts, un Resend lento bloquearía los hilos indefinidamente
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(timeoutConexionMs);
+        requestFactory.setReadTimeout(timeoutLecturaMs);
+        this.restTemplate = new RestTemplate(requestFactory);
+        this.proteccionResend = registroProveedores.obtener(RegistroProveedores.RESEND);
+    }
 
     /**
      * Enviar correo de alerta usando Resend HTTP API
@@ -65,48 +91,93 @@ public class EmailNotificationService {
         }
 
         try {
-            String nombreUsuario = usuario.getNombreCompleto() != null ? usuario.getNombreCompleto() : "Usuario";
-            String asuntoEmail = asunto != null ? asunto : "Notificación";
-            String mensajeEmail = mensaje != null ? mensaje : "";
-            String tipo = tipoAlerta != null ? tipoAlerta : "NOTIFICACIÓN";
-            String color = colorAlerta != null ? colorAlerta : "azul";
-            String destinatario = usuario.getCorreo();
-
-            // Construir el body para Resend API
-            Map<String, Object> emailData = new HashMap<>();
-            emailData.put("from", fromName + " <" + fromEmail + ">");
-            emailData.put("to", new String[]{destinatario});
-            emailData.put("subject", "[" + tipo + "] " + asuntoEmail);
-            emailData.put("html", construirHtmlEmail(nombreUsuario, mensajeEmail, tipo, color));
-
-            // Headers
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(resendApiKey);
-
-            HttpEntity<Map<String, Object>> request = new HttpEntity<>(emailData, headers);
-
-            log.info("📤 Enviando email vía Resend API a {}", destinatario);
-            
-            // Enviar a Resend API
-            ResponseEntity<String> response = restTemplate.postForEntity(
-                "https://api.resend.com/emails",
-                request,
-                String.class
-            );
-
-            if (response.getStatusCode() == HttpStatus.OK || response.getStatusCode() == HttpStatus.CREATED) {
-                log.info("✅ Email enviado exitosamente a {} - Response: {}", destinatario, response.getBody());
-            } else {
-                log.error("❌ Error en respuesta de Resend: {} - {}", response.getStatusCode(), response.getBody());
-            }
-
+            enviarAhora(usuario.getCorreo(), usuario.getNombreCompleto(), asunto, mensaje, tipoAlerta, colorAlerta);
+        } catch (ProveedorNoDisponibleException e) {
+            log.warn("⚠️ Email a {} omitido: {}", usuario.getCorreo(), e.getMessage());
         } catch (Exception e) {
             log.error("❌ Error enviando email vía Resend API: {}", e.getMessage());
             log.error("❌ Detalles: ", e);
         }
     }
 
+    /**
+     * Indica si Resend está habilitado y tiene API key
+     */
+    public boolean estaConfigurado() {
+        return emailEnabled && resendApiKey != null && !resendApiKey.isEmpty();
+    }
+
+    /**
+     * Envía el correo de forma síncrona en el hilo actual.
+     *
+     * @throws Exception si Resend rechaza el envío o no responde
+     */
+    public void enviarAhora(String destinatario, String nombreDestinatario, String asunto, String mensaje,
+                            String tipoAlerta, String colorAlerta) throws Exception {
+        String nombreUsuario = nombreDestinatario != null ? nombreDestinatario : "Usuario";
+        String asuntoEmail = asunto != null ? asunto : "Notificación";
+        String mensajeEmail = mensaje != null ? mensaje : "";
+        String tipo = tipoAlerta != null ? tipoAlerta : "NOTIFICACIÓN";
+        String color = colorAlerta != null ? colorAlerta : "azul";
+
+        // Construir el body para Resend API
+        Map<String, Object> emailData = new HashMap<>();
+        emailData.put("from", fromName + " <" + fromEmail + ">");
+        emailData.put("to", new String[]{destinatario});
+        emailData.put("subject", "[" + tipo + "] " + asuntoEmail);
+        emailData.put("html", construirHtmlEmail(nombreUsuario, mensajeEmail, tipo, color));
+
+        // Headers
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setBearerAuth(resendApiKey);
+
+        HttpEntity<Map<String, Object>> request = new HttpEntity<>(emailData, headers);
+
+        log.info("📤 Enviando email vía Resend API a {}", destinatario);
+
+        // Enviar a Resend API (protegido por circuit breaker y bulkhead)
+        long inicio = System.nanoTime();
+        ResponseEntity<String> response;
+        try {
+            response = proteccionResend.ejecutar(() -> restTemplate.postForEntity(
+                resendApiUrl + "/emails",
+                request,
+                String.class
+            ));
+        } catch (Exception e) {
+            fallidos.incrementAndGet();
+            throw e;
+        } finally {
+            latencias.registrar((System.nanoTime() - inicio) / 1_000_000);
+        }
+
+        if (response.getStatusCode() == HttpStatus.OK || response.getStatusCode() == HttpStatus.CREATED) {
+            enviados.incrementAndGet();
+            log.info("✅ Email enviado exitosamente a {} - Response: {}", destinatario, response.getBody());
+        } else {
+            fallidos.incrementAndGet();
+            log.error("❌ Error en respuesta de Resend: {} - {}", response.getStatusCode(), response.getBody());
+            throw new RuntimeException("Resend respondió " + response.getStatusCode());
+        }
+    }
+
+    /**
+     * Envíos a Resend y latencia de cada llamada (p50/p99)
+     */
+    public Map<String, Object> obtenerMetricas() {
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        metricas.put("configurado", estaConfigurado());
+        metricas.put("enviados", enviados.get());
+        metricas.put("fallidos", fallidos.get());
+        metricas.put("latencia", latencias.obtenerMetricas());
+        return metricas;
+    }
+
+    public RegistroLatencias getLatencias() {
+        return latencias;
+    }
+
     /**
      * Construir HTML del email
      */
@@ -0,0 +1,70 @@
+package com.example.demo.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Contadores de Hibernate (hibernate.generate_statistics=true).
+ *
+ * "cargasPerezosas" cuenta las asociaciones LAZY cargadas fuera de un entity graph:
+ * si crece con cada petición, a ese caso de uso le falta su plan de carga.
+ * "cacheSegundoNivel" muestra aciertos y fallos de los catálogos cacheados (ehcache.xml).
+ */
+@Component
+public class EstadisticasHibernate {
+
+    private final Statistics estadisticas;
+
+    public EstadisticasHibernate(EntityManagerFactory entityManagerFactory) {
+        this.estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    public Map<String, Object> obtenerMetricas() {
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        metricas.put("habilitadas", estadisticas.isStatisticsEnabled());
+        metricas.put("sentenciasPreparadas", estadisticas.getPrepareStatementCount());
+        metricas.put("consultas", estadisticas.getQueryExecutionCount());
+        metricas.put("consultaMasLentaMs", estadisticas.getQueryExecutionMaxTime());
+        metricas.put("consultaMasLenta", estadisticas.getQueryExecutionMaxTimeQueryString());
+        metricas.put("entidadesCargadas", estadisticas.getEntityLoadCount());
+        metricas.put("cargasPerezosas", estadisticas.getEntityFetchCount());
+        metricas.put("coleccionesCargadas", estadisticas.getCollectionFetchCount());
+        metricas.put("transacciones", estadisticas.getTransactionCount());
+        metricas.put("cacheSegundoNivel", metricasCache());
+        return metricas;
+    }
+
+    private Map<String, Object> metricasCache() {
+        Map<String, Object> cache = new LinkedHashMap<>();
+        cache.put("aciertos", estadisticas.getSecondLevelCacheHitCount());
+        cache.put("fallos", estadisticas.getSecondLevelCacheMissCount());
+        cache.put("escrituras", estadisticas.getSecondLevelCachePutCount());
+
+        Map<String, Object> consultas = new LinkedHashMap<>();
+        consultas.put("aciertos", estadisticas.getQueryCacheHitCount());
+        consultas.put("fallos", estadisticas.getQueryCacheMissCount());
+        consultas.put("escrituras", estadisticas.getQueryCachePutCount());
+        cache.put("consultas", consultas);
+
+        Map<String, Object> regiones = new LinkedHashMap<>();
+        for (String region : estadisticas.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics r = estadisticas.getCacheRegionStatistics(region);
+            if (r == null) {
+                continue;
+            }
+            Map<String, Object> datos = new LinkedHashMap<>();
+            datos.put("aciertos", r.getHitCount());
+            datos.put("fallos", r.getMissCount());
+            datos.put("escrituras", r.getPutCount());
+            regiones.put(region, datos);
+        }
+        cache.put("regiones", regiones);
+        return cache;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.VersionDatos;
 import com.example.demo.entity.Frecuencia;
 
 import java.util.List;
@@ -7,4 +8,5 @@ import java.util.List;
 public interface FrecuenciaService {
     List<Frecuencia> listar();
     Frecuencia obtenerPorId(Integer id);
+    VersionDatos obtenerVersion();
 }
@@ -1,32 +1,52 @@
 package com.example.demo.service;
 
-import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
-import com.google.api.client.json.gson.GsonFactory;
-import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
+import com.example.demo.resiliencia.ProteccionProveedor;
+import com.example.demo.resiliencia.ProveedorNoDisponibleException;
+import com.example.demo.resiliencia.RegistroProveedores;
+import com.google.api.client.googleapis.batch.BatchRequest;
+import com.google.api.client.googleapis.batch.json.JsonBatchCallback;
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.googleapis.media.MediaHttpUploader;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpRequestInitializer;
 import com.google.api.client.http.InputStreamContent;
-import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.http.apache.v2.ApacheHttpTransport;
+import com.google.api.client.json.gson.GsonFactory;
 import com.google.api.services.drive.Drive;
-import com.google.api.services.drive.DriveScopes;
+import com.google.auth.http.HttpCredentialsAdapter;
+import com.google.auth.oauth2.UserCredentials;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Google Drive Service - MODO OAUTH CON REFRESH TOKEN
  * 
  * Este servicio usa un refresh token generado LOCALMENTE
  * y lo reutiliza en producción para evitar el flujo OAuth interactivo.
+ *
+ * El cliente se inicializa en segundo plano (no retrasa el arranque) sobre un transporte
+ * HTTP con pool de conexiones; el access token se renueva solo antes de expirar.
  */
 @Service
 public class GoogleDriveService {
 
     private static final String APPLICATION_NAME = "Seguimiento Reportes Llanogas";
 
+    // Drive admite hasta 100 llamadas por petición batch
+    private static final int MAXIMO_POR_LOTE = 100;
+
     // Credenciales desde variables de entorno
     @Value("${google.drive.client.id:#{null}}")
     private String clientId;
@@ -43,7 +63,38 @@ public class GoogleDriveService {
     @Value("${google.drive.enabled:false}")
     private boolean enabled;
 
-    private Drive driveService;
+    // Tamaño de cada fragmento de la subida reanudable (múltiplo de 256 KB)
+    @Value("${google.drive.subida.fragmento-kb:4096}")
+    private int fragmentoKb;
+
+    // Cuánto espera una operación a que termine la inicialización en segundo plano
+    @Value("${google.drive.inicio.espera-ms:30000}")
+    private long esperaInicioMs;
+
+    // Tras una inicialización fallida, tiempo mínimo antes de volver a intentarla
+    @Value("${google.drive.inicio.reintento-ms:60000}")
+    private long reintentoInicioMs;
+
+    @Value("${google.drive.http.conexiones-maximas:10}")
+    private int conexionesMaximas;
+
+    @Value("${google.drive.timeout.conexion-ms:10000}")
+    private int timeoutConexionMs;
+
+    @Value("${google.drive.timeout.lectura-ms:60000}")
+    private int timeoutLecturaMs;
+
+    private volatile Drive driveService;
+    private volatile ApacheHttpTransport transporte;
+    private volatile CompletableFuture<Drive> inicializacion;
+    private volatile long ultimoFalloInicio;
+    private boolean credencialesConfiguradas;
+
+    private final ProteccionProveedor proteccion;
+
+    public GoogleDriveService(RegistroProveedores registroProveedores) {
+        this.proteccion = registroProveedores.obtener(RegistroProveedores.GOOGLE_DRIVE);
+    }
 
     @PostConstruct
     public void init() {
@@ -52,83 +103,136 @@ public class GoogleDriveService {
             return;
         }
 
-        try {
-            System.out.println("🔵 Inicializando Google Drive con OAuth (Refresh Token)...");
-            
-            if (clientId == null || clientSecret == null || refreshToken == null) {
-                System.err.println("⚠️ Faltan credenciales de Google Drive. Configurar:");
-                System.err.println("   - GOOGLE_DRIVE_CLIENT_ID");
-                System.err.println("   - GOOGLE_DRIVE_CLIENT_SECRET");
-                System.err.println("   - GOOGLE_DRIVE_REFRESH_TOKEN");
-                return;
-            }
+        if (esVacio(clientId) || esVacio(clientSecret) || esVacio(refreshToken)) {
+            System.err.println("⚠️ Faltan credenciales de Google Drive. Configurar:");
+            System.err.println("   - GOOGLE_DRIVE_CLIENT_ID");
+            System.err.println("   - GOOGLE_DRIVE_CLIENT_SECRET");
+            System.err.println("   - GOOGLE_DRIVE_REFRESH_TOKEN");
+            return;
+        }
 
-            driveService = buildDriveService();
-            System.out.println("✓ Google Drive inicializado correctamente");
-            
-            // Test de conexión
-            testConnection();
+        credencialesConfiguradas = true;
+        System.out.println("🔵 Inicializando Google Drive con OAuth (Refresh Token) en segundo plano...");
+        iniciarEnSegundoPlano();
+    }
 
-        } catch (Exception e) {
-            System.err.println("⚠️ Error inicializando Google Drive: " + e.getMessage());
-            driveService = null;
+    @PreDestroy
+    public void detener() throws IOException {
+        if (transporte != null) {
+            transporte.shutdown();
         }
     }
 
     /**
-     * Construye el servicio de Drive usando refresh token
+     * Inicialización en curso o terminada. Si la anterior falló y pasó el tiempo de
+     * reintento, lanza una nueva.
      */
-    private Drive buildDriveService() throws Exception {
-        NetHttpTransport httpTransport = GoogleNetHttpTransport.newTrustedTransport();
-
-        // Crear credencial con refresh token
-        GoogleCredential credential = new GoogleCredential.Builder()
-                .setTransport(httpTransport)
-                .setJsonFactory(GsonFactory.getDefaultInstance())
-                .setClientSecrets(clientId, clientSecret)
-                .build()
-                .setRefreshToken(refreshToken);
-
-        // Refrescar el access token
-        credential.refreshToken();
+    private synchronized CompletableFuture<Drive> iniciarEnSegundoPlano() {
+        CompletableFuture<Drive> actual = inicializacion;
+        if (actual != null && !(actual.isCompletedExceptionally()
+                && System.currentTimeMillis() - ultimoFalloInicio >= reintentoInicioMs)) {
+            return actual;
+        }
 
-        return new Drive.Builder(
-                httpTransport,
-                GsonFactory.getDefaultInstance(),
-                credential
-        ).setApplicationName(APPLICATION_NAME).build();
+        CompletableFuture<Drive> nueva = new CompletableFuture<>();
+        inicializacion = nueva;
+        Thread hilo = new Thread(() -> {
+            try {
+                Drive cliente = buildDriveService();
+                driveService = cliente;
+                nueva.complete(cliente);
+                System.out.println("✓ Google Drive inicializado correctamente");
+            } catch (Exception e) {
+                ultimoFalloInicio = System.currentTimeMillis();
+                System.err.println("⚠️ Error inicializando Google Drive: " + e.getMessage());
+                nueva.completeExceptionally(e);
+            }
+        }, "google-drive-inicio");
+        hilo.setDaemon(true);
+        hilo.start();
+        return nueva;
     }
 
     /**
-     * Test de conexión (opcional)
+     * Construye el servicio de Drive usando refresh token
      */
-    private void testConnection() {
+    private Drive buildDriveService() throws IOException {
+        // Pool de conexiones: los fragmentos de una subida y las peticiones siguientes reutilizan la conexión TLS
+        ApacheHttpTransport httpTransport = new ApacheHttpTransport(ApacheHttpTransport.newDefaultHttpClientBuilder()
+                .setMaxConnTotal(conexionesMaximas)
+                .setMaxConnPerRoute(conexionesMaximas)
+                .build());
+
         try {
-            driveService.files().list()
-                    .setPageSize(1)
-                    .setFields("files(id, name)")
-                    .execute();
-            System.out.println("✓ Conexión a Google Drive verificada");
-        } catch (Exception e) {
-            System.err.println("⚠️ No se pudo verificar la conexión a Drive: " + e.getMessage());
+            // El adaptador renueva el access token antes de que expire (y ante un 401)
+            UserCredentials credenciales = UserCredentials.newBuilder()
+                    .setClientId(clientId)
+                    .setClientSecret(clientSecret)
+                    .setRefreshToken(refreshToken)
+                    .setHttpTransportFactory(() -> httpTransport)
+                    .build();
+
+            // Primer access token: valida las credenciales
+            credenciales.refresh();
+
+            // Timeouts explícitos en cada petición (también en los fragmentos y los lotes):
+            // un Drive que no responde no retiene indefinidamente el cupo del bulkhead
+            HttpCredentialsAdapter autenticacion = new HttpCredentialsAdapter(credenciales);
+            HttpRequestInitializer inicializador = peticion -> {
+                autenticacion.initialize(peticion);
+                peticion.setConnectTimeout(timeoutConexionMs);
+                peticion.setReadTimeout(timeoutLecturaMs);
+            };
+
+            Drive cliente = new Drive.Builder(
+                    httpTransport,
+                    GsonFactory.getDefaultInstance(),
+                    inicializador
+            ).setApplicationName(APPLICATION_NAME).build();
+            transporte = httpTransport;
+            return cliente;
+        } catch (IOException | RuntimeException e) {
+            httpTransport.shutdown();
+            throw e;
         }
     }
 
     /**
-     * Subir archivo a Google Drive
+     * Cliente listo para usar; espera (acotado) si la inicialización sigue en curso
      */
-    public Map<String, String> uploadFile(MultipartFile multipartFile, String reporteId, String periodo)
-            throws IOException {
-
+    private Drive cliente() throws IOException {
+        Drive cliente = driveService;
+        if (cliente != null) {
+            return cliente;
+        }
         if (!isDriveEnabled()) {
             throw new IOException("Google Drive no está configurado. Use links manuales.");
         }
+        try {
+            return iniciarEnSegundoPlano().get(esperaInicioMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IOException("Google Drive aún se está inicializando. Intente de nuevo en unos segundos.");
+        } catch (ExecutionException e) {
+            throw new IOException("No se pudo inicializar Google Drive: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrumpido esperando la inicialización de Google Drive");
+        }
+    }
 
+    /**
+     * Subir archivo a Google Drive.
+     *
+     * Usa la subida reanudable por fragmentos leyendo del origen (archivo temporal del
+     * multipart o de la sesión de subida): en memoria solo vive el fragmento en curso.
+     */
+    public Map<String, String> uploadFile(InputStreamSource origen, String fileName, String tipoContenido,
+                                          long tamano) throws IOException {
+
+        Drive drive = cliente();
         Map<String, String> result = new HashMap<>();
 
         try {
-            String fileName = reporteId + "_" + periodo + "_" + multipartFile.getOriginalFilename();
-
             com.google.api.services.drive.model.File fileMeta = 
                     new com.google.api.services.drive.model.File();
             fileMeta.setName(fileName);
@@ -138,16 +242,20 @@ public class GoogleDriveService {
                 fileMeta.setParents(Collections.singletonList(folderId));
             }
 
-            InputStreamContent content = new InputStreamContent(
-                    multipartFile.getContentType(),
-                    new ByteArrayInputStream(multipartFile.getBytes())
-            );
+            com.google.api.services.drive.model.File uploadedFile = proteccion.ejecutar(() -> {
+                try (InputStream entrada = origen.getInputStream()) {
+                    InputStreamContent content = new InputStreamContent(tipoContenido, entrada);
+                    content.setLength(tamano);
 
-            com.google.api.services.drive.model.File uploadedFile =
-                    driveService.files()
+                    Drive.Files.Create creacion = drive.files()
                             .create(fileMeta, content)
-                            .setFields("id,name,webViewLink,webContentLink")
-                            .execute();
+                            .setFields("id,name,webViewLink,webContentLink");
+                    MediaHttpUploader subida = creacion.getMediaHttpUploader();
+                    subida.setDirectUploadEnabled(false);
+                    subida.setChunkSize(tamanoFragmento());
+                    return creacion.execute();
+                }
+            });
 
             result.put("fileId", uploadedFile.getId());
             result.put("fileName", uploadedFile.getName());
@@ -158,12 +266,50 @@ public class GoogleDriveService {
             System.out.println("✓ Archivo subido a Drive: " + fileName + " (ID: " + uploadedFile.getId() + ")");
             return result;
 
+        } catch (ProveedorNoDisponibleException e) {
+            // Fallo rápido: no retener el hilo de la petición mientras Drive está caído
+            System.err.println("⚠️ " + e.getMessage());
+            throw new IOException("Google Drive no está disponible temporalmente. Intente más tarde o use un link manual.", e);
         } catch (Exception e) {
             System.err.println("✗ Error al subir archivo a Drive: " + e.getMessage());
             throw new IOException("Error al subir archivo a Google Drive: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Indica si el archivo sigue en Drive (no eliminado ni en la papelera)
+     */
+    public boolean fileExists(String fileId) throws IOException {
+        Drive drive = cliente();
+        try {
+            com.google.api.services.drive.model.File archivo = proteccion.ejecutar(() -> {
+                try {
+                    return drive.files()
+                            .get(fileId)
+                            .setFields("id,trashed")
+                            .execute();
+                } catch (GoogleJsonResponseException e) {
+                    // 404 es una respuesta válida (archivo borrado), no un fallo del proveedor
+                    if (e.getStatusCode() == 404) {
+                        return null;
+                    }
+                    throw e;
+                }
+            });
+            return archivo != null && !Boolean.TRUE.equals(archivo.getTrashed());
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Error consultando archivo en Google Drive: " + e.getMessage(), e);
+        }
+    }
+
+    // Drive exige fragmentos múltiplos de 256 KB
+    private int tamanoFragmento() {
+        int fragmentos = Math.max(1, fragmentoKb * 1024 / MediaHttpUploader.MINIMUM_CHUNK_SIZE);
+        return fragmentos * MediaHttpUploader.MINIMUM_CHUNK_SIZE;
+    }
+
     /**
      * Eliminar archivo de Google Drive
      */
@@ -174,7 +320,8 @@ public class GoogleDriveService {
         }
 
         try {
-            driveService.files().delete(fileId).execute();
+            Drive drive = cliente();
+            proteccion.ejecutar(() -> drive.files().delete(fileId).execute());
             System.out.println("✓ Archivo eliminado de Drive: " + fileId);
         } catch (Exception e) {
             System.err.println("⚠️ Error eliminando archivo de Drive: " + e.getMessage());
@@ -182,9 +329,118 @@ public class GoogleDriveService {
     }
 
     /**
-     * Verifica si Drive está habilitado y configurado
+     * Elimina varios archivos agrupando las llamadas en peticiones batch (hasta 100 por petición).
+     *
+     * @return los archivos eliminados o que ya no existían; los que fallaron no se incluyen
+     */
+    public Set<String> deleteFiles(Collection<String> fileIds) throws IOException {
+        Drive drive = cliente();
+        Set<String> eliminados = new HashSet<>();
+        for (List<String> lote : lotes(fileIds)) {
+            ejecutarLote(lote, batch -> {
+                for (String fileId : lote) {
+                    drive.files().delete(fileId).queue(batch, new JsonBatchCallback<Void>() {
+                        @Override
+                        public void onSuccess(Void sinContenido, HttpHeaders headers) {
+                            eliminados.add(fileId);
+                        }
+
+                        @Override
+                        public void onFailure(GoogleJsonError error, HttpHeaders headers) {
+                            if (error.getCode() == 404) {
+                                eliminados.add(fileId);
+                            } else {
+                                System.err.println("⚠️ Error eliminando archivo de Drive " + fileId + ": " + error.getMessage());
+                            }
+                        }
+                    });
+                }
+            });
+        }
+        System.out.println("✓ Archivos eliminados de Drive: " + eliminados.size() + " de " + fileIds.size());
+        return eliminados;
+    }
+
+    /**
+     * Metadatos de varios archivos en peticiones batch (hasta 100 por petición).
+     *
+     * @param campos campos a devolver (p. ej. "id,name,trashed")
+     * @return por id, sus metadatos o null si no existe; los que fallaron por otro motivo no se incluyen
+     */
+    public Map<String, com.google.api.services.drive.model.File> getFilesMetadata(Collection<String> fileIds,
+                                                                                  String campos) throws IOException {
+        Drive drive = cliente();
+        Map<String, com.google.api.services.drive.model.File> metadatos = new HashMap<>();
+        for (List<String> lote : lotes(fileIds)) {
+            ejecutarLote(lote, batch -> {
+                for (String fileId : lote) {
+                    drive.files().get(fileId).setFields(campos)
+                            .queue(batch, new JsonBatchCallback<com.google.api.services.drive.model.File>() {
+                                @Override
+                                public void onSuccess(com.google.api.services.drive.model.File archivo, HttpHeaders headers) {
+                                    metadatos.put(fileId, archivo);
+                                }
+
+                                @Override
+                                public void onFailure(GoogleJsonError error, HttpHeaders headers) {
+                                    if (error.getCode() == 404) {
+                                        metadatos.put(fileId, null);
+                                    } else {
+                                        System.err.println("⚠️ Error consultando archivo de Drive " + fileId + ": " + error.getMessage());
+                                    }
+                                }
+                            });
+                }
+            });
+        }
+        return metadatos;
+    }
+
+    @FunctionalInterface
+    private interface EncoladorLote {
+        void encolar(BatchRequest batch) throws IOException;
+    }
+
+    // Una petición batch cuenta como una llamada para el circuito y el bulkhead de Drive
+    private void ejecutarLote(List<String> lote, EncoladorLote encolador) throws IOException {
+        try {
+            proteccion.ejecutar(() -> {
+                BatchRequest batch = cliente().batch();
+                encolador.encolar(batch);
+                batch.execute();
+                return null;
+            });
+        } catch (ProveedorNoDisponibleException e) {
+            throw new IOException("Google Drive no está disponible temporalmente.", e);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Error en la petición batch a Google Drive (" + lote.size() + " archivos): "
+                    + e.getMessage(), e);
+        }
+    }
+
+    private static List<List<String>> lotes(Collection<String> ids) {
+        List<String> todos = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<List<String>> lotes = new ArrayList<>();
+        for (int i = 0; i < todos.size(); i += MAXIMO_POR_LOTE) {
+            lotes.add(todos.subList(i, Math.min(todos.size(), i + MAXIMO_POR_LOTE)));
+        }
+        return lotes;
+    }
+
+    /**
+     * Verifica si Drive está habilitado y configurado. Mientras el cliente se inicializa
+     * cuenta como disponible; tras una inicialización fallida se reintenta en segundo plano.
      */
     public boolean isDriveEnabled() {
-        return enabled && driveService != null;
+        if (!enabled || !credencialesConfiguradas) {
+            return false;
+        }
+        return driveService != null || !iniciarEnSegundoPlano().isCompletedExceptionally();
+    }
+
+    private static boolean esVacio(String valor) {
+        return valor == null || valor.isBlank();
     }
 }
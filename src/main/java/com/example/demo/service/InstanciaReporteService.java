@@ -1,16 +1,30 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.EnvioInstanciaDTO;
 import com.example.demo.dto.InstanciaReporteDTO;
+import com.example.demo.dto.PaginaDTO;
+import com.example.demo.dto.VersionDatos;
 import com.example.demo.entity.InstanciaReporte;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface InstanciaReporteService {
     List<InstanciaReporte> listar();
     List<InstanciaReporteDTO> listarDTO();
+
+    /**
+     * Listado paginado por cursor, ordenado por (fecha de vencimiento, id).
+     *
+     * @param cursor token de la página anterior; null para la primera página
+     * @param limite tamaño de página; null para el tamaño por defecto
+     */
+    PaginaDTO<InstanciaReporteDTO> listarDTOPaginado(String cursor, Integer limite);
     
     InstanciaReporte obtenerPorId(Integer id);
     InstanciaReporteDTO obtenerDTOPorId(Integer id);
@@ -21,18 +35,73 @@ public interface InstanciaReporteService {
 
     List<InstanciaReporte> listarPorReporte(String reporteId);
     List<InstanciaReporteDTO> listarDTOPorReporte(String reporteId);
+    PaginaDTO<InstanciaReporteDTO> listarDTOPorReportePaginado(String reporteId, String cursor, Integer limite);
     
     // Nuevos métodos para envío de reportes
     InstanciaReporteDTO enviarReporte(Integer id, MultipartFile archivo, String observaciones, 
                                        String linkEvidencia, Authentication authentication) throws IOException;
+
+    /**
+     * Envío con un archivo ya recibido en disco (sesión de subida reanudable)
+     */
+    InstanciaReporteDTO enviarReporte(Integer id, Path archivo, String nombreArchivo, String tipoContenido,
+                                       String observaciones, String linkEvidencia,
+                                       Authentication authentication) throws IOException;
+
+    /**
+     * Comprueba que la instancia admite un envío con archivo del usuario autenticado
+     */
+    void validarEnvio(Integer id, Authentication authentication);
+
+    /**
+     * Envío asíncrono aceptado: marca la instancia con una subida pendiente.
+     * Mientras tenga la marca no admite otro envío.
+     */
+    void marcarSubidaPendiente(Integer id, Authentication authentication);
+
+    /**
+     * Completa un envío asíncrono con el archivo ya recibido en disco y quita la marca
+     */
+    InstanciaReporteDTO completarSubidaPendiente(Integer id, Path archivo, String nombreArchivo, String tipoContenido,
+                                                 String observaciones, String linkEvidencia,
+                                                 Authentication authentication) throws IOException;
+
+    /**
+     * Quita la marca de subida pendiente cuando el envío asíncrono se abandona
+     */
+    void liberarSubidaPendiente(Integer id);
     
     InstanciaReporteDTO enviarReporteConLink(Integer id, String linkReporte, String observaciones, 
                                               String linkEvidencia, Authentication authentication);
+
+    /**
+     * Envío por lotes (solo administrador): aplica enviarReporteConLink a todas las instancias
+     * en una única transacción. Si alguna no es válida no se envía ninguna.
+     */
+    List<InstanciaReporteDTO> enviarLoteConLink(List<EnvioInstanciaDTO> envios, Authentication authentication);
     
     // Métodos de consulta
     List<InstanciaReporteDTO> listarPendientes();
     List<InstanciaReporteDTO> listarVencidos();
     List<InstanciaReporteDTO> listarHistorico(String reporteId, Integer entidadId, Integer year, Integer mes, Authentication authentication);
+    PaginaDTO<InstanciaReporteDTO> listarHistoricoPaginado(String reporteId, Integer entidadId, Integer year, Integer mes,
+                                                           String cursor, Integer limite, Authentication authentication);
+
+    /**
+     * Versiones del listado general y del de pendientes para GET condicionales
+     * (ETag / Last-Modified), calculadas sin cargar las instancias.
+     */
+    VersionDatos obtenerVersion();
+    VersionDatos obtenerVersionPendientes();
+
+    /**
+     * Exportación completa para auditoría: recorre las instancias con vencimiento entre
+     * {@code desde} y {@code hasta} (null = sin límite) con un cursor de base de datos y entrega
+     * cada DTO a {@code destino} sin acumularlos en memoria.
+     *
+     * @return número de instancias exportadas
+     */
+    long exportar(LocalDate desde, LocalDate hasta, Consumer<InstanciaReporteDTO> destino);
 
     /**
      * Permite subir una CORRECCIÓN a un reporte ya enviado.
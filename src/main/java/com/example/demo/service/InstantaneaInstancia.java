@@ -0,0 +1,29 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.InstanciaReporte;
+
+import java.time.LocalDate;
+
+/**
+ * Datos de una instancia necesarios para armar una notificación.
+ * Se capturan en el momento del cambio para poder enviar más tarde
+ * (o desde otro hilo) sin depender de la sesión de JPA.
+ */
+public record InstantaneaInstancia(
+        Integer id,
+        String reporteNombre,
+        String entidadNombre,
+        String periodoReportado,
+        LocalDate fechaVencimiento,
+        String estadoNombre) {
+
+    public static InstantaneaInstancia de(InstanciaReporte instancia) {
+        return new InstantaneaInstancia(
+                instancia.getId(),
+                instancia.getReporte().getNombre(),
+                instancia.getReporte().getEntidad().getRazonSocial(),
+                instancia.getPeriodoReportado(),
+                instancia.getFechaVencimientoCalculada(),
+                instancia.getEstado().getNombre());
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.NotificacionReporte;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Invalida la caché de destinatarios cuando se escribe en reporte_notificaciones.
+ * Hibernate lo instancia a través del contenedor de Spring.
+ */
+public class NotificacionReporteListener {
+
+    private final ObjectProvider<DestinatariosNotificacionCache> cache;
+
+    public NotificacionReporteListener(ObjectProvider<DestinatariosNotificacionCache> cache) {
+        this.cache = cache;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void alModificar(NotificacionReporte notificacion) {
+        String reporteId = notificacion.getReporte() != null ? notificacion.getReporte().getId() : null;
+        cache.ifAvailable(c -> c.invalidar(reporteId));
+    }
+}
@@ -2,201 +2,267 @@ package com.example.demo.service;
 
 import com.example.demo.entity.Alerta;
 import com.example.demo.entity.InstanciaReporte;
-import com.example.demo.entity.NotificacionReporte;
-import com.example.demo.repository.NotificacionReporteRepository;
+import com.example.demo.entity.Usuario;
+import com.example.demo.service.notificacion.DespachadorNotificaciones;
+import com.example.demo.service.notificacion.Notificacion;
+import com.example.demo.service.notificacion.ResultadoNotificacion;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class NotificacionService {
 
-    private final JavaMailSender mailSender;
-    private final NotificacionReporteRepository notificacionRepo;
+    private final DespachadorNotificaciones despachadorNotificaciones;
+    private final DestinatariosNotificacionCache destinatariosCache;
     private final WhatsAppService whatsAppService;
 
-    @Value("${notificaciones.email.habilitado:false}")
-    private boolean emailHabilitado;
-
-    @Value("${spring.mail.username:}")
-    private String emailRemitente;
-
     @Value("${notificaciones.url.base:http://localhost:5173}")
     private String urlBase;
 
-    public NotificacionService(JavaMailSender mailSender,
-                              NotificacionReporteRepository notificacionRepo,
+    // smtp (por defecto) | resend | auto
+    @Value("${notificaciones.email.proveedor:smtp}")
+    private String proveedorCorreo;
+
+    // Correos adicionales de las alertas del scheduler: mismo proveedor que su correo principal (Resend)
+    @Value("${notificaciones.email.proveedor-alertas:resend}")
+    private String proveedorCorreoAlertas;
+
+    @Value("${notificaciones.cambio-estado.ventana-ms:60000}")
+    private long ventanaCambioEstadoMs;
+
+    @Value("${notificaciones.cambio-estado.espera-maxima-ms:300000}")
+    private long esperaMaximaCambioEstadoMs;
+
+    // Cambios de estado pendientes, fusionados por (instancia, destinatario)
+    private final BufferCoalescente<ClaveCambioEstado, CambioEstadoPendiente> cambiosPendientes =
+            new BufferCoalescente<>(CambioEstadoPendiente::fusionar);
+    private final AtomicLong cambiosSuprimidos = new AtomicLong();
+
+    public NotificacionService(DespachadorNotificaciones despachadorNotificaciones,
+                              DestinatariosNotificacionCache destinatariosCache,
                               WhatsAppService whatsAppService) {
-        this.mailSender = mailSender;
-        this.notificacionRepo = notificacionRepo;
+        this.despachadorNotificaciones = despachadorNotificaciones;
+        this.destinatariosCache = destinatariosCache;
         this.whatsAppService = whatsAppService;
     }
 
     /**
-     * Envía notificación DUAL (Email + WhatsApp) cuando se genera una alerta
+     * Envía una alerta por todos los canales disponibles (correo, WhatsApp y, si la
+     * alerta aún no está guardada, la bandeja in-app), en paralelo.
+     *
+     * Los textos se generan aquí, en el hilo del llamador; los canales solo reciben
+     * la notificación ya renderizada.
      */
-    public void enviarNotificacionAlerta(Alerta alerta) {
-        // 1. Enviar por Email
-        if (emailHabilitado) {
-            enviarEmail(alerta);
-        } else {
-            System.out.println("ℹ️ Email deshabilitado - omitiendo envío de email");
-        }
-        
-        // 2. Enviar por WhatsApp
-        if (whatsAppService.estaDisponible()) {
-            try {
-                whatsAppService.enviarNotificacionAlerta(alerta);
-            } catch (Exception e) {
-                System.err.println("⚠️ Error al enviar WhatsApp (continuando con email): " + e.getMessage());
-            }
-        }
-        
-        // 3. Enviar también a correos adicionales configurados
-        if (emailHabilitado) {
-            enviarCorreosAdicionales(alerta);
-        }
+    public CompletableFuture<ResultadoNotificacion> enviarNotificacionAlerta(Alerta alerta) {
+        Usuario destinatario = alerta.getUsuarioDestino();
 
-        // 4. Log de la notificación (siempre se registra)
-        System.out.println("📨 Notificación procesada para: " + alerta.getUsuarioDestino().getNombreCompleto());
+        Notificacion.AlertaBandeja bandeja = alerta.getId() == null
+                ? new Notificacion.AlertaBandeja(alerta.getInstancia().getId(), destinatario.getId(),
+                        alerta.getTipo().getId(), alerta.getMensaje())
+                : null;
+
+        Notificacion notificacion = new Notificacion(
+                destinatario.getNombreCompleto(),
+                destinatario.getCorreo(),
+                destinatario.getTelefono(),
+                // Correos adicionales configurados para el reporte
+                destinatariosCache.obtenerCorreos(alerta.getInstancia().getReporte().getId()),
+                generarAsuntoAlerta(alerta),
+                generarCuerpoAlerta(alerta),
+                whatsAppService.generarMensajeAlerta(alerta),
+                alerta.getTipo().getNombre(),
+                alerta.getTipo().getColor(),
+                proveedorCorreo,
+                bandeja
+        );
+
+        return despachadorNotificaciones.despachar(notificacion);
     }
 
     /**
-     * Envía notificación DUAL cuando cambia el estado de una instancia
+     * Canales adicionales de una alerta del scheduler, cuyo correo al destinatario ya salió
+     * por EmailNotificationService: el mismo correo (asunto, mensaje y color) a los correos
+     * adicionales del reporte y WhatsApp al destinatario.
      */
-    public void enviarNotificacionCambioEstado(InstanciaReporte instancia, String estadoAnterior) {
-        String asunto = String.format(
-            "Cambio de Estado: %s - %s",
-            instancia.getReporte().getNombre(),
-            instancia.getPeriodoReportado()
-        );
+    public CompletableFuture<ResultadoNotificacion> enviarCanalesAdicionalesAlerta(Alerta alerta, String asunto,
+                                                                                    String mensaje, String color) {
+        Usuario destinatario = alerta.getUsuarioDestino();
 
-        String cuerpo = String.format(
-            "Hola,\n\n" +
-            "Se ha actualizado el estado del reporte:\n\n" +
-            "📋 Reporte: %s\n" +
-            "🏢 Entidad: %s\n" +
-            "📅 Período: %s\n" +
-            "⏰ Fecha Límite: %s\n\n" +
-            "Estado anterior: %s\n" +
-            "Estado actual: %s\n\n" +
-            "Accede al sistema para más detalles: %s/reportes/%s\n\n" +
-            "---\n" +
-            "Sistema de Seguimiento de Reportes - Llanogas",
-            instancia.getReporte().getNombre(),
-            instancia.getReporte().getEntidad().getRazonSocial(),
-            instancia.getPeriodoReportado(),
-            instancia.getFechaVencimientoCalculada(),
-            estadoAnterior,
-            instancia.getEstado().getNombre(),
-            urlBase,
-            instancia.getId()
-        );
+        return despachadorNotificaciones.despachar(new Notificacion(
+                destinatario.getNombreCompleto(),
+                null,
+                destinatario.getTelefono(),
+                destinatariosCache.obtenerCorreos(alerta.getInstancia().getReporte().getId()),
+                asunto,
+                mensaje,
+                whatsAppService.generarMensajeAlerta(alerta),
+                alerta.getTipo().getNombre(),
+                color,
+                proveedorCorreoAlertas,
+                null
+        ));
+    }
 
-        // Notificar al responsable de elaboración
-        String emailResponsable = instancia.getReporte().getResponsableElaboracion().getCorreo();
-        String telefonoResponsable = instancia.getReporte().getResponsableElaboracion().getTelefono();
-        
-        if (emailHabilitado) {
-            enviarCorreo(emailResponsable, asunto, cuerpo);
-        }
-        
-        if (whatsAppService.estaDisponible() && telefonoResponsable != null) {
-            try {
-                whatsAppService.enviarCambioEstado(instancia, estadoAnterior, telefonoResponsable);
-            } catch (Exception e) {
-                System.err.println("⚠️ Error al enviar WhatsApp al responsable: " + e.getMessage());
-            }
-        }
+    /**
+     * Envía notificación DUAL cuando cambia el estado de una instancia.
+     *
+     * Los cambios de una misma instancia para un mismo destinatario se fusionan
+     * durante {@code notificaciones.cambio-estado.ventana-ms}: varias ediciones
+     * seguidas generan un único mensaje con el cambio neto.
+     */
+    public void enviarNotificacionCambioEstado(InstanciaReporte instancia, String estadoAnterior) {
+        encolarCambios(prepararCambios(instancia, estadoAnterior));
+    }
 
-        // Notificar al supervisor
-        String emailSupervisor = instancia.getReporte().getResponsableSupervision().getCorreo();
-        String telefonoSupervisor = instancia.getReporte().getResponsableSupervision().getTelefono();
-        
-        if (emailHabilitado) {
-            enviarCorreo(emailSupervisor, asunto, cuerpo);
-        }
-        
-        if (whatsAppService.estaDisponible() && telefonoSupervisor != null) {
-            try {
-                whatsAppService.enviarCambioEstado(instancia, estadoAnterior, telefonoSupervisor);
-            } catch (Exception e) {
-                System.err.println("⚠️ Error al enviar WhatsApp al supervisor: " + e.getMessage());
-            }
+    /**
+     * Variante por lotes: captura ahora los datos de todas las instancias (la sesión de JPA
+     * sigue abierta) y las encola juntas cuando la transacción confirma. Si la transacción
+     * se revierte no se notifica nada.
+     *
+     * @param instancias        instancias actualizadas
+     * @param estadosAnteriores id de instancia -> nombre de su estado anterior
+     */
+    public void enviarNotificacionesCambioEstado(List<InstanciaReporte> instancias, Map<Integer, String> estadosAnteriores) {
+        List<CambioPorEncolar> cambios = new ArrayList<>();
+        for (InstanciaReporte instancia : instancias) {
+            cambios.addAll(prepararCambios(instancia, estadosAnteriores.get(instancia.getId())));
         }
 
-        System.out.println("📨 Notificación de cambio de estado procesada");
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    encolarCambios(cambios);
+                }
+            });
+        } else {
+            encolarCambios(cambios);
+        }
     }
 
     /**
-     * Envía email de alerta
+     * Un cambio por destinatario: responsable de elaboración y supervisor
      */
-    private void enviarEmail(Alerta alerta) {
-        if (!emailHabilitado || emailRemitente == null || emailRemitente.isEmpty()) {
-            System.out.println("⚠️ Email no configurado - omitiendo envío");
-            return;
-        }
+    private List<CambioPorEncolar> prepararCambios(InstanciaReporte instancia, String estadoAnterior) {
+        InstantaneaInstancia instantanea = InstantaneaInstancia.de(instancia);
 
-        try {
-            SimpleMailMessage mensaje = new SimpleMailMessage();
-            mensaje.setTo(alerta.getUsuarioDestino().getCorreo());
-            mensaje.setSubject(generarAsuntoAlerta(alerta));
-            mensaje.setText(generarCuerpoAlerta(alerta));
-            mensaje.setFrom(emailRemitente);
+        Usuario responsable = instancia.getReporte().getResponsableElaboracion();
+        Usuario supervisor = instancia.getReporte().getResponsableSupervision();
 
-            mailSender.send(mensaje);
-            System.out.println("✓ Email enviado a: " + alerta.getUsuarioDestino().getCorreo());
+        List<CambioPorEncolar> cambios = new ArrayList<>(2);
+        for (Usuario destinatario : new Usuario[]{responsable, supervisor}) {
+            if (destinatario == null) continue;
 
-        } catch (Exception e) {
-            System.err.println("✗ Error al enviar email: " + e.getMessage());
+            String claveDestinatario = destinatario.getCorreo() != null
+                    ? destinatario.getCorreo() : destinatario.getTelefono();
+            cambios.add(new CambioPorEncolar(
+                    new ClaveCambioEstado(instantanea.id(), claveDestinatario),
+                    new CambioEstadoPendiente(destinatario.getNombreCompleto(), destinatario.getCorreo(),
+                            destinatario.getTelefono(), estadoAnterior, instantanea, 1)));
         }
+        return cambios;
     }
 
-    private void enviarCorreosAdicionales(Alerta alerta) {
-        if (!emailHabilitado) return;
-
-        List<NotificacionReporte> notificaciones = notificacionRepo
-                .findByReporte(alerta.getInstancia().getReporte());
+    private void encolarCambios(List<CambioPorEncolar> cambios) {
+        for (CambioPorEncolar c : cambios) {
+            if (ventanaCambioEstadoMs <= 0) {
+                enviarCambioEstado(c.cambio());
+            } else {
+                cambiosPendientes.agregar(c.clave(), c.cambio());
+            }
+        }
+    }
 
-        for (NotificacionReporte notif : notificaciones) {
-            try {
-                SimpleMailMessage mensaje = new SimpleMailMessage();
-                mensaje.setTo(notif.getCorreo());
-                mensaje.setSubject(generarAsuntoAlerta(alerta));
-                mensaje.setText(generarCuerpoAlerta(alerta));
-                if (emailRemitente != null && !emailRemitente.isEmpty()) {
-                    mensaje.setFrom(emailRemitente);
-                }
+    /**
+     * Envía los cambios de estado cuya ventana de fusión ya se cerró
+     */
+    @Scheduled(fixedDelayString = "${notificaciones.cambio-estado.revision-ms:1000}")
+    public void despacharCambiosEstado() {
+        for (CambioEstadoPendiente cambio : cambiosPendientes.extraerListos(ventanaCambioEstadoMs, esperaMaximaCambioEstadoMs)) {
+            enviarCambioEstado(cambio);
+        }
+    }
 
-                mailSender.send(mensaje);
-                System.out.println("✓ Correo adicional enviado a: " + notif.getCorreo());
-            } catch (Exception e) {
-                System.err.println("✗ Error al enviar correo adicional a " + notif.getCorreo());
-            }
+    @PreDestroy
+    public void alDetener() {
+        for (CambioEstadoPendiente cambio : cambiosPendientes.extraerTodos()) {
+            enviarCambioEstado(cambio);
         }
     }
 
-    private void enviarCorreo(String destinatario, String asunto, String cuerpo) {
-        if (!emailHabilitado || emailRemitente == null || emailRemitente.isEmpty()) {
-            System.out.println("⚠️ Email no configurado - omitiendo envío a " + destinatario);
+    private void enviarCambioEstado(CambioEstadoPendiente cambio) {
+        InstantaneaInstancia instancia = cambio.instantanea();
+
+        // Si tras varias ediciones el estado volvió al original, no hay nada que notificar
+        if (cambio.estadoAnterior() != null && cambio.estadoAnterior().equals(instancia.estadoNombre())) {
+            cambiosSuprimidos.incrementAndGet();
             return;
         }
 
-        try {
-            SimpleMailMessage mensaje = new SimpleMailMessage();
-            mensaje.setTo(destinatario);
-            mensaje.setSubject(asunto);
-            mensaje.setText(cuerpo);
-            mensaje.setFrom(emailRemitente);
-
-            mailSender.send(mensaje);
-            System.out.println("✓ Correo enviado a: " + destinatario);
-        } catch (Exception e) {
-            System.err.println("✗ Error al enviar correo a " + destinatario + ": " + e.getMessage());
-        }
+        String asunto = String.format(
+            "Cambio de Estado: %s - %s",
+            instancia.reporteNombre(),
+            instancia.periodoReportado()
+        );
+
+        String cuerpo = String.format(
+            "Hola,\n\n" +
+            "Se ha actualizado el estado del reporte:\n\n" +
+            "📋 Reporte: %s\n" +
+            "🏢 Entidad: %s\n" +
+            "📅 Período: %s\n" +
+            "⏰ Fecha Límite: %s\n\n" +
+            "Estado anterior: %s\n" +
+            "Estado actual: %s\n" +
+            (cambio.ediciones() > 1 ? "(" + cambio.ediciones() + " actualizaciones consolidadas)\n" : "") +
+            "\n" +
+            "Accede al sistema para más detalles: %s/reportes/%s\n\n" +
+            "---\n" +
+            "Sistema de Seguimiento de Reportes - Llanogas",
+            instancia.reporteNombre(),
+            instancia.entidadNombre(),
+            instancia.periodoReportado(),
+            instancia.fechaVencimiento(),
+            cambio.estadoAnterior(),
+            instancia.estadoNombre(),
+            urlBase,
+            instancia.id()
+        );
+
+        despachadorNotificaciones.despachar(new Notificacion(
+                cambio.nombre(),
+                cambio.correo(),
+                cambio.telefono(),
+                List.of(),
+                asunto,
+                cuerpo,
+                whatsAppService.generarMensajeCambioEstado(instancia, cambio.estadoAnterior()),
+                "CAMBIO DE ESTADO",
+                "azul",
+                proveedorCorreo,
+                null
+        ));
+    }
+
+    public Map<String, Object> obtenerMetricasCambioEstado() {
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        metricas.put("pendientes", cambiosPendientes.tamano());
+        metricas.put("cambiosRecibidos", cambiosPendientes.getAgregados());
+        metricas.put("mensajesEmitidos", cambiosPendientes.getEmitidos());
+        metricas.put("suprimidosSinCambioNeto", cambiosSuprimidos.get());
+        return metricas;
     }
 
     private String generarAsuntoAlerta(Alerta alerta) {
@@ -239,15 +305,42 @@ public class NotificacionService {
         );
     }
 
+    // Sin distinguir mayúsculas ni tildes: el scheduler usa CRITICA, RIESGO, SEGUIMIENTO, PREVENTIVA, SUPERVISION
     private String obtenerEmojiPorTipo(String tipoNombre) {
-        if (tipoNombre.contains("Crítica") || tipoNombre.contains("Vencido")) {
+        String tipo = normalizarTipo(tipoNombre);
+        if (tipo.contains("CRITICA") || tipo.contains("VENCIDO")) {
             return "🔴";
-        } else if (tipoNombre.contains("Urgente") || tipoNombre.contains("Riesgo")) {
+        } else if (tipo.contains("URGENTE") || tipo.contains("RIESGO")) {
             return "🟠";
-        } else if (tipoNombre.contains("Seguimiento") || tipoNombre.contains("Intermedia")) {
+        } else if (tipo.contains("SEGUIMIENTO") || tipo.contains("INTERMEDIA")) {
             return "🟡";
+        } else if (tipo.contains("SUPERVISION")) {
+            return "🔵";
         } else {
             return "🟢";
         }
     }
+
+    private static String normalizarTipo(String tipoNombre) {
+        return Normalizer.normalize(tipoNombre, Normalizer.Form.NFD).replaceAll("\\p{M}", "").toUpperCase();
+    }
+
+    private record ClaveCambioEstado(Integer instanciaId, String destinatario) {
+    }
+
+    private record CambioPorEncolar(ClaveCambioEstado clave, CambioEstadoPendiente cambio) {
+    }
+
+    /**
+     * Cambio de estado pendiente de notificar. Al fusionar se conserva el
+     * estado anterior del PRIMER cambio y la instantánea del ÚLTIMO.
+     */
+    private record CambioEstadoPendiente(String nombre, String correo, String telefono, String estadoAnterior,
+                                         InstantaneaInstancia instantanea, int ediciones) {
+
+        static CambioEstadoPendiente fusionar(CambioEstadoPendiente acumulado, CambioEstadoPendiente nuevo) {
+            return new CambioEstadoPendiente(nuevo.nombre(), nuevo.correo(), nuevo.telefono(), acumulado.estadoAnterior(),
+                    nuevo.instantanea(), acumulado.ediciones() + nuevo.ediciones());
+        }
+    }
 }
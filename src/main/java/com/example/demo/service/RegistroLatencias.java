@@ -0,0 +1,58 @@
+package com.example.demo.service;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Registro de latencias con una ventana de las últimas N muestras.
+ *
+ * Permite calcular percentiles (p50, p99) sin guardar el histórico completo.
+ */
+public class RegistroLatencias {
+
+    private final long[] muestras;
+    private int siguiente = 0;
+    private long total = 0;
+    private long maximo = 0;
+
+    public RegistroLatencias(int capacidad) {
+        this.muestras = new long[capacidad];
+    }
+
+    public synchronized void registrar(long duracionMs) {
+        muestras[siguiente] = duracionMs;
+        siguiente = (siguiente + 1) % muestras.length;
+        total++;
+        maximo = Math.max(maximo, duracionMs);
+    }
+
+    /**
+     * Percentil (0-100) sobre las muestras retenidas
+     */
+    public synchronized long percentil(double p) {
+        int n = (int) Math.min(total, muestras.length);
+        if (n == 0) {
+            return 0;
+        }
+        long[] ordenadas = Arrays.copyOf(muestras, n);
+        Arrays.sort(ordenadas);
+        int indice = (int) Math.ceil(p / 100.0 * n) - 1;
+        return ordenadas[Math.max(0, Math.min(n - 1, indice))];
+    }
+
+    public synchronized long getTotal() {
+        return total;
+    }
+
+    public Map<String, Object> obtenerMetricas() {
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        metricas.put("muestras", getTotal());
+        metricas.put("p50Ms", percentil(50));
+        metricas.put("p99Ms", percentil(99));
+        synchronized (this) {
+            metricas.put("maximoMs", maximo);
+        }
+        return metricas;
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.demo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Ejecuta una transición en su propia transacción corta y, si otra transacción modificó
+ * la misma fila entre la lectura y el commit (@Version), la repite desde cero.
+ *
+ * Solo para transiciones idempotentes: la acción vuelve a leer lo que necesita y valida
+ * sus precondiciones en cada intento. Agotados los intentos, el conflicto llega al
+ * cliente como 409. No se toman bloqueos de fila ni se serializan transacciones.
+ */
+@Component
+public class ReintentoOptimista {
+
+    private static final Logger log = LoggerFactory.getLogger(ReintentoOptimista.class);
+
+    private final TransactionTemplate transaccion;
+    private final int maxIntentos;
+    private final long esperaBaseMs;
+
+    private final AtomicLong conflictos = new AtomicLong();
+    private final AtomicLong resueltosReintentando = new AtomicLong();
+    private final AtomicLong agotados = new AtomicLong();
+
+    public ReintentoOptimista(PlatformTransactionManager transactionManager,
+                              @Value("${concurrencia.reintentos.maximo:3}") int maxIntentos,
+                              @Value("${concurrencia.reintentos.espera-base-ms:20}") long esperaBaseMs) {
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.maxIntentos = Math.max(1, maxIntentos);
+        this.esperaBaseMs = esperaBaseMs;
+    }
+
+    public <T> T ejecutar(String operacion, Supplier<T> accion) {
+        // Dentro de otra transacción no se puede reintentar: el conflicto la deja marcada para rollback
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return accion.get();
+        }
+
+        for (int intento = 1; ; intento++) {
+            try {
+                T resultado = transaccion.execute(status -> accion.get());
+                if (intento > 1) {
+                    resueltosReintentando.incrementAndGet();
+                }
+                return resultado;
+            } catch (OptimisticLockingFailureException e) {
+                // El rollback ya limpió el contexto de persistencia: el siguiente intento relee la fila
+                conflictos.incrementAndGet();
+                if (intento >= maxIntentos) {
+                    agotados.incrementAndGet();
+                    log.warn("⚠️ Conflicto de concurrencia en {} tras {} intentos", operacion, intento);
+                    throw e;
+                }
+                log.info("Conflicto de concurrencia en {} (intento {}/{}), reintentando", operacion, intento, maxIntentos);
+                esperar(intento);
+            }
+        }
+    }
+
+    // Espera aleatoria creciente para que los escritores en conflicto no vuelvan a chocar
+    private void esperar(int intento) {
+        long espera = ThreadLocalRandom.current().nextLong(esperaBaseMs * intento + 1);
+        try {
+            Thread.sleep(espera);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public Map<String, Object> obtenerMetricas() {
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        metricas.put("conflictos", conflictos.get());
+        metricas.put("resueltosReintentando", resueltosReintentando.get());
+        metricas.put("agotados", agotados.get());
+        metricas.put("maxIntentos", maxIntentos);
+        return metricas;
+    }
+}
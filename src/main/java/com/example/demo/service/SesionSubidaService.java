@@ -0,0 +1,307 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.InstanciaReporteDTO;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Sesiones de subida reanudable para los archivos de envío.
+ *
+ * El cliente crea la sesión con el tamaño total, envía el archivo en fragmentos
+ * (PUT con Content-Range) en cualquier orden y consulta qué rangos faltan: tras un
+ * corte solo reenvía esos rangos. Cada fragmento se escribe en su posición del
+ * archivo temporal con FileChannel; al finalizar, el archivo completo se entrega
+ * al envío normal (almacenamiento configurado) y se elimina del disco.
+ *
+ * El estado de las sesiones vive en memoria: un reinicio las descarta.
+ */
+@Service
+public class SesionSubidaService {
+
+    private static final Logger log = LoggerFactory.getLogger(SesionSubidaService.class);
+
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+)");
+    private static final int TAMANO_BUFFER = 64 * 1024;
+
+    private final InstanciaReporteService instanciaService;
+    private final Path directorio;
+    private final long tamanoMaximo;
+    private final long expiracionMinutos;
+
+    private final Map<String, Sesion> sesiones = new ConcurrentHashMap<>();
+
+    // Métricas
+    private final AtomicLong creadas = new AtomicLong();
+    private final AtomicLong finalizadas = new AtomicLong();
+    private final AtomicLong expiradas = new AtomicLong();
+    private final AtomicLong bytesRecibidos = new AtomicLong();
+
+    public SesionSubidaService(InstanciaReporteService instanciaService,
+                               @Value("${subidas.directorio:${java.io.tmpdir}/seguimiento-subidas}") String directorio,
+                               @Value("${subidas.tamano-maximo:50MB}") DataSize tamanoMaximo,
+                               @Value("${subidas.expiracion-minutos:1440}") long expiracionMinutos) {
+        this.instanciaService = instanciaService;
+        this.directorio = Path.of(directorio);
+        this.tamanoMaximo = tamanoMaximo.toBytes();
+        this.expiracionMinutos = expiracionMinutos;
+    }
+
+    @PostConstruct
+    public void iniciar() throws IOException {
+        Files.createDirectories(directorio);
+        // Las sesiones no sobreviven a un reinicio: sus archivos quedan huérfanos
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(directorio, "*.parte")) {
+            for (Path archivo : archivos) {
+                Files.deleteIfExists(archivo);
+            }
+        }
+    }
+
+    /**
+     * Abre una sesión para enviar un archivo de {@code tamano} bytes a la instancia.
+     */
+    public Map<String, Object> crear(Integer instanciaId, String nombreArchivo, String tipoContenido, Long tamano,
+                                     Authentication authentication) {
+        if (instanciaId == null) {
+            throw new RuntimeException("Debe indicar la instancia.");
+        }
+        if (nombreArchivo == null || nombreArchivo.isBlank()) {
+            throw new RuntimeException("Debe indicar el nombre del archivo.");
+        }
+        if (tamano == null || tamano <= 0 || tamano > tamanoMaximo) {
+            throw new RuntimeException("El tamaño del archivo debe estar entre 1 y " + tamanoMaximo + " bytes.");
+        }
+        instanciaService.validarEnvio(instanciaId, authentication);
+
+        String id = UUID.randomUUID().toString();
+        Path archivo = directorio.resolve(id + ".parte");
+        try {
+            Files.createFile(archivo);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo crear el archivo temporal de la subida", e);
+        }
+
+        Sesion sesion = new Sesion(id, instanciaId, authentication.getName(), nombreArchivo,
+                tipoContenido != null ? tipoContenido : "application/octet-stream", tamano, archivo);
+        sesiones.put(id, sesion);
+        creadas.incrementAndGet();
+        log.info("Sesión de subida {} abierta para la instancia {} ({} bytes)", id, instanciaId, tamano);
+        return sesion.estado();
+    }
+
+    /**
+     * Escribe un fragmento en su posición. Si el cuerpo llega incompleto se conserva
+     * lo recibido; el estado devuelto indica los rangos que faltan.
+     */
+    public Map<String, Object> escribir(String id, String contentRange, InputStream cuerpo,
+                                        Authentication authentication) throws IOException {
+        Sesion sesion = obtener(id, authentication);
+
+        Matcher rango = contentRange != null ? CONTENT_RANGE.matcher(contentRange.trim()) : null;
+        if (rango == null || !rango.matches()) {
+            throw new RuntimeException("Content-Range inválido. Formato esperado: bytes inicio-fin/total");
+        }
+        long inicio = Long.parseLong(rango.group(1));
+        long fin = Long.parseLong(rango.group(2));
+        long total = Long.parseLong(rango.group(3));
+        if (total != sesion.tamano || inicio > fin || fin >= sesion.tamano) {
+            throw new RuntimeException("Rango fuera del archivo: " + contentRange + " (tamaño " + sesion.tamano + ")");
+        }
+
+        long esperados = fin - inicio + 1;
+        long escritos = 0;
+        try (FileChannel canal = FileChannel.open(sesion.archivo, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(TAMANO_BUFFER);
+            while (escritos < esperados) {
+                int leidos = cuerpo.read(buffer.array(), 0, (int) Math.min(buffer.capacity(), esperados - escritos));
+                if (leidos < 0) {
+                    break;
+                }
+                buffer.limit(leidos).position(0);
+                while (buffer.hasRemaining()) {
+                    escritos += canal.write(buffer, inicio + escritos);
+                }
+                buffer.clear();
+            }
+        } finally {
+            // Lo que llegó a disco cuenta aunque el cliente corte a mitad del fragmento
+            if (escritos > 0) {
+                sesion.registrar(inicio, inicio + escritos);
+                bytesRecibidos.addAndGet(escritos);
+            }
+        }
+        return sesion.estado();
+    }
+
+    public Map<String, Object> estado(String id, Authentication authentication) {
+        return obtener(id, authentication).estado();
+    }
+
+    /**
+     * Con todos los bytes recibidos, envía el archivo a la instancia y cierra la sesión.
+     * Si el envío falla la sesión se conserva para reintentar la finalización.
+     */
+    public InstanciaReporteDTO finalizar(String id, String observaciones, String linkEvidencia,
+                                         Authentication authentication) throws IOException {
+        Sesion sesion = obtener(id, authentication);
+        long recibidos = sesion.recibidos();
+        if (recibidos < sesion.tamano) {
+            throw new RuntimeException("La subida está incompleta: recibidos " + recibidos + " de " + sesion.tamano + " bytes.");
+        }
+
+        InstanciaReporteDTO resultado = instanciaService.enviarReporte(sesion.instanciaId, sesion.archivo,
+                sesion.nombreArchivo, sesion.tipoContenido, observaciones, linkEvidencia, authentication);
+
+        descartar(sesion);
+        finalizadas.incrementAndGet();
+        log.info("Sesión de subida {} finalizada: instancia {} enviada", id, sesion.instanciaId);
+        return resultado;
+    }
+
+    public void cancelar(String id, Authentication authentication) {
+        descartar(obtener(id, authentication));
+    }
+
+    /**
+     * Descarta las sesiones sin actividad durante {@code subidas.expiracion-minutos}
+     */
+    @Scheduled(fixedDelayString = "${subidas.revision-ms:600000}")
+    public void limpiarExpiradas() {
+        LocalDateTime limite = LocalDateTime.now().minusMinutes(expiracionMinutos);
+        for (Sesion sesion : List.copyOf(sesiones.values())) {
+            if (sesion.ultimaActividad.isBefore(limite)) {
+                descartar(sesion);
+                expiradas.incrementAndGet();
+                log.info("Sesión de subida {} expirada", sesion.id);
+            }
+        }
+    }
+
+    // Solo el usuario que abrió la sesión puede usarla
+    private Sesion obtener(String id, Authentication authentication) {
+        Sesion sesion = sesiones.get(id);
+        if (sesion == null || !sesion.correo.equals(authentication.getName())) {
+            throw new RuntimeException("Sesión de subida no encontrada o expirada.");
+        }
+        return sesion;
+    }
+
+    private void descartar(Sesion sesion) {
+        sesiones.remove(sesion.id);
+        try {
+            Files.deleteIfExists(sesion.archivo);
+        } catch (IOException e) {
+            log.warn("⚠️ No se pudo eliminar el archivo temporal {}: {}", sesion.archivo, e.getMessage());
+        }
+    }
+
+    public Map<String, Object> obtenerMetricas() {
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        metricas.put("activas", sesiones.size());
+        metricas.put("creadas", creadas.get());
+        metricas.put("finalizadas", finalizadas.get());
+        metricas.put("expiradas", expiradas.get());
+        metricas.put("bytesRecibidos", bytesRecibidos.get());
+        return metricas;
+    }
+
+    private static class Sesion {
+        final String id;
+        final Integer instanciaId;
+        final String correo;
+        final String nombreArchivo;
+        final String tipoContenido;
+        final long tamano;
+        final Path archivo;
+        // Rangos recibidos [inicio, fin) fusionados, por inicio
+        private final TreeMap<Long, Long> rangos = new TreeMap<>();
+        volatile LocalDateTime ultimaActividad = LocalDateTime.now();
+
+        Sesion(String id, Integer instanciaId, String correo, String nombreArchivo, String tipoContenido,
+               long tamano, Path archivo) {
+            this.id = id;
+            this.instanciaId = instanciaId;
+            this.correo = correo;
+            this.nombreArchivo = nombreArchivo;
+            this.tipoContenido = tipoContenido;
+            this.tamano = tamano;
+            this.archivo = archivo;
+        }
+
+        synchronized void registrar(long inicio, long fin) {
+            // Fusionar con los rangos que se solapan o tocan
+            Map.Entry<Long, Long> anterior = rangos.floorEntry(inicio);
+            if (anterior != null && anterior.getValue() >= inicio) {
+                inicio = anterior.getKey();
+                fin = Math.max(fin, anterior.getValue());
+            }
+            Map.Entry<Long, Long> siguiente;
+            while ((siguiente = rangos.ceilingEntry(inicio)) != null && siguiente.getKey() <= fin) {
+                fin = Math.max(fin, siguiente.getValue());
+                rangos.remove(siguiente.getKey());
+            }
+            rangos.put(inicio, fin);
+            ultimaActividad = LocalDateTime.now();
+        }
+
+        synchronized long recibidos() {
+            long total = 0;
+            for (Map.Entry<Long, Long> rango : rangos.entrySet()) {
+                total += rango.getValue() - rango.getKey();
+            }
+            return total;
+        }
+
+        synchronized Map<String, Object> estado() {
+            // Rangos pendientes en formato inicio-fin (inclusivo), como en Content-Range
+            List<String> faltantes = new ArrayList<>();
+            long posicion = 0;
+            for (Map.Entry<Long, Long> rango : rangos.entrySet()) {
+                if (rango.getKey() > posicion) {
+                    faltantes.add(posicion + "-" + (rango.getKey() - 1));
+                }
+                posicion = rango.getValue();
+            }
+            if (posicion < tamano) {
+                faltantes.add(posicion + "-" + (tamano - 1));
+            }
+
+            Map<String, Object> estado = new LinkedHashMap<>();
+            estado.put("sesionId", id);
+            estado.put("instanciaId", instanciaId);
+            estado.put("nombreArchivo", nombreArchivo);
+            estado.put("tamano", tamano);
+            estado.put("recibidos", recibidos());
+            estado.put("completa", faltantes.isEmpty());
+            estado.put("faltantes", faltantes);
+            return estado;
+        }
+    }
+}
@@ -2,52 +2,23 @@ package com.example.demo.service;
 
 import com.example.demo.entity.Alerta;
 import com.example.demo.entity.InstanciaReporte;
+import com.example.demo.service.whatsapp.DespachadorWhatsApp;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import jakarta.annotation.PostConstruct;
+import java.text.Normalizer;
 import java.time.LocalDate;
 
 @Service
 public class WhatsAppService {
 
-    @Value("${twilio.account.sid:}")
-    private String accountSid;
-
-    @Value("${twilio.auth.token:}")
-    private String authToken;
-
-    @Value("${twilio.whatsapp.number:}")
-    private String twilioWhatsAppNumber;
+    private final DespachadorWhatsApp despachador;
 
     @Value("${notificaciones.whatsapp.habilitado:false}")
     private boolean whatsappHabilitado;
 
-    private boolean inicializado = false;
-
-    @PostConstruct
-    public void init() {
-        if (estaConfigurado()) {
-            try {
-                com.twilio.Twilio.init(accountSid, authToken);
-                inicializado = true;
-                System.out.println("✓ Twilio WhatsApp inicializado correctamente");
-            } catch (Exception e) {
-                System.err.println("⚠️ No se pudo inicializar Twilio: " + e.getMessage());
-                inicializado = false;
-            }
-        } else {
-            System.out.println("ℹ️ WhatsApp no configurado - notificaciones por WhatsApp deshabilitadas");
-        }
-    }
-
-    /**
-     * Verifica si las credenciales de Twilio están configuradas
-     */
-    private boolean estaConfigurado() {
-        return accountSid != null && !accountSid.isEmpty() && !accountSid.startsWith("AC") == false &&
-               authToken != null && !authToken.isEmpty() && !authToken.equals("your_auth_token_here") &&
-               twilioWhatsAppNumber != null && !twilioWhatsAppNumber.isEmpty();
+    public WhatsAppService(DespachadorWhatsApp despachador) {
+        this.despachador = despachador;
     }
 
     /**
@@ -68,10 +39,10 @@ public class WhatsAppService {
         }
 
         try {
-            String mensaje = generarMensajeWhatsApp(alerta);
+            String mensaje = generarMensajeAlerta(alerta);
             enviarMensaje(telefono, mensaje);
             
-            System.out.println("✓ WhatsApp enviado a: " + telefono);
+            System.out.println("✓ WhatsApp encolado para: " + telefono);
         } catch (Exception e) {
             System.err.println("✗ Error al enviar WhatsApp: " + e.getMessage());
         }
@@ -81,36 +52,50 @@ public class WhatsAppService {
      * Envía notificación de cambio de estado por WhatsApp
      */
     public void enviarCambioEstado(InstanciaReporte instancia, String estadoAnterior, String telefono) {
+        enviarCambioEstado(InstantaneaInstancia.de(instancia), estadoAnterior, telefono);
+    }
+
+    /**
+     * Envía notificación de cambio de estado por WhatsApp a partir de una instantánea
+     */
+    public void enviarCambioEstado(InstantaneaInstancia instancia, String estadoAnterior, String telefono) {
         if (!estaDisponible() || telefono == null || telefono.isEmpty()) {
             return;
         }
 
         try {
-            String mensaje = String.format(
-                "🔔 *Cambio de Estado - Llanogas*\n\n" +
-                "📋 Reporte: %s\n" +
-                "🏢 Entidad: %s\n" +
-                "📅 Período: %s\n" +
-                "⏰ Fecha Límite: %s\n\n" +
-                "Estado: %s → %s\n\n" +
-                "Accede al sistema para más detalles.",
-                instancia.getReporte().getNombre(),
-                instancia.getReporte().getEntidad().getRazonSocial(),
-                instancia.getPeriodoReportado(),
-                instancia.getFechaVencimientoCalculada(),
-                estadoAnterior,
-                instancia.getEstado().getNombre()
-            );
-
-            enviarMensaje(telefono, mensaje);
-            System.out.println("✓ WhatsApp cambio estado enviado a: " + telefono);
+            enviarMensaje(telefono, generarMensajeCambioEstado(instancia, estadoAnterior));
+            System.out.println("✓ WhatsApp cambio estado encolado para: " + telefono);
         } catch (Exception e) {
             System.err.println("✗ Error al enviar WhatsApp: " + e.getMessage());
         }
     }
 
     /**
-     * Envía un mensaje de WhatsApp genérico
+     * Genera el mensaje de WhatsApp para un cambio de estado
+     */
+    public String generarMensajeCambioEstado(InstantaneaInstancia instancia, String estadoAnterior) {
+        return String.format(
+            "🔔 *Cambio de Estado - Llanogas*\n\n" +
+            "📋 Reporte: %s\n" +
+            "🏢 Entidad: %s\n" +
+            "📅 Período: %s\n" +
+            "⏰ Fecha Límite: %s\n\n" +
+            "Estado: %s → %s\n\n" +
+            "Accede al sistema para más detalles.",
+            instancia.reporteNombre(),
+            instancia.entidadNombre(),
+            instancia.periodoReportado(),
+            instancia.fechaVencimiento(),
+            estadoAnterior,
+            instancia.estadoNombre()
+        );
+    }
+
+    /**
+     * Envía un mensaje de WhatsApp genérico.
+     * El envío es asíncrono: el mensaje se encola y el despachador lo entrega
+     * respetando el cupo del remitente y reintentando si falla.
      */
     public void enviarMensaje(String telefonoDestino, String mensaje) {
         if (!estaDisponible()) {
@@ -118,28 +103,18 @@ public class WhatsAppService {
             return;
         }
 
-        try {
-            // Asegurar formato correcto del teléfono
-            String telefonoFormateado = formatearTelefono(telefonoDestino);
-            
-            com.twilio.rest.api.v2010.account.Message message = 
-                com.twilio.rest.api.v2010.account.Message.creator(
-                    new com.twilio.type.PhoneNumber("whatsapp:" + telefonoFormateado),
-                    new com.twilio.type.PhoneNumber(twilioWhatsAppNumber),
-                    mensaje
-                ).create();
-
-            System.out.println("✓ Mensaje WhatsApp enviado. SID: " + message.getSid());
-        } catch (Exception e) {
-            System.err.println("✗ Error enviando WhatsApp: " + e.getMessage());
-            throw new RuntimeException("Error al enviar WhatsApp", e);
+        // Asegurar formato correcto del teléfono
+        String telefonoFormateado = formatearTelefono(telefonoDestino);
+
+        if (!despachador.encolar(telefonoFormateado, mensaje)) {
+            System.err.println("✗ Cola de WhatsApp llena - mensaje a " + telefonoFormateado + " descartado");
         }
     }
 
     /**
      * Genera el mensaje de WhatsApp para una alerta
      */
-    private String generarMensajeWhatsApp(Alerta alerta) {
+    public String generarMensajeAlerta(Alerta alerta) {
         InstanciaReporte instancia = alerta.getInstancia();
         String emoji = obtenerEmojiPorTipo(alerta.getTipo().getNombre());
         
@@ -166,11 +141,11 @@ public class WhatsAppService {
     }
 
     private String obtenerMensajeResumido(Alerta alerta) {
-        String tipoNombre = alerta.getTipo().getNombre().toUpperCase();
+        String tipoNombre = normalizarTipo(alerta.getTipo().getNombre());
         LocalDate fechaVencimiento = alerta.getInstancia().getFechaVencimientoCalculada();
         long diasHasta = java.time.temporal.ChronoUnit.DAYS.between(LocalDate.now(), fechaVencimiento);
 
-        if (tipoNombre.contains("VENCIDO") || tipoNombre.contains("CRÍTICA")) {
+        if (tipoNombre.contains("VENCIDO") || tipoNombre.contains("CRITICA")) {
             return "⚠️ *URGENTE:* Este reporte está VENCIDO. Envíe inmediatamente.";
         } else if (diasHasta <= 1) {
             return "🔶 *ATENCIÓN:* Vence MAÑANA. Complete hoy.";
@@ -182,17 +157,25 @@ public class WhatsAppService {
     }
 
     private String obtenerEmojiPorTipo(String tipoNombre) {
-        if (tipoNombre.contains("Crítica") || tipoNombre.contains("Vencido")) {
+        String tipo = normalizarTipo(tipoNombre);
+        if (tipo.contains("CRITICA") || tipo.contains("VENCIDO")) {
             return "🔴";
-        } else if (tipoNombre.contains("Urgente") || tipoNombre.contains("Riesgo")) {
+        } else if (tipo.contains("URGENTE") || tipo.contains("RIESGO")) {
             return "🟠";
-        } else if (tipoNombre.contains("Seguimiento") || tipoNombre.contains("Intermedia")) {
+        } else if (tipo.contains("SEGUIMIENTO") || tipo.contains("INTERMEDIA")) {
             return "🟡";
+        } else if (tipo.contains("SUPERVISION")) {
+            return "🔵";
         } else {
             return "🟢";
         }
     }
 
+    // Mayúsculas y sin tildes: "Crítica" y "CRITICA" se tratan igual
+    private static String normalizarTipo(String tipoNombre) {
+        return Normalizer.normalize(tipoNombre, Normalizer.Form.NFD).replaceAll("\\p{M}", "").toUpperCase();
+    }
+
     /**
      * Formatea el número de teléfono al formato internacional requerido por Twilio
      * Ejemplo: 3001234567 → +573001234567 (Colombia)
@@ -228,6 +211,6 @@ public class WhatsAppService {
      * Verifica si el servicio de WhatsApp está disponible
      */
     public boolean estaDisponible() {
-        return whatsappHabilitado && inicializado && estaConfigurado();
+        return whatsappHabilitado && despachador.transporteDisponible();
     }
 }
@@ -0,0 +1,79 @@
+package com.example.demo.service.almacenamiento;
+
+import org.springframework.core.io.InputStreamSource;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Almacenamiento de los archivos de reporte.
+ *
+ * Se selecciona con {@code almacenamiento.tipo}:
+ * - drive (por defecto): Google Drive; sin credenciales no está disponible y se usan links manuales
+ * - local: directorio del servidor ({@code almacenamiento.local.directorio}), para
+ *   instalaciones on-premise y pruebas sin acceso a Internet
+ */
+public interface AlmacenamientoArchivos {
+
+    /**
+     * Nombre del almacenamiento (para logs, métricas y el índice de contenido)
+     */
+    String nombre();
+
+    /**
+     * Indica si el almacenamiento tiene lo necesario para guardar archivos
+     */
+    boolean estaDisponible();
+
+    /**
+     * Guarda el contenido leyéndolo del origen por bloques.
+     *
+     * @param nombreArchivo nombre con el que se guarda
+     * @param tamano tamaño exacto del contenido en bytes
+     */
+    ArchivoGuardado guardar(InputStreamSource origen, String nombreArchivo, String tipoContenido, long tamano)
+            throws IOException;
+
+    /**
+     * Indica si el archivo sigue almacenado
+     */
+    boolean existe(String archivoId) throws IOException;
+
+    /**
+     * Elimina el archivo; los errores se registran sin propagarse
+     */
+    void eliminar(String archivoId);
+
+    /**
+     * Existencia de varios archivos (para tareas de depuración). Por defecto consulta uno a uno.
+     *
+     * @return por id, si sigue almacenado; los que no se pudieron consultar no se incluyen
+     */
+    default Map<String, Boolean> existen(Collection<String> archivoIds) throws IOException {
+        Map<String, Boolean> existentes = new HashMap<>();
+        for (String archivoId : archivoIds) {
+            existentes.put(archivoId, existe(archivoId));
+        }
+        return existentes;
+    }
+
+    /**
+     * Elimina varios archivos (para tareas de depuración). Por defecto uno a uno.
+     *
+     * @return los eliminados o que ya no existían
+     */
+    default Collection<String> eliminar(Collection<String> archivoIds) throws IOException {
+        for (String archivoId : archivoIds) {
+            eliminar(archivoId);
+        }
+        return archivoIds;
+    }
+
+    /**
+     * Archivo almacenado: identificador, nombre final y link para consultarlo
+     */
+    record ArchivoGuardado(String id, String nombre, String link) {
+    }
+}
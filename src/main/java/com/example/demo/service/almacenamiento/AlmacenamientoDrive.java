@@ -0,0 +1,66 @@
+package com.example.demo.service.almacenamiento;
+
+import com.example.demo.service.GoogleDriveService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Almacenamiento en Google Drive (subida reanudable por fragmentos).
+ * Las operaciones sobre varios archivos van en peticiones batch.
+ */
+@Component
+@ConditionalOnProperty(name = "almacenamiento.tipo", havingValue = "drive", matchIfMissing = true)
+public class AlmacenamientoDrive implements AlmacenamientoArchivos {
+
+    private final GoogleDriveService driveService;
+
+    public AlmacenamientoDrive(GoogleDriveService driveService) {
+        this.driveService = driveService;
+    }
+
+    @Override
+    public String nombre() {
+        return "drive";
+    }
+
+    @Override
+    public boolean estaDisponible() {
+        return driveService.isDriveEnabled();
+    }
+
+    @Override
+    public ArchivoGuardado guardar(InputStreamSource origen, String nombreArchivo, String tipoContenido, long tamano)
+            throws IOException {
+        Map<String, String> subido = driveService.uploadFile(origen, nombreArchivo, tipoContenido, tamano);
+        return new ArchivoGuardado(subido.get("fileId"), subido.get("fileName"), subido.get("webViewLink"));
+    }
+
+    @Override
+    public boolean existe(String archivoId) throws IOException {
+        return driveService.fileExists(archivoId);
+    }
+
+    @Override
+    public void eliminar(String archivoId) {
+        driveService.deleteFile(archivoId);
+    }
+
+    @Override
+    public Map<String, Boolean> existen(Collection<String> archivoIds) throws IOException {
+        Map<String, Boolean> existentes = new HashMap<>();
+        driveService.getFilesMetadata(archivoIds, "id,trashed").forEach((id, archivo) ->
+                existentes.put(id, archivo != null && !Boolean.TRUE.equals(archivo.getTrashed())));
+        return existentes;
+    }
+
+    @Override
+    public Collection<String> eliminar(Collection<String> archivoIds) throws IOException {
+        return driveService.deleteFiles(archivoIds);
+    }
+}
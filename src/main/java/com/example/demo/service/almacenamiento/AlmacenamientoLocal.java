@@ -0,0 +1,189 @@
+package com.example.demo.service.almacenamiento;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Almacenamiento en un directorio del servidor.
+ *
+ * Cada archivo se guarda como {@code <uuid>-<nombre>}; ese nombre es su identificador y
+ * se descarga por {@code almacenamiento.local.url-base} (GET /api/archivos/{id}, con rangos).
+ * El link es absoluto y lleva una firma HMAC del identificador ({@code ?firma=}), así se
+ * abre desde el correo o el frontend sin el encabezado Authorization. La clave
+ * ({@code almacenamiento.local.clave-firma}) es propia, distinta de jwt.secret; cambiarla
+ * invalida todos los links emitidos.
+ * Las copias usan FileChannel: transferFrom al guardar y transferTo al descargar.
+ */
+@Component
+@ConditionalOnProperty(name = "almacenamiento.tipo", havingValue = "local")
+public class AlmacenamientoLocal implements AlmacenamientoArchivos {
+
+    private static final Logger log = LoggerFactory.getLogger(AlmacenamientoLocal.class);
+
+    // uuid + "-" + nombre saneado: impide salir del directorio con "../"
+    private static final Pattern IDENTIFICADOR = Pattern.compile("[0-9a-f]{8}(-[0-9a-f]{4}){3}-[0-9a-f]{12}-[A-Za-z0-9._-]{1,150}");
+    private static final int LARGO_UUID = 36;
+
+    private final Path directorio;
+    private final String urlBase;
+    private static final int LARGO_MINIMO_CLAVE = 32;
+
+    private final SecretKeySpec claveFirma;
+
+    public AlmacenamientoLocal(@Value("${almacenamiento.local.directorio:./archivos}") String directorio,
+                               @Value("${almacenamiento.local.url-base}") String urlBase,
+                               @Value("${almacenamiento.local.clave-firma}") String claveFirma,
+                               @Value("${jwt.secret}") String jwtSecret) {
+        if (claveFirma.getBytes(StandardCharsets.UTF_8).length < LARGO_MINIMO_CLAVE) {
+            throw new IllegalStateException("almacenamiento.local.clave-firma debe tener al menos "
+                    + LARGO_MINIMO_CLAVE + " bytes");
+        }
+        if (claveFirma.equals(jwtSecret)) {
+            throw new IllegalStateException("almacenamiento.local.clave-firma no puede ser igual a jwt.secret");
+        }
+        this.directorio = Path.of(directorio).toAbsolutePath().normalize();
+        this.urlBase = urlBase;
+        this.claveFirma = new SecretKeySpec(claveFirma.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+    }
+
+    @PostConstruct
+    public void iniciar() throws IOException {
+        Files.createDirectories(directorio);
+        log.info("Almacenamiento local de archivos en {}", directorio);
+    }
+
+    @Override
+    public String nombre() {
+        return "local";
+    }
+
+    @Override
+    public boolean estaDisponible() {
+        return Files.isDirectory(directorio) && Files.isWritable(directorio);
+    }
+
+    @Override
+    public ArchivoGuardado guardar(InputStreamSource origen, String nombreArchivo, String tipoContenido, long tamano)
+            throws IOException {
+        String id = UUID.randomUUID() + "-" + sanear(nombreArchivo);
+        Path destino = directorio.resolve(id);
+        Path temporal = directorio.resolve(id + ".tmp");
+
+        // Se escribe en un temporal y se renombra: un archivo visible siempre está completo
+        try (InputStream entrada = origen.getInputStream();
+             FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            long copiados = canal.transferFrom(Channels.newChannel(entrada), 0, tamano);
+            if (copiados != tamano) {
+                throw new IOException("Se copiaron " + copiados + " de " + tamano + " bytes");
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temporal);
+            throw new IOException("Error al guardar el archivo en el almacenamiento local: " + e.getMessage(), e);
+        }
+        Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE);
+
+        System.out.println("✓ Archivo guardado en almacenamiento local: " + id);
+        return new ArchivoGuardado(id, nombreArchivo, urlBase + id + "?firma=" + firmar(id));
+    }
+
+    @Override
+    public boolean existe(String archivoId) {
+        return IDENTIFICADOR.matcher(archivoId).matches() && Files.isRegularFile(directorio.resolve(archivoId));
+    }
+
+    @Override
+    public void eliminar(String archivoId) {
+        try {
+            Files.deleteIfExists(ruta(archivoId));
+            System.out.println("✓ Archivo eliminado del almacenamiento local: " + archivoId);
+        } catch (Exception e) {
+            System.err.println("⚠️ Error eliminando archivo local: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Firma HMAC-SHA256 del identificador, en Base64 para URL
+     */
+    public String firmar(String archivoId) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(claveFirma);
+            byte[] firma = mac.doFinal(archivoId.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(firma);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("No se pudo firmar el link del archivo", e);
+        }
+    }
+
+    /**
+     * Compara en tiempo constante la firma recibida con la del identificador
+     */
+    public boolean firmaValida(String archivoId, String firma) {
+        return firma != null && MessageDigest.isEqual(
+                firmar(archivoId).getBytes(StandardCharsets.UTF_8), firma.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Ruta del archivo dentro del directorio de almacenamiento
+     */
+    public Path ruta(String archivoId) {
+        if (!existe(archivoId)) {
+            throw new RuntimeException("Archivo no encontrado: " + archivoId);
+        }
+        return directorio.resolve(archivoId);
+    }
+
+    /**
+     * Nombre con el que se guardó el archivo (sin el prefijo uuid)
+     */
+    public String nombreArchivo(String archivoId) {
+        return archivoId.substring(LARGO_UUID + 1);
+    }
+
+    /**
+     * Copia {@code longitud} bytes desde {@code inicio} al destino con FileChannel.transferTo,
+     * sin pasar el contenido por el heap.
+     */
+    public void transferir(String archivoId, long inicio, long longitud, WritableByteChannel destino) throws IOException {
+        try (FileChannel canal = FileChannel.open(ruta(archivoId), StandardOpenOption.READ)) {
+            long posicion = inicio;
+            long fin = inicio + longitud;
+            while (posicion < fin) {
+                long transferidos = canal.transferTo(posicion, fin - posicion, destino);
+                if (transferidos <= 0) {
+                    throw new IOException("El archivo terminó antes de lo esperado: " + archivoId);
+                }
+                posicion += transferidos;
+            }
+        }
+    }
+
+    private static String sanear(String nombre) {
+        String saneado = (nombre == null || nombre.isBlank() ? "archivo" : nombre).replaceAll("[^A-Za-z0-9._-]", "_");
+        return saneado.length() > 150 ? saneado.substring(saneado.length() - 150) : saneado;
+    }
+}
@@ -0,0 +1,340 @@
+package com.example.demo.service.almacenamiento;
+
+import com.example.demo.entity.ArchivoAlmacenado;
+import com.example.demo.repository.ArchivoAlmacenadoRepository;
+import com.example.demo.service.almacenamiento.AlmacenamientoArchivos.ArchivoGuardado;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Guarda los archivos de reporte en el almacenamiento configurado.
+ *
+ * Antes de guardar calcula el SHA-256 del contenido: si el mismo contenido ya está en
+ * el almacenamiento (índice archivos_almacenados) se enlaza ese archivo en lugar de
+ * guardar otra copia. Un archivo nuevo solo entra al índice cuando la instancia que lo
+ * enlaza se confirma ({@link #confirmarEnIndice}): hasta entonces nadie más puede
+ * reutilizarlo, y si el registro falla se elimina sin dejar enlaces rotos.
+ *
+ * Una depuración periódica ({@code almacenamiento.depuracion.cron}) quita del índice los
+ * archivos que ya no existen y elimina los que ninguna instancia referencia; ambas usan
+ * las operaciones por lotes del almacenamiento. Borra archivos de forma definitiva, por eso
+ * está desactivada salvo con {@code almacenamiento.depuracion.habilitada=true}. Cada lote
+ * se re-verifica antes de borrar y excluye los archivos que una subida en curso acaba de
+ * reutilizar; la exclusión es en memoria, así que supone una sola instancia del backend.
+ */
+@Service
+public class GestorArchivos {
+
+    private static final Logger log = LoggerFactory.getLogger(GestorArchivos.class);
+
+    private static final int TAMANO_LOTE_DEPURACION = 100;
+
+    private final AlmacenamientoArchivos almacenamiento;
+    private final ArchivoAlmacenadoRepository archivoRepo;
+    private final TransactionTemplate transaccionIndice;
+    private final long antiguedadHuerfanosHoras;
+    private final boolean depuracionHabilitada;
+
+    // Archivos nuevos cuyo registro aún no se ha confirmado: archivoId -> entrada del índice
+    private final Map<String, ArchivoAlmacenado> pendientesDeIndice = new ConcurrentHashMap<>();
+
+    // Archivos reutilizados por contenido cuya instancia aún no se confirma: archivoId -> subidas en curso
+    private final Map<String, Integer> reutilizacionesEnCurso = new ConcurrentHashMap<>();
+
+    // Lectura: reutilizar un archivo; escritura: eliminar un lote de huérfanos
+    private final ReadWriteLock bloqueoHuerfanos = new ReentrantReadWriteLock();
+
+    // Métricas de deduplicación
+    private final AtomicLong guardados = new AtomicLong();
+    private final AtomicLong duplicadosEvitados = new AtomicLong();
+    private final AtomicLong bytesAhorrados = new AtomicLong();
+
+    // Métricas de depuración
+    private final AtomicLong entradasDescartadas = new AtomicLong();
+    private final AtomicLong huerfanosEliminados = new AtomicLong();
+
+    public GestorArchivos(AlmacenamientoArchivos almacenamiento, ArchivoAlmacenadoRepository archivoRepo,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${almacenamiento.depuracion.antiguedad-horas:24}") long antiguedadHuerfanosHoras,
+                          @Value("${almacenamiento.depuracion.habilitada:false}") boolean depuracionHabilitada) {
+        this.almacenamiento = almacenamiento;
+        this.archivoRepo = archivoRepo;
+        // Se usa desde afterCommit: la transacción del llamador ya terminó
+        this.transaccionIndice = new TransactionTemplate(transactionManager);
+        this.transaccionIndice.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.antiguedadHuerfanosHoras = antiguedadHuerfanosHoras;
+        this.depuracionHabilitada = depuracionHabilitada;
+        log.info("Almacenamiento de archivos: {}", almacenamiento.nombre());
+    }
+
+    public ArchivoGuardado guardar(MultipartFile archivo, String reporteId, String periodo) throws IOException {
+        return guardar(archivo, archivo.getOriginalFilename(), archivo.getContentType(), archivo.getSize(),
+                reporteId, periodo);
+    }
+
+    /**
+     * Guarda un archivo ya recibido en disco (p. ej. una sesión de subida completa)
+     */
+    public ArchivoGuardado guardar(Path archivo, String nombreOriginal, String tipoContenido,
+                                   String reporteId, String periodo) throws IOException {
+        return guardar(new FileSystemResource(archivo), nombreOriginal, tipoContenido, Files.size(archivo),
+                reporteId, periodo);
+    }
+
+    private ArchivoGuardado guardar(InputStreamSource origen, String nombreOriginal, String tipoContenido,
+                                    long tamano, String reporteId, String periodo) throws IOException {
+        if (!almacenamiento.estaDisponible()) {
+            throw new IOException("El almacenamiento de archivos (" + almacenamiento.nombre()
+                    + ") no está configurado. Use links manuales.");
+        }
+
+        String nombreArchivo = reporteId + "_" + periodo + "_" + nombreOriginal;
+
+        // Mismo contenido ya almacenado: enlazar el archivo existente en lugar de guardar otra copia
+        String sha256 = calcularSha256(origen);
+        ArchivoGuardado existente = buscarDuplicado(sha256, tamano, nombreArchivo);
+        if (existente != null) {
+            return existente;
+        }
+
+        ArchivoGuardado guardado = almacenamiento.guardar(origen, nombreArchivo, tipoContenido, tamano);
+        guardados.incrementAndGet();
+        pendientesDeIndice.put(guardado.id(), new ArchivoAlmacenado(null, almacenamiento.nombre(), sha256, tamano,
+                guardado.id(), guardado.nombre(), guardado.link(), null));
+        return guardado;
+    }
+
+    /**
+     * Registra en el índice un archivo nuevo una vez confirmada la instancia que lo enlaza.
+     * Se llama desde afterCommit; para un archivo reutilizado solo libera la reutilización.
+     */
+    public void confirmarEnIndice(String archivoId) {
+        liberar(archivoId);
+        ArchivoAlmacenado entrada = pendientesDeIndice.remove(archivoId);
+        if (entrada == null) {
+            return;
+        }
+        try {
+            transaccionIndice.executeWithoutResult(status -> archivoRepo.save(entrada));
+        } catch (DataIntegrityViolationException e) {
+            // Otra subida concurrente del mismo contenido se registró primero: esta copia queda sin indexar
+            log.info("Contenido ya indexado por otra subida: {}", archivoId);
+        } catch (RuntimeException e) {
+            // La instancia ya quedó registrada: solo se pierde la deduplicación de este archivo
+            log.warn("⚠️ No se pudo indexar el archivo {}: {}", archivoId, e.getMessage());
+        }
+    }
+
+    /**
+     * Libera la reutilización de un archivo cuya subida terminó sin enlazarlo (o ya lo enlazó)
+     */
+    public void liberar(String archivoId) {
+        reutilizacionesEnCurso.computeIfPresent(archivoId, (id, subidas) -> subidas > 1 ? subidas - 1 : null);
+    }
+
+    /**
+     * Elimina el archivo del almacenamiento y del índice de contenido,
+     * salvo que otra subida en curso lo esté reutilizando
+     */
+    public void eliminar(String archivoId) {
+        pendientesDeIndice.remove(archivoId);
+        liberar(archivoId);
+        if (reutilizacionesEnCurso.containsKey(archivoId)) {
+            log.info("Archivo en uso por otra subida, se conserva: {}", archivoId);
+            return;
+        }
+        almacenamiento.eliminar(archivoId);
+        archivoRepo.deleteByArchivoId(almacenamiento.nombre(), archivoId);
+    }
+
+    public boolean estaDisponible() {
+        return almacenamiento.estaDisponible();
+    }
+
+    public String nombreAlmacenamiento() {
+        return almacenamiento.nombre();
+    }
+
+    // SHA-256 leído por bloques: no carga el archivo completo en memoria
+    private String calcularSha256(InputStreamSource origen) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream entrada = new DigestInputStream(origen.getInputStream(), digest)) {
+            byte[] buffer = new byte[64 * 1024];
+            while (entrada.read(buffer) != -1) {
+                // El digest se actualiza al leer
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Archivo ya almacenado con el mismo contenido, si sigue existiendo.
+     * Las entradas cuyo archivo ya no existe se descartan.
+     * Se reutilizan el id y el link; el nombre es el de esta subida (reporte, periodo y archivo original).
+     */
+    private ArchivoGuardado buscarDuplicado(String sha256, long tamano, String nombreArchivo) throws IOException {
+        ArchivoAlmacenado archivo = archivoRepo.findByAlmacenamientoAndSha256(almacenamiento.nombre(), sha256)
+                .orElse(null);
+        if (archivo == null || archivo.getTamano() != tamano) {
+            return null;
+        }
+        // Se marca antes de comprobar que existe: la depuración ya no lo incluirá en un lote
+        bloqueoHuerfanos.readLock().lock();
+        try {
+            reutilizacionesEnCurso.merge(archivo.getArchivoId(), 1, Integer::sum);
+            if (!almacenamiento.existe(archivo.getArchivoId())) {
+                liberar(archivo.getArchivoId());
+                archivoRepo.deleteByArchivoId(almacenamiento.nombre(), archivo.getArchivoId());
+                return null;
+            }
+        } finally {
+            bloqueoHuerfanos.readLock().unlock();
+        }
+
+        duplicadosEvitados.incrementAndGet();
+        bytesAhorrados.addAndGet(tamano);
+        log.info("✓ Contenido ya almacenado, se reutiliza {} (ID: {})", archivo.getNombreArchivo(), archivo.getArchivoId());
+        return new ArchivoGuardado(archivo.getArchivoId(), nombreArchivo, archivo.getLink());
+    }
+
+    /**
+     * Depuración del almacenamiento y del índice de contenido.
+     * Solo toca archivos registrados en el índice (subidos a través de este servicio).
+     */
+    @Scheduled(cron = "${almacenamiento.depuracion.cron:0 30 3 * * *}")
+    public void depurar() {
+        if (!depuracionHabilitada || !almacenamiento.estaDisponible()) {
+            return;
+        }
+        try {
+            int descartadas = depurarIndice();
+            int eliminados = eliminarHuerfanos();
+            log.info("Depuración de archivos ({}): {} entradas sin archivo, {} archivos huérfanos eliminados",
+                    almacenamiento.nombre(), descartadas, eliminados);
+        } catch (IOException e) {
+            log.warn("⚠️ Depuración de archivos interrumpida: {}", e.getMessage());
+        }
+    }
+
+    // Entradas del índice cuyo archivo ya no existe: se consultan por lotes
+    private int depurarIndice() throws IOException {
+        int descartadas = 0;
+        long ultimoId = 0;
+        List<ArchivoAlmacenado> pagina;
+        do {
+            pagina = archivoRepo.findByAlmacenamientoAndIdGreaterThanOrderById(almacenamiento.nombre(), ultimoId,
+                    Limit.of(TAMANO_LOTE_DEPURACION));
+            if (pagina.isEmpty()) {
+                break;
+            }
+            ultimoId = pagina.get(pagina.size() - 1).getId();
+
+            Map<String, Boolean> existen = almacenamiento.existen(
+                    pagina.stream().map(ArchivoAlmacenado::getArchivoId).toList());
+            for (ArchivoAlmacenado archivo : pagina) {
+                // Sin respuesta para el archivo no se asume que falte
+                if (Boolean.FALSE.equals(existen.get(archivo.getArchivoId()))) {
+                    archivoRepo.delete(archivo);
+                    descartadas++;
+                }
+            }
+        } while (pagina.size() == TAMANO_LOTE_DEPURACION);
+        entradasDescartadas.addAndGet(descartadas);
+        return descartadas;
+    }
+
+    /**
+     * Archivos sin instancia que los referencie (p. ej. una subida cuyo registro falló y no
+     * se pudo compensar). La antigüedad mínima deja fuera los envíos que aún se están registrando.
+     * Con el bloqueo tomado se descartan del lote los archivos que una subida está reutilizando
+     * y los que alguna instancia enlazó después de la consulta.
+     */
+    private int eliminarHuerfanos() throws IOException {
+        LocalDateTime limite = LocalDateTime.now().minusHours(antiguedadHuerfanosHoras);
+        int eliminados = 0;
+        while (true) {
+            List<ArchivoAlmacenado> huerfanos = archivoRepo.findHuerfanos(almacenamiento.nombre(), limite,
+                    Limit.of(TAMANO_LOTE_DEPURACION));
+            if (huerfanos.isEmpty()) {
+                break;
+            }
+
+            Set<String> confirmados;
+            bloqueoHuerfanos.writeLock().lock();
+            try {
+                Set<String> candidatos = new HashSet<>();
+                for (ArchivoAlmacenado archivo : huerfanos) {
+                    if (!reutilizacionesEnCurso.containsKey(archivo.getArchivoId())) {
+                        candidatos.add(archivo.getArchivoId());
+                    }
+                }
+                if (!candidatos.isEmpty()) {
+                    candidatos.removeAll(archivoRepo.findReferenciados(almacenamiento.nombre(), candidatos));
+                }
+                confirmados = candidatos.isEmpty() ? Set.of() : new HashSet<>(almacenamiento.eliminar(candidatos));
+            } finally {
+                bloqueoHuerfanos.writeLock().unlock();
+            }
+            int enLote = 0;
+            for (ArchivoAlmacenado archivo : huerfanos) {
+                if (confirmados.contains(archivo.getArchivoId())) {
+                    archivoRepo.delete(archivo);
+                    enLote++;
+                }
+            }
+            eliminados += enLote;
+            // Si nada se pudo eliminar se reintenta en la próxima ejecución
+            if (enLote == 0 || huerfanos.size() < TAMANO_LOTE_DEPURACION) {
+                break;
+            }
+        }
+        huerfanosEliminados.addAndGet(eliminados);
+        return eliminados;
+    }
+
+    public Map<String, Object> obtenerMetricas() {
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        metricas.put("almacenamiento", almacenamiento.nombre());
+        metricas.put("guardados", guardados.get());
+        metricas.put("duplicadosEvitados", duplicadosEvitados.get());
+        metricas.put("bytesAhorrados", bytesAhorrados.get());
+        metricas.put("entradasDescartadas", entradasDescartadas.get());
+        metricas.put("huerfanosEliminados", huerfanosEliminados.get());
+        return metricas;
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.demo.service.impl;
 
 import com.example.demo.dto.AlertaDTO;
+import com.example.demo.dto.CursorKeyset;
+import com.example.demo.dto.PaginaDTO;
 import com.example.demo.entity.Alerta;
 import com.example.demo.entity.InstanciaReporte;
 import com.example.demo.entity.Usuario;
@@ -8,10 +10,13 @@ import com.example.demo.repository.AlertaRepository;
 import com.example.demo.repository.InstanciaReporteRepository;
 import com.example.demo.repository.UsuarioRepository;
 import com.example.demo.service.AlertaService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -23,6 +28,12 @@ public class AlertaServiceImpl implements AlertaService {
     private final InstanciaReporteRepository instanciaRepo;
     private final UsuarioRepository usuarioRepo;
 
+    @Value("${paginacion.tamano-defecto:50}")
+    private int tamanoPaginaDefecto;
+
+    @Value("${paginacion.tamano-maximo:500}")
+    private int tamanoPaginaMaximo;
+
     public AlertaServiceImpl(AlertaRepository repository,
                              InstanciaReporteRepository instanciaRepo,
                              UsuarioRepository usuarioRepo) {
@@ -42,9 +53,25 @@ public class AlertaServiceImpl implements AlertaService {
                 .orElseThrow(() -> new RuntimeException("Alerta no encontrada"));
     }
 
+    /**
+     * Crea la alerta o, si ya existe el episodio (instancia, usuario, tipo), registra un nuevo disparo
+     */
     @Override
+    @Transactional
     public Alerta crear(Alerta alerta) {
-        return repository.save(alerta);
+        if (alerta.getInstancia() == null || alerta.getUsuarioDestino() == null || alerta.getTipo() == null) {
+            throw new RuntimeException("La alerta requiere instancia, usuario destino y tipo");
+        }
+
+        Integer instanciaId = alerta.getInstancia().getId();
+        Integer usuarioId = alerta.getUsuarioDestino().getId();
+        Integer tipoId = alerta.getTipo().getId();
+        LocalDateTime ahora = LocalDateTime.now();
+
+        repository.registrarDisparo(instanciaId, usuarioId, tipoId, alerta.getMensaje(), ahora, ahora);
+
+        return repository.findByInstanciaIdAndUsuarioDestinoIdAndTipoId(instanciaId, usuarioId, tipoId)
+                .orElseThrow(() -> new RuntimeException("Alerta no encontrada"));
     }
 
     @Override
@@ -131,7 +158,7 @@ public class AlertaServiceImpl implements AlertaService {
     @Override
     public long contarAlertasNoLeidasUsuarioActual(Authentication authentication) {
         Usuario usuario = obtenerUsuarioAutenticado(authentication);
-        return repository.findByUsuarioDestinoAndLeidaFalse(usuario).size();
+        return repository.countByUsuarioDestinoAndLeidaFalse(usuario);
     }
 
     @Override
@@ -169,13 +196,8 @@ public class AlertaServiceImpl implements AlertaService {
     @Override
     public List<AlertaDTO> listarTodasDTO(Authentication authentication) {
         // Verificar que sea admin - esto es para ver TODAS las alertas del sistema (panel de administración)
-        Usuario usuario = obtenerUsuarioAutenticado(authentication);
-        String rol = usuario.getRol() != null ? usuario.getRol().getNombre().toUpperCase() : "";
-        
-        if (!rol.contains("ADMIN")) {
-            throw new RuntimeException("Acceso denegado: solo administradores");
-        }
-        
+        validarEsAdministrador(authentication);
+
         return repository.findAll().stream()
                 .map(this::convertirADTO)
                 .sorted(Comparator.comparing(AlertaDTO::getFechaProgramada).reversed())
@@ -184,13 +206,8 @@ public class AlertaServiceImpl implements AlertaService {
 
     @Override
     public List<AlertaDTO> listarTodasNoLeidasDTO(Authentication authentication) {
-        Usuario usuario = obtenerUsuarioAutenticado(authentication);
-        String rol = usuario.getRol() != null ? usuario.getRol().getNombre().toUpperCase() : "";
-        
-        if (!rol.contains("ADMIN")) {
-            throw new RuntimeException("Acceso denegado: solo administradores");
-        }
-        
+        validarEsAdministrador(authentication);
+
         return repository.findAll().stream()
                 .filter(a -> !a.isLeida())
                 .map(this::convertirADTO)
@@ -198,8 +215,51 @@ public class AlertaServiceImpl implements AlertaService {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public PaginaDTO<AlertaDTO> listarTodasDTOPaginado(Authentication authentication, boolean soloNoLeidas,
+                                                       String cursor, Integer limite) {
+        validarEsAdministrador(authentication);
+
+        int tamano = limite == null || limite <= 0 ? tamanoPaginaDefecto : Math.min(limite, tamanoPaginaMaximo);
+        List<Alerta> alertas;
+
+        if (cursor == null || cursor.isBlank()) {
+            alertas = repository.findPrimeraPagina(soloNoLeidas, Limit.of(tamano + 1));
+        } else {
+            CursorKeyset c = CursorKeyset.decodificar(cursor);
+            alertas = repository.findPaginaDespuesDe(
+                    soloNoLeidas, LocalDateTime.parse(c.valor()), c.id(), Limit.of(tamano + 1));
+        }
+
+        // Se piden tamano + 1 filas: si llega la fila extra, hay página siguiente
+        boolean haySiguiente = alertas.size() > tamano;
+        List<Alerta> pagina = haySiguiente ? alertas.subList(0, tamano) : alertas;
+
+        String siguienteCursor = null;
+        if (haySiguiente) {
+            Alerta ultima = pagina.get(pagina.size() - 1);
+            siguienteCursor = new CursorKeyset(ultima.getFechaProgramada().toString(), ultima.getId()).codificar();
+        }
+
+        long total = soloNoLeidas ? repository.countByLeidaFalse() : repository.count();
+
+        return new PaginaDTO<>(
+                pagina.stream().map(this::convertirADTO).collect(Collectors.toList()),
+                siguienteCursor,
+                total);
+    }
+
     // ==================== MÉTODOS AUXILIARES ====================
 
+    private void validarEsAdministrador(Authentication authentication) {
+        Usuario usuario = obtenerUsuarioAutenticado(authentication);
+        String rol = usuario.getRol() != null ? usuario.getRol().getNombre().toUpperCase() : "";
+
+        if (!rol.contains("ADMIN")) {
+            throw new RuntimeException("Acceso denegado: solo administradores");
+        }
+    }
+
     private Usuario obtenerUsuarioAutenticado(Authentication authentication) {
         String correo = authentication.getName();
         return usuarioRepo.findByCorreo(correo)
@@ -236,6 +296,9 @@ public class AlertaServiceImpl implements AlertaService {
         dto.setEnviada(alerta.isEnviada());
         dto.setMensaje(alerta.getMensaje());
         dto.setLeida(alerta.isLeida());
+        dto.setFechaPrimerDisparo(alerta.getFechaPrimerDisparo());
+        dto.setFechaUltimoDisparo(alerta.getFechaUltimoDisparo());
+        dto.setOcurrencias(alerta.getOcurrencias());
         
         return dto;
     }
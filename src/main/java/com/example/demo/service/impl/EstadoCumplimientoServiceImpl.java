@@ -1,5 +1,6 @@
 package com.example.demo.service.impl;
 
+import com.example.demo.dto.VersionDatos;
 import com.example.demo.entity.EstadoCumplimiento;
 import com.example.demo.repository.EstadoCumplimientoRepository;
 import com.example.demo.service.EstadoCumplimientoService;
@@ -26,4 +27,9 @@ public class EstadoCumplimientoServiceImpl implements EstadoCumplimientoService
         return repository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Estado no encontrado"));
     }
+
+    @Override
+    public VersionDatos obtenerVersion() {
+        return repository.findVersion();
+    }
 }
@@ -1,5 +1,6 @@
 package com.example.demo.service.impl;
 
+import com.example.demo.dto.VersionDatos;
 import com.example.demo.entity.Frecuencia;
 import com.example.demo.repository.FrecuenciaRepository;
 import com.example.demo.service.FrecuenciaService;
@@ -26,4 +27,9 @@ public class FrecuenciaServiceImpl implements FrecuenciaService {
         return repository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Frecuencia no encontrada"));
     }
+
+    @Override
+    public VersionDatos obtenerVersion() {
+        return repository.findVersion();
+    }
 }
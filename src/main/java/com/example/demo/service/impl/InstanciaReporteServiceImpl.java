@@ -1,24 +1,48 @@
 package com.example.demo.service.impl;
 
+import com.example.demo.dto.CursorKeyset;
+import com.example.demo.dto.EnvioInstanciaDTO;
 import com.example.demo.dto.InstanciaReporteDTO;
+import com.example.demo.dto.PaginaDTO;
+import com.example.demo.dto.VersionDatos;
 import com.example.demo.entity.*;
 import com.example.demo.repository.*;
 import com.example.demo.service.FechaVencimientoCalculator;
-import com.example.demo.service.GoogleDriveService;
 import com.example.demo.service.InstanciaReporteService;
 import com.example.demo.service.NotificacionService;
+import com.example.demo.service.ReintentoOptimista;
+import com.example.demo.service.almacenamiento.AlmacenamientoArchivos.ArchivoGuardado;
+import com.example.demo.service.almacenamiento.GestorArchivos;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class InstanciaReporteServiceImpl implements InstanciaReporteService {
@@ -29,7 +53,34 @@ public class InstanciaReporteServiceImpl implements InstanciaReporteService {
     private final EstadoCumplimientoRepository estadoRepo;
     private final FechaVencimientoCalculator fechaCalculator;
     private final NotificacionService notificacionService;
-    private final GoogleDriveService driveService;
+    private final GestorArchivos archivos;
+    private final ReintentoOptimista reintento;
+    // Validaciones previas a una subida: transacción de solo lectura que libera la conexión al terminar
+    private final TransactionTemplate lectura;
+
+    // Más recientes primero; el id desempata para que el cursor sea estable
+    private static final Sort ORDEN_HISTORICO = Sort.by(
+            Sort.Order.desc("fechaEnvioReal").nullsLast(),
+            Sort.Order.desc("id"));
+
+    // Asociaciones que usa convertirADTO (equivale a InstanciaReporte.GRAFO_DETALLE)
+    private static final List<String> PLAN_CARGA_DTO = List.of(
+            "reporte", "reporte.entidad", "reporte.frecuencia",
+            "reporte.responsableElaboracion.rol", "reporte.responsableSupervision.rol",
+            "estado", "enviadoPor.rol", "corregidoPor.rol");
+
+    // Rango de la exportación cuando no se indica (BETWEEN con parámetros siempre tipados)
+    private static final LocalDate EXPORTACION_DESDE = LocalDate.of(1900, 1, 1);
+    private static final LocalDate EXPORTACION_HASTA = LocalDate.of(9999, 12, 31);
+
+    @Value("${paginacion.tamano-defecto:50}")
+    private int tamanoPaginaDefecto;
+
+    @Value("${paginacion.tamano-maximo:500}")
+    private int tamanoPaginaMaximo;
+
+    @Value("${instancias.envio-lote.maximo:500}")
+    private int tamanoLoteMaximo;
 
     public InstanciaReporteServiceImpl(InstanciaReporteRepository repository,
             ReporteRepository reporteRepo,
@@ -37,14 +88,19 @@ public class InstanciaReporteServiceImpl implements InstanciaReporteService {
             EstadoCumplimientoRepository estadoRepo,
             FechaVencimientoCalculator fechaCalculator,
             NotificacionService notificacionService,
-            GoogleDriveService driveService) {
+            GestorArchivos archivos,
+            ReintentoOptimista reintento,
+            PlatformTransactionManager transactionManager) {
         this.repository = repository;
         this.reporteRepo = reporteRepo;
         this.usuarioRepo = usuarioRepo;
         this.estadoRepo = estadoRepo;
         this.fechaCalculator = fechaCalculator;
         this.notificacionService = notificacionService;
-        this.driveService = driveService;
+        this.archivos = archivos;
+        this.reintento = reintento;
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
     }
 
     @Override
@@ -54,9 +110,22 @@ public class InstanciaReporteServiceImpl implements InstanciaReporteService {
 
     @Override
     public List<InstanciaReporteDTO> listarDTO() {
-        return repository.findAll().stream()
-                .map(this::convertirADTO)
-                .collect(Collectors.toList());
+        return completarCamposCalculados(repository.findTodasDTO());
+    }
+
+    @Override
+    public PaginaDTO<InstanciaReporteDTO> listarDTOPaginado(String cursor, Integer limite) {
+        int tamano = resolverTamanoPagina(limite);
+        List<InstanciaReporteDTO> instancias;
+
+        if (cursor == null || cursor.isBlank()) {
+            instancias = repository.findPrimeraPagina(Limit.of(tamano + 1));
+        } else {
+            CursorKeyset c = CursorKeyset.decodificar(cursor);
+            instancias = repository.findPaginaDespuesDe(LocalDate.parse(c.valor()), c.id(), Limit.of(tamano + 1));
+        }
+
+        return construirPagina(completarCamposCalculados(instancias), tamano, repository.count());
     }
 
     @Override
@@ -94,6 +163,11 @@ public class InstanciaReporteServiceImpl implements InstanciaReporteService {
         InstanciaReporte existente = obtenerPorId(id);
         String estadoAnterior = existente.getEstado() != null ? existente.getEstado().getNombre() : "Pendiente";
 
+        // Actualización condicional: si el cliente editó una versión anterior, 409 en lugar de pisar el cambio
+        if (instancia.getVersion() != null && !instancia.getVersion().equals(existente.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(InstanciaReporte.class, id);
+        }
+
         // ========== VALIDACIÓN DE INMUTABILIDAD ==========
         // Si la instancia ya fue enviada, NO permitir modificaciones
         if (esInstanciaEnviada(existente)) {
@@ -139,6 +213,17 @@ public class InstanciaReporteServiceImpl implements InstanciaReporteService {
         return estado.contains("ENVIADO") || estado.contains("APROBADO");
     }
 
+    /**
+     * Precondición de los envíos: una instancia enviada solo cambia mediante corrección.
+     * En un reintento por conflicto detecta que otro usuario la envió primero.
+     */
+    private void validarNoEnviada(InstanciaReporte instancia) {
+        if (esInstanciaEnviada(instancia)) {
+            throw new RuntimeException("La instancia " + instancia.getId() + " ya fue enviada. " +
+                    "Use la corrección para reemplazar el reporte.");
+        }
+    }
+
     @Override
     @Transactional
     public void eliminar(Integer id) {
@@ -165,65 +250,254 @@ public class InstanciaReporteServiceImpl implements InstanciaReporteService {
 
     @Override
     public List<InstanciaReporteDTO> listarDTOPorReporte(String reporteId) {
-        return listarPorReporte(reporteId).stream()
-                .map(this::convertirADTO)
-                .collect(Collectors.toList());
+        if (!reporteRepo.existsById(reporteId)) {
+            throw new RuntimeException("Reporte no encontrado");
+        }
+        return completarCamposCalculados(repository.findDTOPorReporte(reporteId));
+    }
+
+    @Override
+    public PaginaDTO<InstanciaReporteDTO> listarDTOPorReportePaginado(String reporteId, String cursor, Integer limite) {
+        int tamano = resolverTamanoPagina(limite);
+        List<InstanciaReporteDTO> instancias;
+
+        if (cursor == null || cursor.isBlank()) {
+            instancias = repository.findPrimeraPaginaPorReporte(reporteId, Limit.of(tamano + 1));
+        } else {
+            CursorKeyset c = CursorKeyset.decodificar(cursor);
+            instancias = repository.findPaginaPorReporteDespuesDe(
+                    reporteId, LocalDate.parse(c.valor()), c.id(), Limit.of(tamano + 1));
+        }
+
+        return construirPagina(completarCamposCalculados(instancias), tamano, repository.countByReporteId(reporteId));
+    }
+
+    private int resolverTamanoPagina(Integer limite) {
+        if (limite == null || limite <= 0) {
+            return tamanoPaginaDefecto;
+        }
+        return Math.min(limite, tamanoPaginaMaximo);
+    }
+
+    /**
+     * Se piden tamano + 1 filas: si llega la fila extra, hay página siguiente
+     */
+    private PaginaDTO<InstanciaReporteDTO> construirPagina(List<InstanciaReporteDTO> instancias, int tamano, long total) {
+        return construirPagina(instancias, tamano, total,
+                i -> new CursorKeyset(i.getFechaVencimientoCalculada().toString(), i.getId()));
+    }
+
+    private PaginaDTO<InstanciaReporteDTO> construirPagina(List<InstanciaReporteDTO> instancias, int tamano, long total,
+                                                          Function<InstanciaReporteDTO, CursorKeyset> cursorDe) {
+        boolean haySiguiente = instancias.size() > tamano;
+        List<InstanciaReporteDTO> pagina = haySiguiente ? instancias.subList(0, tamano) : instancias;
+
+        String siguienteCursor = null;
+        if (haySiguiente) {
+            siguienteCursor = cursorDe.apply(pagina.get(pagina.size() - 1)).codificar();
+        }
+
+        return new PaginaDTO<>(
+                pagina,
+                siguienteCursor,
+                total);
     }
 
     @Override
-    @Transactional
     public InstanciaReporteDTO enviarReporte(Integer id, MultipartFile archivo, String observaciones,
             String linkEvidencia, Authentication authentication) throws IOException {
+        return enviarArchivo(id, (reporteId, periodo) -> archivos.guardar(archivo, reporteId, periodo),
+                observaciones, linkEvidencia, authentication, false);
+    }
 
-        InstanciaReporte instancia = obtenerPorId(id);
-        Usuario usuario = obtenerUsuarioAutenticado(authentication);
+    @Override
+    public InstanciaReporteDTO enviarReporte(Integer id, Path archivo, String nombreArchivo, String tipoContenido,
+            String observaciones, String linkEvidencia, Authentication authentication) throws IOException {
+        return enviarArchivo(id,
+                (reporteId, periodo) -> archivos.guardar(archivo, nombreArchivo, tipoContenido, reporteId, periodo),
+                observaciones, linkEvidencia, authentication, false);
+    }
 
-        // Subir archivo a Drive
-        Map<String, String> resultadoDrive = driveService.uploadFile(
-                archivo,
+    @Override
+    public void validarEnvio(Integer id, Authentication authentication) {
+        validarAntesDeSubir(id, authentication, false);
+    }
+
+    @Override
+    public void marcarSubidaPendiente(Integer id, Authentication authentication) {
+        reintento.ejecutar("marcar-subida " + id, () -> {
+            InstanciaReporte actual = obtenerPorId(id);
+            validarNoEnviada(actual);
+            validarSinSubidaPendiente(actual);
+            obtenerUsuarioAutenticado(authentication);
+
+            actual.setSubidaPendiente(true);
+            return repository.saveAndFlush(actual);
+        });
+    }
+
+    @Override
+    public InstanciaReporteDTO completarSubidaPendiente(Integer id, Path archivo, String nombreArchivo,
+            String tipoContenido, String observaciones, String linkEvidencia,
+            Authentication authentication) throws IOException {
+        return enviarArchivo(id,
+                (reporteId, periodo) -> archivos.guardar(archivo, nombreArchivo, tipoContenido, reporteId, periodo),
+                observaciones, linkEvidencia, authentication, true);
+    }
+
+    @Override
+    public void liberarSubidaPendiente(Integer id) {
+        reintento.ejecutar("liberar-subida " + id, () -> {
+            repository.findById(id).ifPresent(actual -> {
+                actual.setSubidaPendiente(false);
+                repository.saveAndFlush(actual);
+            });
+            return null;
+        });
+    }
+
+    /**
+     * Guarda el archivo en el almacenamiento con la función indicada
+     */
+    @FunctionalInterface
+    private interface SubidaArchivo {
+        ArchivoGuardado subir(String reporteId, String periodo) throws IOException;
+    }
+
+    // Validación previa a la subida en una lectura corta (sin retener la conexión durante la subida)
+    private InstanciaReporte validarAntesDeSubir(Integer id, Authentication authentication,
+                                                 boolean completaPendiente) {
+        return lectura.execute(status -> {
+            InstanciaReporte encontrada = obtenerPorId(id);
+            validarNoEnviada(encontrada);
+            if (!completaPendiente) {
+                validarSinSubidaPendiente(encontrada);
+            }
+            obtenerUsuarioAutenticado(authentication);
+            return encontrada;
+        });
+    }
+
+    /**
+     * Con un envío asíncrono en curso la instancia no admite otro envío
+     */
+    private void validarSinSubidaPendiente(InstanciaReporte instancia) {
+        if (Boolean.TRUE.equals(instancia.getSubidaPendiente())) {
+            throw new RuntimeException("La instancia " + instancia.getId() + " tiene un envío en proceso. " +
+                    "Consulte su estado antes de volver a enviar.");
+        }
+    }
+
+    /**
+     * @param completaPendiente el envío completa uno asíncrono ya aceptado (la instancia tiene la marca)
+     */
+    private InstanciaReporteDTO enviarArchivo(Integer id, SubidaArchivo subida, String observaciones,
+            String linkEvidencia, Authentication authentication, boolean completaPendiente) throws IOException {
+
+        // 1. Validar antes de subir
+        InstanciaReporte instancia = validarAntesDeSubir(id, authentication, completaPendiente);
+
+        // 2. Subir archivo al almacenamiento, fuera de cualquier transacción
+        ArchivoGuardado guardado = subida.subir(
                 instancia.getReporte().getId(),
                 instancia.getPeriodoReportado());
 
-        // Actualizar campos
-        instancia.setLinkReporteFinal(resultadoDrive.get("webViewLink"));
-        instancia.setNombreArchivo(resultadoDrive.get("fileName"));
-        instancia.setDriveFileId(resultadoDrive.get("fileId"));
-        instancia.setLinkEvidenciaEnvio(linkEvidencia);
-        instancia.setObservaciones(observaciones);
-        instancia.setFechaEnvioReal(LocalDateTime.now());
-        instancia.setEnviadoPor(usuario);
-
-        // Calcular días de desviación
-        int diasDesviacion = fechaCalculator.calcularDiasDesviacion(
-                LocalDate.now(),
-                instancia.getFechaVencimientoCalculada());
-        instancia.setDiasDesviacion(diasDesviacion);
-
-        // Seleccionar estado según desviación
-        EstadoCumplimiento estadoEnviado;
-        if (diasDesviacion <= 0) {
-            estadoEnviado = estadoRepo.findByNombre("Enviado a tiempo")
-                    .orElseThrow(() -> new RuntimeException("Estado 'Enviado a tiempo' no encontrado"));
-        } else {
-            estadoEnviado = estadoRepo.findByNombre("Enviado tarde")
-                    .orElseThrow(() -> new RuntimeException("Estado 'Enviado tarde' no encontrado"));
-        }
-        instancia.setEstado(estadoEnviado);
+        // 3. Transacción corta: registrar el archivo y el nuevo estado
+        return registrarSubida("enviar " + id, guardado.id(), () -> {
+            InstanciaReporte actual = obtenerPorId(id);
+            validarNoEnviada(actual);
+            if (!completaPendiente) {
+                validarSinSubidaPendiente(actual);
+            }
+            Usuario usuario = obtenerUsuarioAutenticado(authentication);
+
+            actual.setSubidaPendiente(false);
+            actual.setLinkReporteFinal(guardado.link());
+            actual.setNombreArchivo(guardado.nombre());
+            actual.setDriveFileId(guardado.id());
+            actual.setLinkEvidenciaEnvio(linkEvidencia);
+            actual.setObservaciones(observaciones);
+            actual.setFechaEnvioReal(LocalDateTime.now());
+            actual.setEnviadoPor(usuario);
+
+            // Calcular días de desviación
+            int diasDesviacion = fechaCalculator.calcularDiasDesviacion(
+                    LocalDate.now(),
+                    actual.getFechaVencimientoCalculada());
+            actual.setDiasDesviacion(diasDesviacion);
+
+            // Seleccionar estado según desviación
+            EstadoCumplimiento estadoEnviado;
+            if (diasDesviacion <= 0) {
+                estadoEnviado = estadoRepo.findByNombre("Enviado a tiempo")
+                        .orElseThrow(() -> new RuntimeException("Estado 'Enviado a tiempo' no encontrado"));
+            } else {
+                estadoEnviado = estadoRepo.findByNombre("Enviado tarde")
+                        .orElseThrow(() -> new RuntimeException("Estado 'Enviado tarde' no encontrado"));
+            }
+
+            String estadoAnterior = actual.getEstado() != null
+                    ? actual.getEstado().getNombre()
+                    : "Pendiente";
 
-        InstanciaReporte actualizada = repository.save(instancia);
+            actual.setEstado(estadoEnviado);
 
-        // Notificación
+            InstanciaReporte actualizada = repository.saveAndFlush(actual);
+
+            // Notificación (se encola al confirmar)
+            notificacionService.enviarNotificacionesCambioEstado(
+                    List.of(actualizada), Map.of(actualizada.getId(), estadoAnterior));
+
+            return convertirADTO(actualizada);
+        });
+    }
+
+    /**
+     * Registra en una transacción corta (con reintento ante conflicto de versión) un archivo
+     * ya guardado en el almacenamiento. Si la transacción no llega a confirmarse, el archivo
+     * se elimina para no dejarlo huérfano. Un archivo nuevo solo entra al índice de contenido
+     * al confirmarse: antes de eso ninguna otra subida puede reutilizarlo.
+     */
+    private <T> T registrarSubida(String operacion, String archivoId, Supplier<T> registro) {
+        AtomicBoolean confirmada = new AtomicBoolean();
         try {
-            notificacionService.enviarNotificacionCambioEstado(actualizada, estadoEnviado.getNombre());
-        } catch (Exception e) {
-            System.err.println("⚠️ Error al enviar notificación: " + e.getMessage());
+            return reintento.ejecutar(operacion, () -> {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        confirmada.set(true);
+                        if (archivoId != null) {
+                            archivos.confirmarEnIndice(archivoId);
+                        }
+                    }
+                });
+                return registro.get();
+            });
+        } catch (RuntimeException e) {
+            if (!confirmada.get() && archivoId != null) {
+                if (archivoReferenciado(archivoId)) {
+                    archivos.liberar(archivoId);
+                } else {
+                    System.err.println("⚠️ No se registró " + operacion + " (" + e.getMessage()
+                            + "). Eliminando el archivo " + archivoId);
+                    archivos.eliminar(archivoId);
+                }
+            }
+            throw e;
         }
+    }
 
-        return convertirADTO(actualizada);
+    // Un archivo reutilizado por contenido puede estar enlazado ya desde otra instancia
+    private boolean archivoReferenciado(String archivoId) {
+        try {
+            return repository.existsByDriveFileIdOrDriveFileIdCorreccion(archivoId, archivoId);
+        } catch (RuntimeException e) {
+            // Ante la duda se conserva el archivo: un huérfano es preferible a un enlace roto
+            return true;
+        }
     }
 
     @Override
-    @Transactional
     public InstanciaReporteDTO enviarReporteConLink(
             Integer id,
             String linkReporte,
@@ -231,173 +505,254 @@ public class InstanciaReporteServiceImpl implements InstanciaReporteService {
             String linkEvidencia,
             Authentication authentication) {
 
-        InstanciaReporte instancia = obtenerPorId(id);
-        Usuario usuario = obtenerUsuarioAutenticado(authentication);
+        // Transición idempotente: ante un conflicto de versión se relee la instancia y se repite
+        return reintento.ejecutar("enviar-link " + id, () -> {
+            InstanciaReporte instancia = obtenerPorId(id);
+            validarNoEnviada(instancia);
+            validarSinSubidaPendiente(instancia);
+            Usuario usuario = obtenerUsuarioAutenticado(authentication);
+
+            // 1. GUARDAR INFORMACIÓN DEL LINK ENVIADO
+            instancia.setLinkReporteFinal(linkReporte);
+            instancia.setLinkEvidenciaEnvio(linkEvidencia);
+            instancia.setObservaciones(observaciones);
+            instancia.setFechaEnvioReal(LocalDateTime.now());
+            instancia.setEnviadoPor(usuario);
+
+            // Como no se sube archivo, dejamos estos campos en null o como "externo"
+            instancia.setDriveFileId(null);
+            instancia.setNombreArchivo("Enviado mediante link");
+
+            // 2. CALCULAR DÍAS DE DESVIACIÓN
+            int diasDesviacion = fechaCalculator.calcularDiasDesviacion(
+                    LocalDate.now(),
+                    instancia.getFechaVencimientoCalculada());
+            instancia.setDiasDesviacion(diasDesviacion);
 
-        // 1. GUARDAR INFORMACIÓN DEL LINK ENVIADO
-        instancia.setLinkReporteFinal(linkReporte);
-        instancia.setLinkEvidenciaEnvio(linkEvidencia);
-        instancia.setObservaciones(observaciones);
-        instancia.setFechaEnvioReal(LocalDateTime.now());
-        instancia.setEnviadoPor(usuario);
-
-        // Como no se sube archivo, dejamos estos campos en null o como "externo"
-        instancia.setDriveFileId(null);
-        instancia.setNombreArchivo("Enviado mediante link");
-
-        // 2. CALCULAR DÍAS DE DESVIACIÓN
-        int diasDesviacion = fechaCalculator.calcularDiasDesviacion(
-                LocalDate.now(),
-                instancia.getFechaVencimientoCalculada());
-        instancia.setDiasDesviacion(diasDesviacion);
-
-        // 3. ASIGNAR ESTADO
-        EstadoCumplimiento estadoEnviado;
-
-        if (diasDesviacion <= 0) {
-            estadoEnviado = estadoRepo.findByNombre("Enviado a tiempo")
-                    .orElseThrow(() -> new RuntimeException("Estado 'Enviado a tiempo' no encontrado"));
-        } else {
-            estadoEnviado = estadoRepo.findByNombre("Enviado tarde")
-                    .orElseThrow(() -> new RuntimeException("Estado 'Enviado tarde' no encontrado"));
-        }
+            // 3. ASIGNAR ESTADO
+            EstadoCumplimiento estadoEnviado;
 
-        String estadoAnterior = instancia.getEstado() != null
-                ? instancia.getEstado().getNombre()
-                : "Pendiente";
+            if (diasDesviacion <= 0) {
+                estadoEnviado = estadoRepo.findByNombre("Enviado a tiempo")
+                        .orElseThrow(() -> new RuntimeException("Estado 'Enviado a tiempo' no encontrado"));
+            } else {
+                estadoEnviado = estadoRepo.findByNombre("Enviado tarde")
+                        .orElseThrow(() -> new RuntimeException("Estado 'Enviado tarde' no encontrado"));
+            }
 
-        instancia.setEstado(estadoEnviado);
+            String estadoAnterior = instancia.getEstado() != null
+                    ? instancia.getEstado().getNombre()
+                    : "Pendiente";
 
-        // 4. GUARDAR CAMBIOS
-        InstanciaReporte actualizada = repository.save(instancia);
+            instancia.setEstado(estadoEnviado);
 
-        // 5. NOTIFICACIÓN
-        try {
-            notificacionService.enviarNotificacionCambioEstado(
-                    actualizada,
-                    estadoAnterior);
-        } catch (Exception e) {
-            System.err.println("⚠️ Error al enviar notificación: " + e.getMessage());
-        }
+            // 4. GUARDAR CAMBIOS (el flush comprueba la versión aquí, dentro del intento)
+            InstanciaReporte actualizada = repository.saveAndFlush(instancia);
 
-        System.out.println("✓ Reporte enviado mediante link: " + instancia.getReporte().getId()
-                + " - Periodo: " + instancia.getPeriodoReportado());
+            // 5. NOTIFICACIÓN (se encola al confirmar: un intento fallido no notifica)
+            notificacionService.enviarNotificacionesCambioEstado(
+                    List.of(actualizada), Map.of(actualizada.getId(), estadoAnterior));
 
-        return convertirADTO(actualizada);
+            System.out.println("✓ Reporte enviado mediante link: " + instancia.getReporte().getId()
+                    + " - Periodo: " + instancia.getPeriodoReportado());
+
+            return convertirADTO(actualizada);
+        });
     }
 
     @Override
-    public List<InstanciaReporteDTO> listarPendientes() {
-        return repository.findAll().stream()
-                .filter(i -> {
-                    String estado = i.getEstado().getNombre().toUpperCase();
+    public List<InstanciaReporteDTO> enviarLoteConLink(List<EnvioInstanciaDTO> envios, Authentication authentication) {
+        // Ante un conflicto de versión se repite el lote completo con las instancias releídas
+        return reintento.ejecutar("enviar-lote", () -> enviarLoteEnTransaccion(envios, authentication));
+    }
+
+    private List<InstanciaReporteDTO> enviarLoteEnTransaccion(List<EnvioInstanciaDTO> envios, Authentication authentication) {
+        Usuario usuario = obtenerUsuarioAutenticado(authentication);
+        validarEsAdministrador(usuario, "Solo los administradores pueden enviar instancias por lotes.");
 
-                    boolean esPendiente = estado.contains("PENDIENTE") || estado.contains("EN PROCESO");
-                    boolean esEnviado = estado.contains("ENVIADO A TIEMPO") || estado.contains("ENVIADO TARDE");
+        if (envios == null || envios.isEmpty()) {
+            throw new RuntimeException("El lote está vacío");
+        }
+        if (envios.size() > tamanoLoteMaximo) {
+            throw new RuntimeException("El lote supera el máximo de " + tamanoLoteMaximo + " instancias");
+        }
+
+        Map<Integer, EnvioInstanciaDTO> porId = new LinkedHashMap<>();
+        for (EnvioInstanciaDTO envio : envios) {
+            if (envio.getInstanciaId() == null) {
+                throw new RuntimeException("Cada elemento del lote debe indicar instanciaId");
+            }
+            if (envio.getLinkReporte() == null || envio.getLinkReporte().isBlank()) {
+                throw new RuntimeException("Falta linkReporte para la instancia " + envio.getInstanciaId());
+            }
+            if (porId.put(envio.getInstanciaId(), envio) != null) {
+                throw new RuntimeException("La instancia " + envio.getInstanciaId() + " aparece más de una vez en el lote");
+            }
+        }
 
-                    return esPendiente && !esEnviado;
+        // Validación en una sola consulta: existen todas y ninguna fue enviada ya
+        Map<Integer, InstanciaReporte> instancias = repository.findByIdIn(porId.keySet()).stream()
+                .collect(Collectors.toMap(InstanciaReporte::getId, Function.identity()));
 
-                })
+        List<Integer> inexistentes = porId.keySet().stream()
+                .filter(id -> !instancias.containsKey(id))
+                .toList();
+        if (!inexistentes.isEmpty()) {
+            throw new RuntimeException("Instancias no encontradas: " + inexistentes);
+        }
+        List<Integer> yaEnviadas = instancias.values().stream()
+                .filter(this::esInstanciaEnviada)
+                .map(InstanciaReporte::getId)
+                .sorted()
+                .toList();
+        if (!yaEnviadas.isEmpty()) {
+            throw new RuntimeException("Instancias ya enviadas (use la corrección): " + yaEnviadas);
+        }
+        List<Integer> conSubidaPendiente = instancias.values().stream()
+                .filter(instancia -> Boolean.TRUE.equals(instancia.getSubidaPendiente()))
+                .map(InstanciaReporte::getId)
+                .sorted()
+                .toList();
+        if (!conSubidaPendiente.isEmpty()) {
+            throw new RuntimeException("Instancias con un envío en proceso: " + conSubidaPendiente);
+        }
+
+        EstadoCumplimiento aTiempo = estadoRepo.findByNombre("Enviado a tiempo")
+                .orElseThrow(() -> new RuntimeException("Estado 'Enviado a tiempo' no encontrado"));
+        EstadoCumplimiento tarde = estadoRepo.findByNombre("Enviado tarde")
+                .orElseThrow(() -> new RuntimeException("Estado 'Enviado tarde' no encontrado"));
+
+        LocalDate hoy = LocalDate.now();
+        LocalDateTime ahora = LocalDateTime.now();
+        // Por id: la entidad cambia justo después y su hashCode (@Data) cambiaría con ella
+        List<InstanciaReporte> enviadas = new ArrayList<>();
+        Map<Integer, String> estadosAnteriores = new LinkedHashMap<>();
+
+        for (EnvioInstanciaDTO envio : porId.values()) {
+            InstanciaReporte instancia = instancias.get(envio.getInstanciaId());
+            enviadas.add(instancia);
+            estadosAnteriores.put(instancia.getId(), instancia.getEstado() != null
+                    ? instancia.getEstado().getNombre()
+                    : "Pendiente");
+
+            instancia.setLinkReporteFinal(envio.getLinkReporte());
+            instancia.setLinkEvidenciaEnvio(envio.getLinkEvidenciaEnvio());
+            instancia.setObservaciones(envio.getObservaciones());
+            instancia.setFechaEnvioReal(ahora);
+            instancia.setEnviadoPor(usuario);
+            instancia.setDriveFileId(null);
+            instancia.setNombreArchivo("Enviado mediante link");
+
+            int diasDesviacion = fechaCalculator.calcularDiasDesviacion(hoy, instancia.getFechaVencimientoCalculada());
+            instancia.setDiasDesviacion(diasDesviacion);
+            instancia.setEstado(diasDesviacion <= 0 ? aTiempo : tarde);
+        }
+
+        // Las instancias están gestionadas: el flush agrupa los UPDATE (hibernate.jdbc.batch_size)
+        // y comprueba la versión de cada fila. Las notificaciones se encolan juntas tras el commit.
+        repository.flush();
+        notificacionService.enviarNotificacionesCambioEstado(enviadas, estadosAnteriores);
+
+        System.out.println("✓ Lote enviado mediante link: " + enviadas.size() + " instancias");
+
+        return enviadas.stream()
                 .map(this::convertirADTO)
-                .sorted((a, b) -> {
-                    if (a.getFechaVencimientoCalculada() == null)
-                        return 1;
-                    if (b.getFechaVencimientoCalculada() == null)
-                        return -1;
-                    return a.getFechaVencimientoCalculada().compareTo(b.getFechaVencimientoCalculada());
-                })
-                .collect(Collectors.toList());
+                .toList();
+    }
+
+    @Override
+    public List<InstanciaReporteDTO> listarPendientes() {
+        return completarCamposCalculados(repository.findPendientesOrdenados());
     }
 
     @Override
     public List<InstanciaReporteDTO> listarVencidos() {
-        LocalDate hoy = LocalDate.now();
+        return completarCamposCalculados(repository.findVencidosOrdenados(LocalDate.now()));
+    }
 
-        return repository.findAll().stream()
-                .filter(i -> {
-                    String estado = i.getEstado().getNombre().toUpperCase();
+    @Override
+    @Transactional(readOnly = true)
+    public long exportar(LocalDate desde, LocalDate hasta, Consumer<InstanciaReporteDTO> destino) {
+        long exportadas = 0;
+        try (Stream<InstanciaReporteDTO> instancias = repository.streamDTOEntre(
+                desde != null ? desde : EXPORTACION_DESDE, hasta != null ? hasta : EXPORTACION_HASTA)) {
+            Iterator<InstanciaReporteDTO> it = instancias.iterator();
+            while (it.hasNext()) {
+                destino.accept(completarCamposCalculados(it.next()));
+                exportadas++;
+            }
+        }
+        return exportadas;
+    }
 
-                    // Si ya fue enviado → NO es vencido
-                    boolean yaEnviado = estado.contains("ENVIADO A TIEMPO") ||
-                            estado.contains("ENVIADO TARDE") ||
-                            estado.contains("APROBADO");
+    // Días hasta vencimiento y prioridad dependen de la fecha: la versión cambia también cada día
 
-                    if (yaEnviado)
-                        return false;
+    @Override
+    public VersionDatos obtenerVersion() {
+        return repository.findVersion().noAnteriorA(LocalDate.now().atStartOfDay());
+    }
 
-                    // Fecha vencida
-                    boolean vencido = i.getFechaVencimientoCalculada() != null &&
-                            i.getFechaVencimientoCalculada().isBefore(hoy);
+    @Override
+    public VersionDatos obtenerVersionPendientes() {
+        return repository.findVersionSinEnviar().noAnteriorA(LocalDate.now().atStartOfDay());
+    }
 
-                    return vencido;
-                })
+    @Override
+    public List<InstanciaReporteDTO> listarHistorico(String reporteId, Integer entidadId, Integer year, Integer mes, Authentication authentication) {
+        return repository.findAll(filtroHistorico(reporteId, entidadId, year, mes, authentication), ORDEN_HISTORICO)
+                .stream()
                 .map(this::convertirADTO)
-                .sorted((a, b) -> {
-                    if (a.getFechaVencimientoCalculada() == null)
-                        return 1;
-                    if (b.getFechaVencimientoCalculada() == null)
-                        return -1;
-                    return a.getFechaVencimientoCalculada().compareTo(b.getFechaVencimientoCalculada());
-                })
                 .collect(Collectors.toList());
     }
 
     @Override
-    public List<InstanciaReporteDTO> listarHistorico(String reporteId, Integer entidadId, Integer year, Integer mes, Authentication authentication) {
-        // Obtener usuario autenticado y su rol
-        Usuario usuario = obtenerUsuarioAutenticado(authentication);
-        String rol = usuario.getRol() != null ? usuario.getRol().getNombre().toUpperCase() : "";
-        
-        return repository.findAll().stream()
-                .filter(i -> {
-                    String estado = i.getEstado().getNombre().toUpperCase();
-                    return estado.contains("ENVIADO A TIEMPO")
-                            || estado.contains("ENVIADO TARDE")
-                            || estado.contains("APROBADO");
-
-                })
-                // Filtro por rol
-                .filter(i -> {
-                    if (rol.contains("ADMIN")) {
-                        // Admin ve todo
-                        return true;
-                    } else if (rol.contains("SUPERVISOR") || rol.contains("SUPERV")) {
-                        // Supervisor ve solo los reportes de sus supervisados
-                        return i.getReporte() != null 
-                                && i.getReporte().getResponsableSupervision() != null
-                                && i.getReporte().getResponsableSupervision().getId().equals(usuario.getId());
-                    } else {
-                        // Responsable ve solo sus reportes
-                        return i.getReporte() != null 
-                                && i.getReporte().getResponsableElaboracion() != null
-                                && i.getReporte().getResponsableElaboracion().getId().equals(usuario.getId());
-                    }
-                })
-                .filter(i -> reporteId == null || i.getReporte().getId().equals(reporteId))
-                .filter(i -> entidadId == null || i.getReporte().getEntidad().getId().equals(entidadId))
-                .filter(i -> {
-                    if (year == null)
-                        return true;
-                    if (i.getFechaEnvioReal() == null)
-                        return false;
-                    return i.getFechaEnvioReal().getYear() == year;
-                })
-                .filter(i -> {
-                    if (mes == null)
-                        return true;
-                    if (i.getFechaEnvioReal() == null)
-                        return false;
-                    return i.getFechaEnvioReal().getMonthValue() == mes;
-                })
+    public PaginaDTO<InstanciaReporteDTO> listarHistoricoPaginado(String reporteId, Integer entidadId, Integer year,
+                                                                  Integer mes, String cursor, Integer limite,
+                                                                  Authentication authentication) {
+        int tamano = resolverTamanoPagina(limite);
+        Specification<InstanciaReporte> filtro = filtroHistorico(reporteId, entidadId, year, mes, authentication);
+
+        Specification<InstanciaReporte> consulta = filtro;
+        if (cursor != null && !cursor.isBlank()) {
+            CursorKeyset c = CursorKeyset.decodificar(cursor);
+            LocalDateTime fecha = c.valor().isEmpty() ? null : LocalDateTime.parse(c.valor());
+            consulta = filtro.and(InstanciaReporteSpecs.enviadaAntesDe(fecha, c.id()));
+        }
+
+        List<InstanciaReporteDTO> instancias = repository.findBy(consulta,
+                q -> q.sortBy(ORDEN_HISTORICO).project(PLAN_CARGA_DTO).limit(tamano + 1).all())
+                .stream()
                 .map(this::convertirADTO)
-                .sorted((a, b) -> {
-                    if (a.getFechaEnvioReal() == null)
-                        return 1;
-                    if (b.getFechaEnvioReal() == null)
-                        return -1;
-                    return b.getFechaEnvioReal().compareTo(a.getFechaEnvioReal()); // Más recientes primero
-                })
                 .collect(Collectors.toList());
+
+        return construirPagina(instancias, tamano, repository.count(filtro),
+                i -> new CursorKeyset(i.getFechaEnvioReal() != null ? i.getFechaEnvioReal().toString() : "", i.getId()));
+    }
+
+    /**
+     * Todos los filtros del histórico en una sola consulta, incluido el alcance del rol:
+     * - Admin: ve todo
+     * - Supervisor: solo reportes de sus supervisados
+     * - Responsable: solo sus reportes
+     */
+    private Specification<InstanciaReporte> filtroHistorico(String reporteId, Integer entidadId, Integer year,
+                                                            Integer mes, Authentication authentication) {
+        Usuario usuario = obtenerUsuarioAutenticado(authentication);
+        String rol = usuario.getRol() != null ? usuario.getRol().getNombre().toUpperCase() : "";
+
+        Specification<InstanciaReporte> filtro = InstanciaReporteSpecs.enviadas();
+        if (rol.contains("ADMIN")) {
+            // Sin restricción
+        } else if (rol.contains("SUPERVISOR") || rol.contains("SUPERV")) {
+            filtro = filtro.and(InstanciaReporteSpecs.deSupervisor(usuario.getId()));
+        } else {
+            filtro = filtro.and(InstanciaReporteSpecs.deResponsable(usuario.getId()));
+        }
+
+        return filtro
+                .and(InstanciaReporteSpecs.deReporte(reporteId))
+                .and(InstanciaReporteSpecs.deEntidad(entidadId))
+                .and(InstanciaReporteSpecs.enviadaEn(year, mes));
     }
 
     // ==================== MÉTODOS AUXILIARES ====================
@@ -441,12 +796,6 @@ public class InstanciaReporteServiceImpl implements InstanciaReporteService {
         dto.setEstadoId(instancia.getEstado().getId());
         dto.setDiasDesviacion(instancia.getDiasDesviacion());
 
-        // Calcular días hasta vencimiento
-        if (instancia.getFechaVencimientoCalculada() != null) {
-            long dias = ChronoUnit.DAYS.between(LocalDate.now(), instancia.getFechaVencimientoCalculada());
-            dto.setDiasHastaVencimiento((int) dias);
-        }
-
         // Archivos y links
         dto.setLinkReporteFinal(instancia.getLinkReporteFinal());
         dto.setLinkEvidenciaEnvio(instancia.getLinkEvidenciaEnvio());
@@ -463,19 +812,50 @@ public class InstanciaReporteServiceImpl implements InstanciaReporteService {
         dto.setObservaciones(instancia.getObservaciones());
         dto.setFechaCreacion(instancia.getFechaCreacion());
         dto.setFechaActualizacion(instancia.getFechaActualizacion());
+        dto.setVersion(instancia.getVersion());
+        dto.setSubidaPendiente(instancia.getSubidaPendiente() != null && instancia.getSubidaPendiente());
 
-        // Estados calculados
-        String estado = instancia.getEstado().getNombre().toUpperCase();
+        // ========== CAMPOS DE CORRECCIÓN ==========
+        dto.setTieneCorreccion(instancia.getTieneCorreccion() != null && instancia.getTieneCorreccion());
+        dto.setLinkCorreccion(instancia.getLinkCorreccion());
+        dto.setDriveFileIdCorreccion(instancia.getDriveFileIdCorreccion());
+        dto.setNombreArchivoCorreccion(instancia.getNombreArchivoCorreccion());
+        dto.setMotivoCorreccion(instancia.getMotivoCorreccion());
+        dto.setFechaCorreccion(instancia.getFechaCorreccion());
+        
+        if (instancia.getCorregidoPor() != null) {
+            dto.setCorregidoPorNombre(instancia.getCorregidoPor().getNombreCompleto());
+            dto.setCorregidoPorId(instancia.getCorregidoPor().getId());
+        }
+        // ==================================================
+
+        return completarCamposCalculados(dto);
+    }
+
+    private List<InstanciaReporteDTO> completarCamposCalculados(List<InstanciaReporteDTO> dtos) {
+        dtos.forEach(this::completarCamposCalculados);
+        return dtos;
+    }
+
+    /**
+     * Campos derivados de las columnas ya cargadas en el DTO (entidad o proyección)
+     */
+    private InstanciaReporteDTO completarCamposCalculados(InstanciaReporteDTO dto) {
+        LocalDate hoy = LocalDate.now();
+
+        String estado = dto.getEstadoNombre() != null ? dto.getEstadoNombre().toUpperCase() : "";
         dto.setEnviado(
                 estado.contains("ENVIADO A TIEMPO") ||
                         estado.contains("ENVIADO TARDE") ||
                         estado.contains("APROBADO"));
 
-        if (instancia.getFechaVencimientoCalculada() != null) {
-            dto.setVencido(!dto.isEnviado() && instancia.getFechaVencimientoCalculada().isBefore(LocalDate.now()));
+        if (dto.getFechaVencimientoCalculada() != null) {
+            // Días hasta vencimiento
+            long dias = ChronoUnit.DAYS.between(hoy, dto.getFechaVencimientoCalculada());
+            dto.setDiasHastaVencimiento((int) dias);
+            dto.setVencido(!dto.isEnviado() && dto.getFechaVencimientoCalculada().isBefore(hoy));
 
             // Prioridad
-            long dias = ChronoUnit.DAYS.between(LocalDate.now(), instancia.getFechaVencimientoCalculada());
             if (dto.isEnviado()) {
                 dto.setPrioridad("BAJA");
             } else if (dias < 0) {
@@ -491,72 +871,69 @@ public class InstanciaReporteServiceImpl implements InstanciaReporteService {
             dto.setPrioridad("MEDIA");
         }
 
-        // ========== CAMPOS DE CORRECCIÓN ==========
-        dto.setTieneCorreccion(instancia.getTieneCorreccion() != null && instancia.getTieneCorreccion());
-        dto.setLinkCorreccion(instancia.getLinkCorreccion());
-        dto.setDriveFileIdCorreccion(instancia.getDriveFileIdCorreccion());
-        dto.setNombreArchivoCorreccion(instancia.getNombreArchivoCorreccion());
-        dto.setMotivoCorreccion(instancia.getMotivoCorreccion());
-        dto.setFechaCorreccion(instancia.getFechaCorreccion());
-        
-        if (instancia.getCorregidoPor() != null) {
-            dto.setCorregidoPorNombre(instancia.getCorregidoPor().getNombreCompleto());
-            dto.setCorregidoPorId(instancia.getCorregidoPor().getId());
-        }
-        
         // Solo se puede corregir si ya fue enviado
         dto.setPuedeCorregir(dto.isEnviado());
-        // ==================================================
-
         return dto;
     }
 
     // ==================== MÉTODOS DE CORRECCIÓN ====================
 
     @Override
-    @Transactional
     public InstanciaReporteDTO corregirReporte(Integer id, MultipartFile archivo, String motivo,
                                                 Authentication authentication) throws IOException {
-        
-        InstanciaReporte instancia = obtenerPorId(id);
-        Usuario usuario = obtenerUsuarioAutenticado(authentication);
-        
-        // Validar que sea administrador
-        validarEsAdministrador(usuario);
-        
-        // Validar que la instancia ya fue enviada
-        if (!esInstanciaEnviada(instancia)) {
-            throw new RuntimeException("Solo se pueden corregir reportes que ya fueron enviados. " +
-                    "Si el reporte aún no se envía, puede editarlo normalmente.");
-        }
-        
+
+        // 1. Validar antes de subir (sin retener la conexión durante la subida)
+        InstanciaReporte instancia = lectura.execute(status -> {
+            InstanciaReporte encontrada = obtenerPorId(id);
+            validarCorreccion(encontrada, authentication);
+            return encontrada;
+        });
+
         // Validar que se proporcione un motivo
         if (motivo == null || motivo.trim().isEmpty()) {
             throw new RuntimeException("Debe proporcionar un motivo para la corrección.");
         }
 
-        // Subir archivo de corrección a Drive (el original NO se toca)
-        Map<String, String> resultadoDrive = driveService.uploadFile(
+        // 2. Subir archivo de corrección (el original NO se toca), fuera de cualquier transacción
+        ArchivoGuardado guardado = archivos.guardar(
                 archivo,
                 instancia.getReporte().getId() + "_CORRECCION",
                 instancia.getPeriodoReportado());
 
-        // Actualizar campos de corrección
-        instancia.setTieneCorreccion(true);
-        instancia.setLinkCorreccion(resultadoDrive.get("webViewLink"));
-        instancia.setDriveFileIdCorreccion(resultadoDrive.get("fileId"));
-        instancia.setNombreArchivoCorreccion(resultadoDrive.get("fileName"));
-        instancia.setMotivoCorreccion(motivo);
-        instancia.setFechaCorreccion(LocalDateTime.now());
-        instancia.setCorregidoPor(usuario);
+        // 3. Transacción corta: registrar la corrección
+        return registrarSubida("corregir " + id, guardado.id(), () -> {
+            InstanciaReporte actual = obtenerPorId(id);
+            Usuario usuario = validarCorreccion(actual, authentication);
 
-        InstanciaReporte actualizada = repository.save(instancia);
+            actual.setTieneCorreccion(true);
+            actual.setLinkCorreccion(guardado.link());
+            actual.setDriveFileIdCorreccion(guardado.id());
+            actual.setNombreArchivoCorreccion(guardado.nombre());
+            actual.setMotivoCorreccion(motivo);
+            actual.setFechaCorreccion(LocalDateTime.now());
+            actual.setCorregidoPor(usuario);
 
-        System.out.println("✓ Corrección agregada a instancia " + id + 
-                " por " + usuario.getNombreCompleto() + 
-                ". Motivo: " + motivo);
+            InstanciaReporte actualizada = repository.saveAndFlush(actual);
 
-        return convertirADTO(actualizada);
+            System.out.println("✓ Corrección agregada a instancia " + id +
+                    " por " + usuario.getNombreCompleto() +
+                    ". Motivo: " + motivo);
+
+            return convertirADTO(actualizada);
+        });
+    }
+
+    /**
+     * Precondiciones de una corrección con archivo: administrador e instancia ya enviada
+     */
+    private Usuario validarCorreccion(InstanciaReporte instancia, Authentication authentication) {
+        Usuario usuario = obtenerUsuarioAutenticado(authentication);
+        validarEsAdministrador(usuario);
+        if (!esInstanciaEnviada(instancia)) {
+            throw new RuntimeException("Solo se pueden corregir reportes que ya fueron enviados. " +
+                    "Si el reporte aún no se envía, puede editarlo normalmente.");
+        }
+        return usuario;
     }
 
     @Override
@@ -594,7 +971,7 @@ public class InstanciaReporteServiceImpl implements InstanciaReporteService {
         instancia.setFechaCorreccion(LocalDateTime.now());
         instancia.setCorregidoPor(usuario);
 
-        InstanciaReporte actualizada = repository.save(instancia);
+        InstanciaReporte actualizada = repository.saveAndFlush(instancia);
 
         System.out.println("✓ Corrección (link) agregada a instancia " + id + 
                 " por " + usuario.getNombreCompleto());
@@ -606,12 +983,16 @@ public class InstanciaReporteServiceImpl implements InstanciaReporteService {
      * Valida que el usuario sea administrador
      */
     private void validarEsAdministrador(Usuario usuario) {
+        validarEsAdministrador(usuario, "Solo los administradores pueden realizar correcciones a reportes enviados.");
+    }
+
+    private void validarEsAdministrador(Usuario usuario, String mensaje) {
         if (usuario.getRol() == null) {
             throw new RuntimeException("Usuario sin rol asignado.");
         }
         String rol = usuario.getRol().getNombre().toUpperCase();
         if (!rol.contains("ADMIN")) {
-            throw new RuntimeException("Solo los administradores pueden realizar correcciones a reportes enviados.");
+            throw new RuntimeException(mensaje);
         }
     }
 }
\ No newline at end of file
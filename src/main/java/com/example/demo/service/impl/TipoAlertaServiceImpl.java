@@ -1,5 +1,6 @@
 package com.example.demo.service.impl;
 
+import com.example.demo.dto.VersionDatos;
 import com.example.demo.entity.TipoAlerta;
 import com.example.demo.repository.TipoAlertaRepository;
 import com.example.demo.service.TipoAlertaService;
@@ -26,4 +27,9 @@ public class TipoAlertaServiceImpl implements TipoAlertaService {
         return repository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Tipo de alerta no encontrado"));
     }
+
+    @Override
+    public VersionDatos obtenerVersion() {
+        return repository.findVersion();
+    }
 }
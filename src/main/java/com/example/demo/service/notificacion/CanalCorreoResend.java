@@ -0,0 +1,46 @@
+package com.example.demo.service.notificacion;
+
+import com.example.demo.service.EmailNotificationService;
+import org.springframework.stereotype.Component;
+
+/**
+ * Correo vía la API HTTP de Resend.
+ *
+ * Aplica a las notificaciones con proveedor "resend", o "auto" cuando hay API key configurada.
+ */
+@Component
+public class CanalCorreoResend implements CanalNotificacion {
+
+    private final EmailNotificationService emailService;
+
+    public CanalCorreoResend(EmailNotificationService emailService) {
+        this.emailService = emailService;
+    }
+
+    @Override
+    public String nombre() {
+        return "correo-resend";
+    }
+
+    @Override
+    public boolean aplica(Notificacion notificacion) {
+        String proveedor = notificacion.proveedorCorreo();
+        if (!emailService.estaConfigurado()
+                || !("resend".equalsIgnoreCase(proveedor) || "auto".equalsIgnoreCase(proveedor))) {
+            return false;
+        }
+        return notificacion.correo() != null || !notificacion.correosAdicionales().isEmpty();
+    }
+
+    @Override
+    public void enviar(Notificacion notificacion) throws Exception {
+        if (notificacion.correo() != null) {
+            emailService.enviarAhora(notificacion.correo(), notificacion.nombreDestinatario(),
+                    notificacion.asunto(), notificacion.cuerpo(), notificacion.tipo(), notificacion.color());
+        }
+        for (String correo : notificacion.correosAdicionales()) {
+            emailService.enviarAhora(correo, null,
+                    notificacion.asunto(), notificacion.cuerpo(), notificacion.tipo(), notificacion.color());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.demo.service.notificacion;
+
+import com.example.demo.service.DespachadorCorreos;
+import com.example.demo.service.EmailNotificationService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.stereotype.Component;
+
+/**
+ * Correo vía SMTP, entregado por lotes con {@link DespachadorCorreos}.
+ *
+ * Aplica a las notificaciones con proveedor "smtp", o "auto" cuando Resend no está configurado.
+ */
+@Component
+public class CanalCorreoSmtp implements CanalNotificacion {
+
+    private final DespachadorCorreos despachadorCorreos;
+    private final EmailNotificationService emailService;
+
+    @Value("${notificaciones.email.habilitado:false}")
+    private boolean emailHabilitado;
+
+    @Value("${spring.mail.username:}")
+    private String emailRemitente;
+
+    public CanalCorreoSmtp(DespachadorCorreos despachadorCorreos, EmailNotificationService emailService) {
+        this.despachadorCorreos = despachadorCorreos;
+        this.emailService = emailService;
+    }
+
+    @Override
+    public String nombre() {
+        return "correo-smtp";
+    }
+
+    @Override
+    public boolean aplica(Notificacion notificacion) {
+        if (!emailHabilitado || emailRemitente == null || emailRemitente.isEmpty()) {
+            return false;
+        }
+        String proveedor = notificacion.proveedorCorreo();
+        boolean usaSmtp = "smtp".equalsIgnoreCase(proveedor)
+                || ("auto".equalsIgnoreCase(proveedor) && !emailService.estaConfigurado());
+        if (!usaSmtp) {
+            return false;
+        }
+        return notificacion.correo() != null || !notificacion.correosAdicionales().isEmpty();
+    }
+
+    @Override
+    public void enviar(Notificacion notificacion) {
+        if (notificacion.correo() != null) {
+            despachadorCorreos.encolar(crearMensaje(notificacion.correo(), notificacion));
+        }
+        for (String correo : notificacion.correosAdicionales()) {
+            despachadorCorreos.encolar(crearMensaje(correo, notificacion));
+        }
+    }
+
+    private SimpleMailMessage crearMensaje(String destinatario, Notificacion notificacion) {
+        SimpleMailMessage mensaje = new SimpleMailMessage();
+        mensaje.setTo(destinatario);
+        mensaje.setSubject(notificacion.asunto());
+        mensaje.setText(notificacion.cuerpo());
+        mensaje.setFrom(emailRemitente);
+        return mensaje;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.demo.service.notificacion;
+
+import com.example.demo.repository.AlertaRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+
+/**
+ * Bandeja de alertas dentro de la aplicación: registra el disparo del episodio
+ * (instancia, usuario, tipo) que el usuario ve en /api/alertas.
+ */
+@Component
+public class CanalEnApp implements CanalNotificacion {
+
+    private final AlertaRepository alertaRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public CanalEnApp(AlertaRepository alertaRepository, PlatformTransactionManager transactionManager) {
+        this.alertaRepository = alertaRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public String nombre() {
+        return "en-app";
+    }
+
+    @Override
+    public boolean aplica(Notificacion notificacion) {
+        Notificacion.AlertaBandeja bandeja = notificacion.bandeja();
+        return bandeja != null && bandeja.instanciaId() != null
+                && bandeja.usuarioId() != null && bandeja.tipoAlertaId() != null;
+    }
+
+    @Override
+    public void enviar(Notificacion notificacion) {
+        Notificacion.AlertaBandeja bandeja = notificacion.bandeja();
+        LocalDateTime ahora = LocalDateTime.now();
+        transactionTemplate.executeWithoutResult(status -> alertaRepository.registrarDisparo(
+                bandeja.instanciaId(), bandeja.usuarioId(), bandeja.tipoAlertaId(), bandeja.mensaje(), ahora, ahora));
+    }
+}
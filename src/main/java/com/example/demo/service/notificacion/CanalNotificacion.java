@@ -0,0 +1,26 @@
+package com.example.demo.service.notificacion;
+
+/**
+ * Canal por el que se entrega una notificación (correo, WhatsApp, bandeja in-app...).
+ *
+ * Cada canal decide si aplica a una notificación concreta; el
+ * {@link DespachadorNotificaciones} envía por todos los que apliquen en paralelo.
+ */
+public interface CanalNotificacion {
+
+    /**
+     * Nombre corto del canal; también es la clave de su configuración
+     * ({@code notificaciones.canales.<nombre>.timeout-ms}).
+     */
+    String nombre();
+
+    /**
+     * Indica si el canal está habilitado y tiene los datos necesarios para esta notificación.
+     */
+    boolean aplica(Notificacion notificacion);
+
+    /**
+     * Entrega la notificación. Se ejecuta fuera del hilo del llamador.
+     */
+    void enviar(Notificacion notificacion) throws Exception;
+}
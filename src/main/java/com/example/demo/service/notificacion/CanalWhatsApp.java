@@ -0,0 +1,34 @@
+package com.example.demo.service.notificacion;
+
+import com.example.demo.service.WhatsAppService;
+import org.springframework.stereotype.Component;
+
+/**
+ * WhatsApp, entregado de forma asíncrona por el despachador de WhatsApp.
+ */
+@Component
+public class CanalWhatsApp implements CanalNotificacion {
+
+    private final WhatsAppService whatsAppService;
+
+    public CanalWhatsApp(WhatsAppService whatsAppService) {
+        this.whatsAppService = whatsAppService;
+    }
+
+    @Override
+    public String nombre() {
+        return "whatsapp";
+    }
+
+    @Override
+    public boolean aplica(Notificacion notificacion) {
+        return whatsAppService.estaDisponible()
+                && notificacion.telefono() != null && !notificacion.telefono().isEmpty()
+                && notificacion.textoWhatsApp() != null;
+    }
+
+    @Override
+    public void enviar(Notificacion notificacion) {
+        whatsAppService.enviarMensaje(notificacion.telefono(), notificacion.textoWhatsApp());
+    }
+}
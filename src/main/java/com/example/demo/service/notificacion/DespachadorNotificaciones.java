@@ -0,0 +1,208 @@
+package com.example.demo.service.notificacion;
+
+import com.example.demo.service.RegistroLatencias;
+import com.example.demo.service.notificacion.ResultadoNotificacion.Estado;
+import com.example.demo.service.notificacion.ResultadoNotificacion.ResultadoCanal;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Envía cada notificación por todos los canales que apliquen, en paralelo.
+ *
+ * - Cada canal corre en su propio hilo: el más lento no retrasa a los demás.
+ * - Cada canal tiene su timeout ({@code notificaciones.canales.<nombre>.timeout-ms}).
+ * - El resultado agrega el desenlace de cada canal.
+ */
+@Service
+public class DespachadorNotificaciones {
+
+    private static final Logger log = LoggerFactory.getLogger(DespachadorNotificaciones.class);
+
+    private final List<CanalNotificacion> canales;
+    private final Map<String, Long> timeoutsMs = new LinkedHashMap<>();
+    private final ThreadPoolExecutor hilos;
+
+    // Métricas por canal
+    private final Map<String, MetricasCanal> metricas = new ConcurrentHashMap<>();
+    private final AtomicLong notificaciones = new AtomicLong();
+
+    public DespachadorNotificaciones(List<CanalNotificacion> canales,
+                                     Environment environment,
+                                     @Value("${notificaciones.canales.hilos:4}") int numeroHilos,
+                                     @Value("${notificaciones.canales.cola.capacidad:500}") int capacidadCola,
+                                     @Value("${notificaciones.canales.timeout-ms:10000}") long timeoutPorDefectoMs) {
+        this.canales = List.copyOf(canales);
+
+        for (CanalNotificacion canal : this.canales) {
+            timeoutsMs.put(canal.nombre(), environment.getProperty(
+                    "notificaciones.canales." + canal.nombre() + ".timeout-ms", Long.class, timeoutPorDefectoMs));
+            metricas.put(canal.nombre(), new MetricasCanal());
+        }
+
+        AtomicInteger contador = new AtomicInteger();
+        // Con la cola llena el propio llamador ejecuta el envío (contrapresión en lugar de descarte)
+        this.hilos = new ThreadPoolExecutor(numeroHilos, numeroHilos, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(capacidadCola),
+                r -> {
+                    Thread t = new Thread(r, "notificacion-canal-" + contador.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        log.info("Despachador de notificaciones iniciado con canales {} y timeouts {}", nombresCanales(), timeoutsMs);
+    }
+
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        // Dejar terminar los envíos en curso antes de que se detengan los canales
+        hilos.shutdown();
+        if (!hilos.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("⚠️ Despachador de notificaciones detenido con {} envíos pendientes", hilos.getQueue().size());
+        }
+    }
+
+    /**
+     * Envía la notificación por todos los canales que apliquen, sin bloquear al llamador.
+     */
+    public CompletableFuture<ResultadoNotificacion> despachar(Notificacion notificacion) {
+        notificaciones.incrementAndGet();
+
+        Map<String, CompletableFuture<ResultadoCanal>> envios = new LinkedHashMap<>();
+        for (CanalNotificacion canal : canales) {
+            if (canal.aplica(notificacion)) {
+                envios.put(canal.nombre(), enviarPorCanal(canal, notificacion));
+            }
+        }
+
+        return CompletableFuture.allOf(envios.values().toArray(new CompletableFuture<?>[0]))
+                .thenApply(v -> {
+                    Map<String, ResultadoCanal> resultados = new LinkedHashMap<>();
+                    envios.forEach((nombre, envio) -> resultados.put(nombre, envio.join()));
+                    ResultadoNotificacion resultado = new ResultadoNotificacion(resultados);
+                    registrarResultado(notificacion, resultado);
+                    return resultado;
+                });
+    }
+
+    private CompletableFuture<ResultadoCanal> enviarPorCanal(CanalNotificacion canal, Notificacion notificacion) {
+        long inicio = System.nanoTime();
+        MetricasCanal m = metricas.get(canal.nombre());
+
+        return CompletableFuture
+                .runAsync(() -> {
+                    try {
+                        canal.enviar(notificacion);
+                    } catch (RuntimeException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    }
+                }, hilos)
+                // El timeout libera el resultado; el envío en curso termina en su hilo
+                .orTimeout(timeoutsMs.get(canal.nombre()), TimeUnit.MILLISECONDS)
+                .handle((v, error) -> {
+                    long duracionMs = (System.nanoTime() - inicio) / 1_000_000;
+                    m.registrar(duracionMs);
+                    if (error == null) {
+                        m.enviados.incrementAndGet();
+                        return new ResultadoCanal(Estado.ENVIADO, duracionMs, null);
+                    }
+                    Throwable causa = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    if (causa instanceof TimeoutException) {
+                        m.timeouts.incrementAndGet();
+                        return new ResultadoCanal(Estado.TIMEOUT, duracionMs, "Sin respuesta en " + timeoutsMs.get(canal.nombre()) + " ms");
+                    }
+                    m.errores.incrementAndGet();
+                    return new ResultadoCanal(Estado.ERROR, duracionMs, causa.getMessage());
+                });
+    }
+
+    private void registrarResultado(Notificacion notificacion, ResultadoNotificacion resultado) {
+        if (resultado.todosEnviados()) {
+            log.info("📨 Notificación '{}' para {} enviada por {}",
+                    notificacion.asunto(), notificacion.nombreDestinatario(), resultado.canales().keySet());
+        } else {
+            log.warn("⚠️ Notificación '{}' para {} con fallos: {}",
+                    notificacion.asunto(), notificacion.nombreDestinatario(), resultado.canales());
+        }
+    }
+
+    public List<String> nombresCanales() {
+        List<String> nombres = new ArrayList<>();
+        for (CanalNotificacion canal : canales) {
+            nombres.add(canal.nombre());
+        }
+        return nombres;
+    }
+
+    /**
+     * Latencias de envío del canal (p50/p99 sobre las últimas muestras)
+     */
+    public RegistroLatencias getLatencias(String canal) {
+        return metricas.get(canal).latencias;
+    }
+
+    public Map<String, Object> obtenerMetricas() {
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("notificaciones", notificaciones.get());
+        resultado.put("hilosActivos", hilos.getActiveCount());
+        resultado.put("enCola", hilos.getQueue().size());
+
+        Map<String, Object> porCanal = new LinkedHashMap<>();
+        for (CanalNotificacion canal : canales) {
+            Map<String, Object> datos = metricas.get(canal.nombre()).comoMapa();
+            datos.put("timeoutMs", timeoutsMs.get(canal.nombre()));
+            porCanal.put(canal.nombre(), datos);
+        }
+        resultado.put("canales", porCanal);
+        return resultado;
+    }
+
+    private static class MetricasCanal {
+        final AtomicLong enviados = new AtomicLong();
+        final AtomicLong errores = new AtomicLong();
+        final AtomicLong timeouts = new AtomicLong();
+        final AtomicLong tiempoTotalMs = new AtomicLong();
+        final AtomicLong tiempoMaximoMs = new AtomicLong();
+        final RegistroLatencias latencias = new RegistroLatencias(10_000);
+
+        void registrar(long duracionMs) {
+            tiempoTotalMs.addAndGet(duracionMs);
+            tiempoMaximoMs.accumulateAndGet(duracionMs, Math::max);
+            latencias.registrar(duracionMs);
+        }
+
+        Map<String, Object> comoMapa() {
+            long total = enviados.get() + errores.get() + timeouts.get();
+            Map<String, Object> datos = new LinkedHashMap<>();
+            datos.put("enviados", enviados.get());
+            datos.put("errores", errores.get());
+            datos.put("timeouts", timeouts.get());
+            datos.put("tiempoPromedioMs", total > 0 ? (double) tiempoTotalMs.get() / total : 0.0);
+            datos.put("tiempoMaximoMs", tiempoMaximoMs.get());
+            datos.put("p50Ms", latencias.percentil(50));
+            datos.put("p99Ms", latencias.percentil(99));
+            return datos;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.demo.service.notificacion;
+
+import java.util.List;
+
+/**
+ * Notificación ya renderizada, lista para enviarse por cualquier canal.
+ *
+ * Se construye en el hilo del llamador (con la sesión JPA disponible) y es
+ * inmutable: los canales no tocan entidades.
+ *
+ * @param proveedorCorreo proveedor de correo para esta notificación: smtp | resend | auto
+ *                        (auto = Resend si está configurado, si no SMTP)
+ * @param bandeja alerta a registrar en la bandeja in-app; null si ya está registrada
+ */
+public record Notificacion(
+        String nombreDestinatario,
+        String correo,
+        String telefono,
+        List<String> correosAdicionales,
+        String asunto,
+        String cuerpo,
+        String textoWhatsApp,
+        String tipo,
+        String color,
+        String proveedorCorreo,
+        AlertaBandeja bandeja
+) {
+
+    public Notificacion {
+        correosAdicionales = correosAdicionales != null ? List.copyOf(correosAdicionales) : List.of();
+    }
+
+    public record AlertaBandeja(Integer instanciaId, Integer usuarioId, Integer tipoAlertaId, String mensaje) {
+    }
+}
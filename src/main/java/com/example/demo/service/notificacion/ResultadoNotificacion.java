@@ -0,0 +1,26 @@
+package com.example.demo.service.notificacion;
+
+import java.util.Map;
+
+/**
+ * Resultado agregado de una notificación: el desenlace de cada canal.
+ */
+public record ResultadoNotificacion(Map<String, ResultadoCanal> canales) {
+
+    public enum Estado {
+        ENVIADO,
+        ERROR,
+        TIMEOUT
+    }
+
+    public record ResultadoCanal(Estado estado, long duracionMs, String detalle) {
+    }
+
+    public boolean todosEnviados() {
+        return canales.values().stream().allMatch(r -> r.estado() == Estado.ENVIADO);
+    }
+
+    public long cantidad(Estado estado) {
+        return canales.values().stream().filter(r -> r.estado() == estado).count();
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.demo.service.whatsapp;
+
+import com.example.demo.resiliencia.ProteccionProveedor;
+import com.example.demo.resiliencia.RegistroProveedores;
+import com.example.demo.resiliencia.TokenBucket;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cola asíncrona de envío de WhatsApp.
+ *
+ * - El llamador solo encola; el envío ocurre en hilos propios.
+ * - Un token bucket limita la tasa al cupo del remitente.
+ * - Los fallos se reintentan con backoff exponencial + jitter.
+ * - Los mensajes que agotan los reintentos quedan en una cola de fallidos (dead-letter).
+ * - Con el circuito del proveedor abierto, el envío falla sin llamar al transporte.
+ */
+@Service
+public class DespachadorWhatsApp {
+
+    private static final Logger log = LoggerFactory.getLogger(DespachadorWhatsApp.class);
+
+    private final TransporteWhatsApp transporte;
+    private final ProteccionProveedor proteccion;
+
+    @Value("${notificaciones.whatsapp.tasa-por-segundo:1}")
+    private double tasaPorSegundo;
+
+    @Value("${notificaciones.whatsapp.rafaga:5}")
+    private int rafaga;
+
+    @Value("${notificaciones.whatsapp.cola.capacidad:1000}")
+    private int capacidadCola;
+
+    @Value("${notificaciones.whatsapp.trabajadores:2}")
+    private int trabajadores;
+
+    @Value("${notificaciones.whatsapp.reintentos.maximo:3}")
+    private int maximoIntentos;
+
+    @Value("${notificaciones.whatsapp.reintentos.base-ms:1000}")
+    private long baseReintentoMs;
+
+    @Value("${notificaciones.whatsapp.fallidos.maximo:500}")
+    private int maximoFallidos;
+
+    private BlockingQueue<MensajePendiente> cola;
+    private TokenBucket limitador;
+    private ExecutorService hilosEnvio;
+    private ScheduledExecutorService hilosReintento;
+    private final Deque<MensajeFallido> fallidos = new ConcurrentLinkedDeque<>();
+
+    // Métricas
+    private final AtomicLong encolados = new AtomicLong();
+    private final AtomicLong enviados = new AtomicLong();
+    private final AtomicLong reintentos = new AtomicLong();
+    private final AtomicLong descartados = new AtomicLong();
+    private final AtomicInteger pendientesReintento = new AtomicInteger();
+
+    public DespachadorWhatsApp(TransporteWhatsApp transporte, RegistroProveedores registroProveedores) {
+        this.transporte = transporte;
+        this.proteccion = registroProveedores.obtener(RegistroProveedores.WHATSAPP);
+    }
+
+    @PostConstruct
+    public void init() {
+        cola = new LinkedBlockingQueue<>(capacidadCola);
+        limitador = new TokenBucket(tasaPorSegundo, rafaga);
+
+        AtomicInteger contador = new AtomicInteger();
+        hilosEnvio = Executors.newFixedThreadPool(trabajadores, r -> {
+            Thread t = new Thread(r, "whatsapp-envio-" + contador.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        hilosReintento = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "whatsapp-reintento");
+            t.setDaemon(true);
+            return t;
+        });
+
+        for (int i = 0; i < trabajadores; i++) {
+            hilosEnvio.submit(this::procesarCola);
+        }
+
+        log.info("Despachador WhatsApp iniciado: transporte={}, {} msg/s, ráfaga {}, {} trabajadores",
+                transporte.nombre(), tasaPorSegundo, rafaga, trabajadores);
+    }
+
+    @PreDestroy
+    public void detener() {
+        hilosReintento.shutdownNow();
+        hilosEnvio.shutdownNow();
+        if (!cola.isEmpty()) {
+            log.warn("⚠️ Despachador WhatsApp detenido con {} mensajes sin enviar", cola.size());
+        }
+    }
+
+    public boolean transporteDisponible() {
+        return transporte.estaDisponible();
+    }
+
+    /**
+     * Encola un mensaje para envío asíncrono. No bloquea al llamador.
+     *
+     * @return false si la cola está llena (el mensaje pasa a fallidos)
+     */
+    public boolean encolar(String telefonoDestino, String mensaje) {
+        MensajePendiente pendiente = new MensajePendiente(telefonoDestino, mensaje, 1);
+        if (!cola.offer(pendiente)) {
+            registrarFallido(pendiente, "Cola de envío llena");
+            return false;
+        }
+        encolados.incrementAndGet();
+        return true;
+    }
+
+    private void procesarCola() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                MensajePendiente pendiente = cola.take();
+                limitador.consumir();
+                entregar(pendiente);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("Error inesperado en el despachador WhatsApp: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void entregar(MensajePendiente pendiente) {
+        try {
+            String sid = proteccion.ejecutar(() -> transporte.enviar(pendiente.telefono(), pendiente.mensaje()));
+            enviados.incrementAndGet();
+            log.info("✓ Mensaje WhatsApp enviado a {}. SID: {}", pendiente.telefono(), sid);
+        } catch (Exception e) {
+            if (pendiente.intento() >= maximoIntentos) {
+                registrarFallido(pendiente, e.getMessage());
+                return;
+            }
+            programarReintento(pendiente, e);
+        }
+    }
+
+    private void programarReintento(MensajePendiente pendiente, Exception causa) {
+        // Backoff exponencial con jitter para no sincronizar los reintentos
+        long espera = baseReintentoMs * (1L << (pendiente.intento() - 1))
+                + ThreadLocalRandom.current().nextLong(baseReintentoMs + 1);
+
+        log.warn("⚠️ Falló WhatsApp a {} (intento {}/{}): {}. Reintento en {} ms",
+                pendiente.telefono(), pendiente.intento(), maximoIntentos, causa.getMessage(), espera);
+
+        reintentos.incrementAndGet();
+        pendientesReintento.incrementAndGet();
+        MensajePendiente siguiente = pendiente.siguienteIntento();
+        hilosReintento.schedule(() -> {
+            pendientesReintento.decrementAndGet();
+            if (!cola.offer(siguiente)) {
+                registrarFallido(siguiente, "Cola de envío llena al reintentar");
+            }
+        }, espera, TimeUnit.MILLISECONDS);
+    }
+
+    private void registrarFallido(MensajePendiente pendiente, String error) {
+        descartados.incrementAndGet();
+        fallidos.addFirst(new MensajeFallido(pendiente.telefono(), pendiente.mensaje(),
+                pendiente.intento(), error, LocalDateTime.now()));
+        while (fallidos.size() > maximoFallidos) {
+            fallidos.pollLast();
+        }
+        log.error("✗ WhatsApp a {} descartado tras {} intento(s): {}",
+                pendiente.telefono(), pendiente.intento(), error);
+    }
+
+    /**
+     * Mensajes que agotaron los reintentos (más recientes primero)
+     */
+    public List<MensajeFallido> obtenerFallidos() {
+        return new ArrayList<>(fallidos);
+    }
+
+    public Map<String, Object> obtenerMetricas() {
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        metricas.put("transporte", transporte.nombre());
+        metricas.put("disponible", transporte.estaDisponible());
+        metricas.put("enCola", cola.size());
+        metricas.put("pendientesReintento", pendientesReintento.get());
+        metricas.put("encolados", encolados.get());
+        metricas.put("enviados", enviados.get());
+        metricas.put("reintentos", reintentos.get());
+        metricas.put("descartados", descartados.get());
+        metricas.put("fallidosRetenidos", fallidos.size());
+        metricas.put("tokensDisponibles", limitador.tokensDisponibles());
+        return metricas;
+    }
+
+    private record MensajePendiente(String telefono, String mensaje, int intento) {
+        MensajePendiente siguienteIntento() {
+            return new MensajePendiente(telefono, mensaje, intento + 1);
+        }
+    }
+
+    public record MensajeFallido(String telefono, String mensaje, int intentos, String error,
+                                 LocalDateTime fecha) {
+    }
+}
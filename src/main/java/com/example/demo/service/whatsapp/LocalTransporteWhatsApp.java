@@ -0,0 +1,55 @@
+package com.example.demo.service.whatsapp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transporte de WhatsApp simulado.
+ *
+ * No sale a Internet: espera una latencia configurable y falla con la
+ * probabilidad indicada. Sirve para probar la cola completa bajo carga.
+ */
+@Component
+@ConditionalOnProperty(name = "notificaciones.whatsapp.transporte", havingValue = "local")
+public class LocalTransporteWhatsApp implements TransporteWhatsApp {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalTransporteWhatsApp.class);
+
+    @Value("${notificaciones.whatsapp.local.latencia-ms:50}")
+    private long latenciaMs;
+
+    @Value("${notificaciones.whatsapp.local.tasa-error:0.0}")
+    private double tasaError;
+
+    private final AtomicLong entregados = new AtomicLong();
+
+    @Override
+    public String nombre() {
+        return "local";
+    }
+
+    @Override
+    public boolean estaDisponible() {
+        return true;
+    }
+
+    @Override
+    public String enviar(String telefonoDestino, String mensaje) throws Exception {
+        if (latenciaMs > 0) {
+            Thread.sleep(latenciaMs);
+        }
+        if (tasaError > 0 && ThreadLocalRandom.current().nextDouble() < tasaError) {
+            throw new IllegalStateException("Error simulado del transporte local");
+        }
+        long total = entregados.incrementAndGet();
+        log.debug("WhatsApp simulado #{} a {}", total, telefonoDestino);
+        return "LOCAL-" + UUID.randomUUID();
+    }
+}
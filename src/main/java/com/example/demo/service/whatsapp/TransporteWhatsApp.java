@@ -0,0 +1,31 @@
+package com.example.demo.service.whatsapp;
+
+/**
+ * Transporte que entrega físicamente un mensaje de WhatsApp.
+ *
+ * Se selecciona con {@code notificaciones.whatsapp.transporte}:
+ * - twilio (por defecto): API de Twilio mediante su SDK
+ * - twilio-http: API REST de Twilio con URL configurable ({@code twilio.api.url}),
+ *   p. ej. para apuntar al servidor simulado
+ * - local: transporte simulado para pruebas de carga sin salir a Internet
+ */
+public interface TransporteWhatsApp {
+
+    /**
+     * Nombre del transporte (para logs y métricas)
+     */
+    String nombre();
+
+    /**
+     * Indica si el transporte tiene lo necesario para enviar
+     */
+    boolean estaDisponible();
+
+    /**
+     * Envía el mensaje y devuelve el identificador asignado por el proveedor.
+     *
+     * @param telefonoDestino teléfono en formato internacional (+57...)
+     * @param mensaje texto del mensaje
+     */
+    String enviar(String telefonoDestino, String mensaje) throws Exception;
+}
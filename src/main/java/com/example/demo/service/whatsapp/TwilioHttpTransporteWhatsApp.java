@@ -0,0 +1,79 @@
+package com.example.demo.service.whatsapp;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Map;
+
+/**
+ * Transporte de WhatsApp sobre la API REST de Twilio, sin el SDK.
+ *
+ * La URL base es configurable ({@code twilio.api.url}), lo que permite
+ * usar un endpoint compatible con Twilio (p. ej. el servidor simulado).
+ */
+@Component
+@ConditionalOnProperty(name = "notificaciones.whatsapp.transporte", havingValue = "twilio-http")
+public class TwilioHttpTransporteWhatsApp implements TransporteWhatsApp {
+
+    @Value("${twilio.api.url:https://api.twilio.com}")
+    private String apiUrl;
+
+    @Value("${twilio.account.sid:}")
+    private String accountSid;
+
+    @Value("${twilio.auth.token:}")
+    private String authToken;
+
+    @Value("${twilio.whatsapp.number:}")
+    private String twilioWhatsAppNumber;
+
+    private final RestTemplate restTemplate;
+
+    public TwilioHttpTransporteWhatsApp(@Value("${twilio.timeout.conexion-ms:5000}") int timeoutConexionMs,
+                                        @Value("${twilio.timeout.lectura-ms:10000}") int timeoutLecturaMs) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(timeoutConexionMs);
+        requestFactory.setReadTimeout(timeoutLecturaMs);
+        this.restTemplate = new RestTemplate(requestFactory);
+    }
+
+    @Override
+    public String nombre() {
+        return "twilio-http";
+    }
+
+    @Override
+    public boolean estaDisponible() {
+        return accountSid != null && !accountSid.isEmpty()
+                && authToken != null && !authToken.isEmpty()
+                && twilioWhatsAppNumber != null && !twilioWhatsAppNumber.isEmpty();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public String enviar(String telefonoDestino, String mensaje) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+        headers.setBasicAuth(accountSid, authToken);
+
+        MultiValueMap<String, String> formulario = new LinkedMultiValueMap<>();
+        formulario.add("To", "whatsapp:" + telefonoDestino);
+        formulario.add("From", twilioWhatsAppNumber);
+        formulario.add("Body", mensaje);
+
+        Map<String, Object> respuesta = restTemplate.postForObject(
+                apiUrl + "/2010-04-01/Accounts/" + accountSid + "/Messages.json",
+                new HttpEntity<>(formulario, headers),
+                Map.class);
+
+        return respuesta != null ? String.valueOf(respuesta.get("sid")) : null;
+    }
+}
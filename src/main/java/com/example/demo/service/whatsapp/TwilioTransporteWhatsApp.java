@@ -0,0 +1,91 @@
+package com.example.demo.service.whatsapp;
+
+import com.twilio.http.NetworkHttpClient;
+import com.twilio.http.TwilioRestClient;
+import jakarta.annotation.PostConstruct;
+import org.apache.http.client.config.RequestConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Transporte de WhatsApp sobre la API de Twilio.
+ *
+ * Usa su propio cliente REST con timeouts explícitos ({@code twilio.timeout.*}):
+ * un Twilio que no responde no retiene indefinidamente el hilo ni el cupo del bulkhead.
+ */
+@Component
+@ConditionalOnProperty(name = "notificaciones.whatsapp.transporte", havingValue = "twilio", matchIfMissing = true)
+public class TwilioTransporteWhatsApp implements TransporteWhatsApp {
+
+    @Value("${twilio.account.sid:}")
+    private String accountSid;
+
+    @Value("${twilio.auth.token:}")
+    private String authToken;
+
+    @Value("${twilio.whatsapp.number:}")
+    private String twilioWhatsAppNumber;
+
+    @Value("${twilio.timeout.conexion-ms:5000}")
+    private int timeoutConexionMs;
+
+    @Value("${twilio.timeout.lectura-ms:10000}")
+    private int timeoutLecturaMs;
+
+    private TwilioRestClient cliente;
+    private boolean inicializado = false;
+
+    @PostConstruct
+    public void init() {
+        if (estaConfigurado()) {
+            try {
+                RequestConfig timeouts = RequestConfig.custom()
+                        .setConnectTimeout(timeoutConexionMs)
+                        .setConnectionRequestTimeout(timeoutConexionMs)
+                        .setSocketTimeout(timeoutLecturaMs)
+                        .build();
+                cliente = new TwilioRestClient.Builder(accountSid, authToken)
+                        .httpClient(new NetworkHttpClient(timeouts))
+                        .build();
+                inicializado = true;
+                System.out.println("✓ Twilio WhatsApp inicializado correctamente");
+            } catch (Exception e) {
+                System.err.println("⚠️ No se pudo inicializar Twilio: " + e.getMessage());
+                inicializado = false;
+            }
+        } else {
+            System.out.println("ℹ️ WhatsApp no configurado - notificaciones por WhatsApp deshabilitadas");
+        }
+    }
+
+    /**
+     * Verifica si las credenciales de Twilio están configuradas
+     */
+    private boolean estaConfigurado() {
+        return accountSid != null && !accountSid.isEmpty() && !accountSid.startsWith("AC") == false &&
+               authToken != null && !authToken.isEmpty() && !authToken.equals("your_auth_token_here") &&
+               twilioWhatsAppNumber != null && !twilioWhatsAppNumber.isEmpty();
+    }
+
+    @Override
+    public String nombre() {
+        return "twilio";
+    }
+
+    @Override
+    public boolean estaDisponible() {
+        return inicializado && estaConfigurado();
+    }
+
+    @Override
+    public String enviar(String telefonoDestino, String mensaje) {
+        com.twilio.rest.api.v2010.account.Message message =
+            com.twilio.rest.api.v2010.account.Message.creator(
+                new com.twilio.type.PhoneNumber("whatsapp:" + telefonoDestino),
+                new com.twilio.type.PhoneNumber(twilioWhatsAppNumber),
+                mensaje
+            ).create(cliente);
+        return message.getSid();
+    }
+}
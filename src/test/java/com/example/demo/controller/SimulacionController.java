@@ -0,0 +1,34 @@
+package com.example.demo.controller;
+
+import com.example.demo.simulacion.ProveedorSimulado;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Contadores de los proveedores simulados (solo con el perfil "simulacion").
+ */
+@RestController
+@RequestMapping("/api/simulacion")
+@CrossOrigin
+@Profile("simulacion")
+public class SimulacionController {
+
+    private final List<ProveedorSimulado> proveedores;
+
+    public SimulacionController(List<ProveedorSimulado> proveedores) {
+        this.proveedores = proveedores;
+    }
+
+    @GetMapping("/metricas")
+    public Map<String, Object> metricas() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        for (ProveedorSimulado proveedor : proveedores) {
+            response.put(proveedor.nombre(), proveedor.obtenerMetricas());
+        }
+        return response;
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.demo.repository;
+
+import com.example.demo.config.JpaAuditingConfig;
+import com.example.demo.entity.Alerta;
+import com.example.demo.entity.Entidad;
+import com.example.demo.entity.EstadoCumplimiento;
+import com.example.demo.entity.Frecuencia;
+import com.example.demo.entity.InstanciaReporte;
+import com.example.demo.entity.Reporte;
+import com.example.demo.entity.Rol;
+import com.example.demo.entity.TipoAlerta;
+import com.example.demo.entity.Usuario;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cada listado carga con su entity graph en una sola sentencia, sin N+1 sobre
+ * instancias, reportes, entidades, usuarios y roles.
+ *
+ * Los datos se confirman en su propia transacción y cada listado se lee en otra,
+ * como en producción (la caché de solo lectura de los catálogos no admite
+ * releer en la misma transacción lo que se acaba de insertar).
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        // Fuera del jar el prefijo "classpath:" no se resuelve como URL
+        "spring.jpa.properties.hibernate.javax.cache.uri=ehcache.xml"
+})
+@Import(JpaAuditingConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PlanesCargaTest {
+
+    private static final int USUARIOS = 4;
+    private static final int REPORTES = 4;
+    private static final int INSTANCIAS_POR_REPORTE = 5;
+
+    @Autowired
+    private TestEntityManager em;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private AlertaRepository alertaRepository;
+    @Autowired
+    private InstanciaReporteRepository instanciaRepository;
+    @Autowired
+    private ReporteRepository reporteRepository;
+
+    private Statistics estadisticas;
+    private TransactionTemplate transaccion;
+
+    @BeforeEach
+    void preparar() {
+        estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        transaccion = new TransactionTemplate(transactionManager);
+        transaccion.executeWithoutResult(status -> crearDatos());
+
+        // Los catálogos también están en la caché de segundo nivel: se mide el peor caso
+        entityManagerFactory.getCache().evictAll();
+        estadisticas.clear();
+    }
+
+    @AfterEach
+    void limpiar() {
+        transaccion.executeWithoutResult(status -> {
+            for (String entidad : List.of("Alerta", "InstanciaReporte", "Reporte", "Entidad", "Usuario",
+                    "Rol", "Frecuencia", "EstadoCumplimiento", "TipoAlerta")) {
+                em.getEntityManager().createQuery("DELETE FROM " + entidad).executeUpdate();
+            }
+        });
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    private void crearDatos() {
+
+        Rol administrador = em.persist(rol("Administrador"));
+        Rol responsable = em.persist(rol("Responsable"));
+        Frecuencia mensual = em.persist(frecuencia("Mensual"));
+        EstadoCumplimiento pendiente = em.persist(estado("Pendiente"));
+        EstadoCumplimiento enviado = em.persist(estado("Enviado"));
+        TipoAlerta seguimiento = em.persist(tipo("SEGUIMIENTO"));
+        TipoAlerta riesgo = em.persist(tipo("RIESGO"));
+
+        List<Usuario> usuarios = new ArrayList<>();
+        for (int u = 0; u < USUARIOS; u++) {
+            usuarios.add(em.persist(usuario(u, u == 0 ? administrador : responsable)));
+        }
+
+        int n = 0;
+        for (int r = 0; r < REPORTES; r++) {
+            Entidad entidad = em.persist(entidad(r));
+            Reporte reporte = em.persist(reporte(r, entidad, mensual,
+                    usuarios.get(r % USUARIOS), usuarios.get((r + 1) % USUARIOS)));
+            for (int i = 0; i < INSTANCIAS_POR_REPORTE; i++, n++) {
+                InstanciaReporte instancia = instancia(reporte, "2026-" + (i + 1), i % 2 == 0 ? pendiente : enviado);
+                if (i % 2 == 1) {
+                    instancia.setEnviadoPor(usuarios.get(n % USUARIOS));
+                    instancia.setFechaEnvioReal(LocalDateTime.now().minusDays(n));
+                }
+                em.persist(instancia);
+                em.persist(alerta(instancia, n % 2 == 0 ? seguimiento : riesgo, usuarios.get(n % USUARIOS), n));
+            }
+        }
+    }
+
+    @Test
+    void bandejaDeAlertasEnUnaSentencia() {
+        List<Alerta> alertas = transaccion.execute(status -> {
+            List<Alerta> pagina = alertaRepository.findPrimeraPagina(false, Limit.of(50));
+            // Lo que lee AlertaServiceImpl.convertirADTO
+            for (Alerta alerta : pagina) {
+                alerta.getInstancia().getReporte().getNombre();
+                alerta.getInstancia().getPeriodoReportado();
+                alerta.getTipo().getNombre();
+                alerta.getUsuarioDestino().getNombreCompleto();
+                alerta.getUsuarioDestino().getRol().getNombre();
+            }
+            return pagina;
+        });
+
+        assertThat(alertas).hasSize(REPORTES * INSTANCIAS_POR_REPORTE);
+        assertThat(estadisticas.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(estadisticas.getEntityFetchCount()).isZero();
+    }
+
+    @Test
+    void instanciasConDetalleEnUnaSentencia() {
+        List<InstanciaReporte> instancias = transaccion.execute(status -> {
+            List<InstanciaReporte> todas = instanciaRepository.findAll();
+            for (InstanciaReporte instancia : todas) {
+                Reporte reporte = instancia.getReporte();
+                reporte.getEntidad().getRazonSocial();
+                reporte.getFrecuencia().getNombre();
+                reporte.getResponsableElaboracion().getRol().getNombre();
+                reporte.getResponsableSupervision().getRol().getNombre();
+                instancia.getEstado().getNombre();
+                if (instancia.getEnviadoPor() != null) {
+                    instancia.getEnviadoPor().getRol().getNombre();
+                }
+            }
+            return todas;
+        });
+
+        assertThat(instancias).hasSize(REPORTES * INSTANCIAS_POR_REPORTE);
+        assertThat(estadisticas.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(estadisticas.getEntityFetchCount()).isZero();
+    }
+
+    @Test
+    void reportesConResponsablesEnUnaSentencia() {
+        List<Reporte> reportes = transaccion.execute(status -> {
+            List<Reporte> activos = reporteRepository.findByActivo(true);
+            for (Reporte reporte : activos) {
+                reporte.getEntidad().getRazonSocial();
+                reporte.getFrecuencia().getNombre();
+                reporte.getResponsableElaboracion().getRol().getNombre();
+                reporte.getResponsableSupervision().getRol().getNombre();
+            }
+            return activos;
+        });
+
+        assertThat(reportes).hasSize(REPORTES);
+        assertThat(estadisticas.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(estadisticas.getEntityFetchCount()).isZero();
+    }
+
+    private static Rol rol(String nombre) {
+        Rol rol = new Rol();
+        rol.setNombre(nombre);
+        return rol;
+    }
+
+    private static Frecuencia frecuencia(String nombre) {
+        Frecuencia frecuencia = new Frecuencia();
+        frecuencia.setNombre(nombre);
+        return frecuencia;
+    }
+
+    private static EstadoCumplimiento estado(String nombre) {
+        EstadoCumplimiento estado = new EstadoCumplimiento();
+        estado.setNombre(nombre);
+        return estado;
+    }
+
+    private static TipoAlerta tipo(String nombre) {
+        TipoAlerta tipo = new TipoAlerta();
+        tipo.setNombre(nombre);
+        tipo.setColor("#FFA500");
+        return tipo;
+    }
+
+    private static Usuario usuario(int n, Rol rol) {
+        Usuario usuario = new Usuario();
+        usuario.setCedula("C" + n);
+        usuario.setNombreCompleto("Usuario " + n);
+        usuario.setCorreo("usuario" + n + "@correo.co");
+        usuario.setContrasena("{noop}secreto");
+        usuario.setProceso("Proceso");
+        usuario.setCargo("Cargo");
+        usuario.setTelefono("300000000" + n);
+        usuario.setRol(rol);
+        return usuario;
+    }
+
+    private static Entidad entidad(int n) {
+        Entidad entidad = new Entidad();
+        entidad.setNit("NIT-" + n);
+        entidad.setRazonSocial("Entidad " + n);
+        return entidad;
+    }
+
+    private static Reporte reporte(int n, Entidad entidad, Frecuencia frecuencia, Usuario elabora, Usuario supervisa) {
+        Reporte reporte = new Reporte();
+        reporte.setId("R" + n);
+        reporte.setNombre("Reporte " + n);
+        reporte.setEntidad(entidad);
+        reporte.setFrecuencia(frecuencia);
+        reporte.setFechaInicioVigencia(LocalDate.of(2020, 1, 1));
+        reporte.setResponsableElaboracion(elabora);
+        reporte.setResponsableSupervision(supervisa);
+        return reporte;
+    }
+
+    private static InstanciaReporte instancia(Reporte reporte, String periodo, EstadoCumplimiento estado) {
+        InstanciaReporte instancia = new InstanciaReporte();
+        instancia.setReporte(reporte);
+        instancia.setPeriodoReportado(periodo);
+        instancia.setFechaVencimientoCalculada(LocalDate.now().plusDays(10));
+        instancia.setEstado(estado);
+        return instancia;
+    }
+
+    private static Alerta alerta(InstanciaReporte instancia, TipoAlerta tipo, Usuario usuario, int n) {
+        Alerta alerta = new Alerta();
+        alerta.setInstancia(instancia);
+        alerta.setTipo(tipo);
+        alerta.setUsuarioDestino(usuario);
+        alerta.setMensaje("Alerta " + n);
+        alerta.setFechaProgramada(LocalDateTime.now().minusMinutes(n));
+        return alerta;
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.demo.scheduler;
+
+import com.example.demo.entity.Alerta;
+import com.example.demo.entity.InstanciaReporte;
+import com.example.demo.entity.Reporte;
+import com.example.demo.entity.TipoAlerta;
+import com.example.demo.entity.Usuario;
+import com.example.demo.repository.AlertaRepository;
+import com.example.demo.repository.InstanciaReporteRepository;
+import com.example.demo.repository.TipoAlertaRepository;
+import com.example.demo.service.DestinatariosNotificacionCache;
+import com.example.demo.service.EmailNotificationService;
+import com.example.demo.service.NotificacionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Las alertas del scheduler salen por correo con su asunto, mensaje y color; WhatsApp y los
+ * correos adicionales solo con notificaciones.alertas.canales-adicionales.
+ */
+@ExtendWith(MockitoExtension.class)
+class AlertaSchedulerTest {
+
+    @Mock
+    private InstanciaReporteRepository instanciaRepository;
+    @Mock
+    private AlertaRepository alertaRepository;
+    @Mock
+    private TipoAlertaRepository tipoAlertaRepository;
+    @Mock
+    private EmailNotificationService emailService;
+    @Mock
+    private NotificacionService notificacionService;
+    @Mock
+    private DestinatariosNotificacionCache destinatariosCache;
+
+    private AlertaScheduler scheduler;
+    private InstanciaReporte instancia;
+    private Usuario responsable;
+    private Usuario supervisor;
+
+    @BeforeEach
+    void preparar() {
+        scheduler = new AlertaScheduler(instanciaRepository, alertaRepository, tipoAlertaRepository,
+                emailService, notificacionService, destinatariosCache);
+
+        responsable = usuario(1);
+        supervisor = usuario(2);
+        Reporte reporte = new Reporte();
+        reporte.setId("R1");
+        reporte.setNombre("Reporte 1");
+        reporte.setResponsableElaboracion(responsable);
+        reporte.setResponsableSupervision(supervisor);
+
+        instancia = new InstanciaReporte();
+        instancia.setId(10);
+        instancia.setReporte(reporte);
+        instancia.setPeriodoReportado("2026-09");
+        // A 5 días: seguimiento para el responsable y supervisión para el supervisor
+        instancia.setFechaVencimientoCalculada(LocalDate.now().plusDays(5));
+
+        when(instanciaRepository.findByFechaEnvioRealIsNull()).thenReturn(List.of(instancia));
+        when(tipoAlertaRepository.findByNombre(anyString()))
+                .thenAnswer(inv -> inv.getArgument(0).equals("SEGUIMIENTO")
+                        ? Optional.of(tipo(2, "SEGUIMIENTO")) : Optional.of(tipo(5, "SUPERVISION")));
+    }
+
+    @Test
+    void enviaCadaDisparoPorCorreoConSuAsuntoYColor() {
+        when(alertaRepository.registrarDisparo(eq(10), anyInt(), anyInt(), anyString(), any(), any())).thenReturn(1);
+
+        scheduler.generarAlertasDiarias();
+
+        verify(emailService).enviarAlerta(eq(responsable), eq("Reporte 1 - 2026-09"), anyString(),
+                eq("SEGUIMIENTO"), eq("amarillo"));
+        verify(emailService).enviarAlerta(eq(supervisor), eq("Supervisión: Reporte 1 - 2026-09"), anyString(),
+                eq("SUPERVISION"), eq("azul"));
+        verifyNoInteractions(notificacionService, destinatariosCache);
+    }
+
+    @Test
+    void canalesAdicionalesSoloSiEstanHabilitados() {
+        ReflectionTestUtils.setField(scheduler, "canalesAdicionales", true);
+        Alerta alertaResponsable = new Alerta();
+        alertaResponsable.setId(100);
+        Alerta alertaSupervisor = new Alerta();
+        alertaSupervisor.setId(101);
+        when(alertaRepository.registrarDisparo(eq(10), anyInt(), anyInt(), anyString(), any(), any())).thenReturn(1);
+        when(alertaRepository.findByInstanciaIdAndUsuarioDestinoIdAndTipoId(10, 1, 2))
+                .thenReturn(Optional.of(alertaResponsable));
+        when(alertaRepository.findByInstanciaIdAndUsuarioDestinoIdAndTipoId(10, 2, 5))
+                .thenReturn(Optional.of(alertaSupervisor));
+
+        scheduler.generarAlertasDiarias();
+
+        verify(destinatariosCache).precargar(Set.of("R1"));
+        verify(emailService).enviarAlerta(eq(responsable), anyString(), anyString(), eq("SEGUIMIENTO"), eq("amarillo"));
+        verify(notificacionService).enviarCanalesAdicionalesAlerta(eq(alertaResponsable),
+                eq("Reporte 1 - 2026-09"), anyString(), eq("amarillo"));
+        verify(notificacionService).enviarCanalesAdicionalesAlerta(eq(alertaSupervisor),
+                eq("Supervisión: Reporte 1 - 2026-09"), anyString(), eq("azul"));
+    }
+
+    @Test
+    void noReenviaUnEpisodioYaDisparadoHoy() {
+        when(alertaRepository.registrarDisparo(eq(10), anyInt(), anyInt(), anyString(), any(), any())).thenReturn(0);
+
+        scheduler.generarAlertasDiarias();
+
+        verify(emailService, never()).enviarAlerta(any(), any(), any(), any(), any());
+        verifyNoInteractions(notificacionService);
+    }
+
+    private static Usuario usuario(int id) {
+        Usuario usuario = new Usuario();
+        usuario.setId(id);
+        usuario.setNombreCompleto("Usuario " + id);
+        usuario.setCorreo("usuario" + id + "@correo.co");
+        return usuario;
+    }
+
+    private static TipoAlerta tipo(int id, String nombre) {
+        TipoAlerta tipo = new TipoAlerta();
+        tipo.setId(id);
+        tipo.setNombre(nombre);
+        return tipo;
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.demo.service;
+
+import com.example.demo.config.MailConfig;
+import com.example.demo.simulacion.ServidorSmtpSimulado;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Envío por lotes contra el SMTP simulado: cada lote debe usar una sola conexión.
+ */
+class DespachadorCorreosTest {
+
+    private ServidorSmtpSimulado smtp;
+    private ConexionesSmtp conexionesSmtp;
+    private DespachadorCorreos despachador;
+
+    @BeforeEach
+    void iniciar() throws IOException {
+        smtp = new ServidorSmtpSimulado(0, 0, 0.0);
+        smtp.iniciar();
+
+        MailConfig mailConfig = new MailConfig();
+        ReflectionTestUtils.setField(mailConfig, "host", "localhost");
+        ReflectionTestUtils.setField(mailConfig, "port", smtp.getPuerto());
+        ReflectionTestUtils.setField(mailConfig, "username", "pruebas@localhost");
+        ReflectionTestUtils.setField(mailConfig, "password", "");
+        ReflectionTestUtils.setField(mailConfig, "auth", false);
+        ReflectionTestUtils.setField(mailConfig, "starttls", false);
+
+        conexionesSmtp = new ConexionesSmtp();
+        JavaMailSender mailSender = mailConfig.javaMailSender(conexionesSmtp);
+        despachador = new DespachadorCorreos(mailSender, conexionesSmtp);
+    }
+
+    @AfterEach
+    void detener() throws IOException {
+        smtp.detener();
+    }
+
+    @Test
+    void unLoteReutilizaUnaSolaConexion() throws InterruptedException {
+        ReflectionTestUtils.setField(despachador, "tamanoMaximoLote", 50);
+        encolar(10);
+
+        despachador.despacharPendientes();
+
+        assertThat(smtp.getRecibidos()).isEqualTo(10);
+        assertThat(smtp.getConexiones()).isEqualTo(1);
+        esperar(conexionesSmtp::getCerradas, 1);
+        assertThat(conexionesSmtp.getAbiertas()).isEqualTo(1);
+        assertThat(despachador.obtenerMetricas())
+                .containsEntry("mensajesEnviados", 10L)
+                .containsEntry("lotesEnviados", 1L)
+                .containsEntry("conexionesAbiertas", 1L)
+                .containsEntry("conexionesCerradas", 1L)
+                .containsEntry("mensajesPorConexion", 10.0);
+    }
+
+    @Test
+    void cadaLoteAbreYCierraSuConexion() throws InterruptedException {
+        ReflectionTestUtils.setField(despachador, "tamanoMaximoLote", 4);
+        encolar(10);
+
+        despachador.despacharPendientes();
+
+        assertThat(smtp.getRecibidos()).isEqualTo(10);
+        assertThat(smtp.getConexiones()).isEqualTo(3);
+        esperar(conexionesSmtp::getCerradas, 3);
+        assertThat(conexionesSmtp.getAbiertas()).isEqualTo(3);
+        assertThat(despachador.obtenerMetricas())
+                .containsEntry("lotesEnviados", 3L)
+                .containsEntry("conexionesAbiertas", 3L);
+    }
+
+    private void encolar(int cantidad) {
+        for (int i = 0; i < cantidad; i++) {
+            SimpleMailMessage mensaje = new SimpleMailMessage();
+            mensaje.setFrom("pruebas@localhost");
+            mensaje.setTo("destino" + i + "@localhost");
+            mensaje.setSubject("Prueba " + i);
+            mensaje.setText("Cuerpo " + i);
+            despachador.encolar(mensaje);
+        }
+    }
+
+    // JavaMail notifica las conexiones en su propio hilo
+    private void esperar(LongSupplier contador, long esperado) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 5000;
+        while (contador.getAsLong() < esperado && System.currentTimeMillis() < limite) {
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.demo.simulacion;
+
+import com.example.demo.scheduler.AlertaScheduler;
+import com.example.demo.service.EmailNotificationService;
+import com.example.demo.service.RegistroLatencias;
+import com.example.demo.service.notificacion.DespachadorNotificaciones;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Benchmark del pipeline de alertas contra los proveedores simulados.
+ *
+ * Solo corre con {@code mvn test -Dbenchmark=true -Dtest=BenchmarkNotificacionesTest}:
+ * 1. Crea N instancias sintéticas (prefijo BENCH-) repartidas entre los umbrales de alerta.
+ * 2. Ejecuta AlertaScheduler.generarAlertasDiarias(); cada alerta sale por correo (Resend)
+ *    y, con los canales adicionales del perfil, por WhatsApp vía DespachadorNotificaciones.
+ * 3. Espera a que los proveedores simulados reciban correos y mensajes.
+ * 4. Informa alertas/s, correos/s y la latencia p50/p99 de despacho de cada canal.
+ *
+ * Escribe en la base configurada: usar SOLO contra una base de pruebas.
+ */
+@SpringBootTest
+@ActiveProfiles({"simulacion", "benchmark"})
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class BenchmarkNotificacionesTest {
+
+    private static final Logger log = LoggerFactory.getLogger(BenchmarkNotificacionesTest.class);
+
+    private static final String PREFIJO = "BENCH-";
+
+    // Días hasta el vencimiento: umbrales preventivo/seguimiento/riesgo y vencidas
+    private static final int[] DIAS_HASTA_VENCIMIENTO = {15, 10, 5, 1, -1, -3, -7, -15, -30, -60};
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private AlertaScheduler alertaScheduler;
+    @Autowired
+    private EmailNotificationService emailService;
+    @Autowired
+    private DespachadorNotificaciones despachadorNotificaciones;
+    @Autowired
+    private ServidorResendSimulado resendSimulado;
+    @Autowired
+    private ServidorTwilioSimulado twilioSimulado;
+
+    @Value("${simulacion.benchmark.instancias:100000}")
+    private int totalInstancias;
+
+    @Value("${simulacion.benchmark.instancias-por-reporte:100}")
+    private int instanciasPorReporte;
+
+    @Value("${simulacion.benchmark.usuarios:50}")
+    private int totalUsuarios;
+
+    @Value("${simulacion.benchmark.espera-maxima-s:600}")
+    private long esperaMaximaS;
+
+    @Test
+    void alertasPorTodosLosCanales() throws InterruptedException {
+        log.info("=== Benchmark de notificaciones: {} instancias ===", totalInstancias);
+        ProveedorSimulado proveedorSimulado = resendSimulado;
+
+        limpiarDatosSinteticos();
+        long inicioCarga = System.nanoTime();
+        generarDatosSinteticos();
+        log.info("Datos sintéticos creados en {} ms", (System.nanoTime() - inicioCarga) / 1_000_000);
+
+        long correosAntes = proveedorSimulado.getRecibidos();
+        long whatsappAntes = twilioSimulado.getRecibidos();
+        LocalDateTime inicioCorrida = LocalDateTime.now();
+
+        long inicio = System.nanoTime();
+        alertaScheduler.generarAlertasDiarias();
+        long duracionSchedulerMs = (System.nanoTime() - inicio) / 1_000_000;
+
+        Long alertas = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM alertas a JOIN instancias_reporte i ON i.id_instancia = a.instancia_reporte_id " +
+                "WHERE i.reporte_id LIKE ? AND a.fecha_ultimo_disparo >= ?",
+                Long.class, PREFIJO + "%", inicioCorrida);
+        long totalAlertas = alertas != null ? alertas : 0;
+
+        // Correos y WhatsApp se entregan en segundo plano: esperar a que lleguen todos
+        long limite = System.currentTimeMillis() + esperaMaximaS * 1000;
+        while ((proveedorSimulado.getRecibidos() - correosAntes < totalAlertas
+                || twilioSimulado.getRecibidos() - whatsappAntes < totalAlertas)
+                && System.currentTimeMillis() < limite) {
+            Thread.sleep(200);
+        }
+        long duracionTotalMs = Math.max(1, (System.nanoTime() - inicio) / 1_000_000);
+        long correos = proveedorSimulado.getRecibidos() - correosAntes;
+        long mensajesWhatsApp = twilioSimulado.getRecibidos() - whatsappAntes;
+
+        log.info("=== Resultado del benchmark ===");
+        log.info("Instancias sintéticas:      {}", totalInstancias);
+        log.info("Alertas generadas:          {}", totalAlertas);
+        log.info("Duración del scheduler:     {} ms", duracionSchedulerMs);
+        log.info("Alertas por segundo:        {}", String.format("%.1f", totalAlertas * 1000.0 / Math.max(1, duracionSchedulerMs)));
+        log.info("Correos recibidos ({}):   {} de {}", proveedorSimulado.nombre(), correos, totalAlertas);
+        log.info("Correos por segundo:        {}", String.format("%.1f", correos * 1000.0 / duracionTotalMs));
+        log.info("WhatsApp recibidos:         {} de {}", mensajesWhatsApp, totalAlertas);
+        RegistroLatencias latenciasCorreo = emailService.getLatencias();
+        log.info("Correo Resend p50/p99:      {} ms / {} ms", latenciasCorreo.percentil(50), latenciasCorreo.percentil(99));
+        RegistroLatencias latenciasWhatsApp = despachadorNotificaciones.getLatencias("whatsapp");
+        log.info("Despacho whatsapp p50/p99:  {} ms / {} ms", latenciasWhatsApp.percentil(50), latenciasWhatsApp.percentil(99));
+
+        assertThat(correos).isEqualTo(totalAlertas);
+        assertThat(mensajesWhatsApp).isEqualTo(totalAlertas);
+    }
+
+    private void limpiarDatosSinteticos() {
+        String patron = PREFIJO + "%";
+        jdbcTemplate.update("DELETE FROM alertas WHERE instancia_reporte_id IN " +
+                "(SELECT id_instancia FROM instancias_reporte WHERE reporte_id LIKE ?)", patron);
+        jdbcTemplate.update("DELETE FROM instancias_reporte WHERE reporte_id LIKE ?", patron);
+        jdbcTemplate.update("DELETE FROM reporte_notificaciones WHERE reporte_id LIKE ?", patron);
+        jdbcTemplate.update("DELETE FROM reportes WHERE id_reporte LIKE ?", patron);
+        jdbcTemplate.update("DELETE FROM usuarios WHERE cedula LIKE ?", patron);
+        jdbcTemplate.update("DELETE FROM entidades WHERE nit LIKE ?", patron);
+    }
+
+    private void generarDatosSinteticos() {
+        Integer rolResponsable = jdbcTemplate.queryForObject(
+                "SELECT id_rol FROM roles WHERE nombre = 'Responsable'", Integer.class);
+        Integer frecuencia = jdbcTemplate.queryForObject(
+                "SELECT id_frecuencia FROM frecuencias WHERE nombre = 'Mensual'", Integer.class);
+        Integer estadoPendiente = jdbcTemplate.queryForObject(
+                "SELECT id_estado FROM estados_cumplimiento WHERE nombre = 'Pendiente'", Integer.class);
+
+        jdbcTemplate.update("INSERT INTO entidades (nit, razon_social, activo) VALUES (?, ?, true)",
+                PREFIJO + "000", "Entidad sintética de benchmark");
+        Long entidadId = jdbcTemplate.queryForObject(
+                "SELECT id_entidad FROM entidades WHERE nit = ?", Long.class, PREFIJO + "000");
+
+        List<Object[]> usuarios = new ArrayList<>();
+        for (int u = 0; u < totalUsuarios; u++) {
+            usuarios.add(new Object[]{PREFIJO + u, "Usuario Benchmark " + u,
+                    "bench-" + u + "@simulacion.local", "{noop}benchmark", "+5730000" + String.format("%05d", u),
+                    rolResponsable});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO usuarios (cedula, nombre_completo, correo, contrasena, telefono, rol_id, activo) " +
+                "VALUES (?, ?, ?, ?, ?, ?, true)", usuarios);
+        List<Long> usuarioIds = jdbcTemplate.queryForList(
+                "SELECT id_usuario FROM usuarios WHERE cedula LIKE ? ORDER BY id_usuario", Long.class, PREFIJO + "%");
+
+        int totalReportes = (totalInstancias + instanciasPorReporte - 1) / instanciasPorReporte;
+        List<Object[]> reportes = new ArrayList<>();
+        for (int r = 0; r < totalReportes; r++) {
+            Long responsable = usuarioIds.get(r % usuarioIds.size());
+            Long supervisor = usuarioIds.get((r + 1) % usuarioIds.size());
+            reportes.add(new Object[]{PREFIJO + r, "Reporte sintético " + r, entidadId,
+                    Date.valueOf(LocalDate.now().minusYears(10)), frecuencia, responsable, supervisor});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO reportes (id_reporte, nombre, entidad_id, fecha_inicio_vigencia, " +
+                "frecuencia_id, responsable_elaboracion_id, responsable_supervision_id, activo) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, true)", reportes);
+
+        LocalDate hoy = LocalDate.now();
+        List<Object[]> lote = new ArrayList<>();
+        for (int i = 0; i < totalInstancias; i++) {
+            int dias = DIAS_HASTA_VENCIMIENTO[i % DIAS_HASTA_VENCIMIENTO.length];
+            lote.add(new Object[]{PREFIJO + (i / instanciasPorReporte), "P-" + i,
+                    Date.valueOf(hoy.plusDays(dias)), estadoPendiente});
+            if (lote.size() == 1000) {
+                insertarInstancias(lote);
+                lote.clear();
+            }
+        }
+        if (!lote.isEmpty()) {
+            insertarInstancias(lote);
+        }
+    }
+
+    private void insertarInstancias(List<Object[]> lote) {
+        jdbcTemplate.batchUpdate("INSERT INTO instancias_reporte (reporte_id, periodo_reportado, " +
+                "fecha_vencimiento_calculada, estado_id) VALUES (?, ?, ?, ?)", lote);
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.demo.simulacion;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Base de los proveedores simulados: latencia configurable e inyección de errores.
+ */
+public abstract class ProveedorSimulado {
+
+    private final long latenciaMs;
+    private final double tasaError;
+
+    private final AtomicLong recibidos = new AtomicLong();
+    private final AtomicLong rechazados = new AtomicLong();
+    private volatile long primeraPeticion = 0;
+    private volatile long ultimaPeticion = 0;
+
+    protected ProveedorSimulado(long latenciaMs, double tasaError) {
+        this.latenciaMs = latenciaMs;
+        this.tasaError = tasaError;
+    }
+
+    public abstract String nombre();
+
+    /**
+     * Simula el procesamiento de una petición: espera la latencia configurada
+     * y decide si responde con error.
+     *
+     * @return true si la petición debe responderse con error
+     */
+    protected boolean procesarPeticion() {
+        if (latenciaMs > 0) {
+            try {
+                Thread.sleep(latenciaMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (tasaError > 0 && ThreadLocalRandom.current().nextDouble() < tasaError) {
+            rechazados.incrementAndGet();
+            return true;
+        }
+        long ahora = System.currentTimeMillis();
+        if (recibidos.getAndIncrement() == 0) {
+            primeraPeticion = ahora;
+        }
+        ultimaPeticion = ahora;
+        return false;
+    }
+
+    /**
+     * Peticiones aceptadas (sin contar las rechazadas por error simulado)
+     */
+    public long getRecibidos() {
+        return recibidos.get();
+    }
+
+    public long getUltimaPeticion() {
+        return ultimaPeticion;
+    }
+
+    public Map<String, Object> obtenerMetricas() {
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        metricas.put("latenciaMs", latenciaMs);
+        metricas.put("tasaError", tasaError);
+        metricas.put("recibidos", recibidos.get());
+        metricas.put("rechazados", rechazados.get());
+        long duracionMs = ultimaPeticion - primeraPeticion;
+        metricas.put("porSegundo", duracionMs > 0 ? recibidos.get() * 1000.0 / duracionMs : 0.0);
+        return metricas;
+    }
+}
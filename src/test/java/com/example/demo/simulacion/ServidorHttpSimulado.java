@@ -0,0 +1,87 @@
+package com.example.demo.simulacion;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Servidor HTTP embebido (JDK HttpServer) para simular una API de proveedor.
+ */
+public abstract class ServidorHttpSimulado extends ProveedorSimulado {
+
+    private static final Logger log = LoggerFactory.getLogger(ServidorHttpSimulado.class);
+
+    private final int puerto;
+    private final String ruta;
+    private HttpServer servidor;
+    private ExecutorService hilos;
+
+    protected ServidorHttpSimulado(int puerto, String ruta, long latenciaMs, double tasaError) {
+        super(latenciaMs, tasaError);
+        this.puerto = puerto;
+        this.ruta = ruta;
+    }
+
+    @PostConstruct
+    public void iniciar() throws IOException {
+        servidor = HttpServer.create(new InetSocketAddress("localhost", puerto), 0);
+        hilos = Executors.newCachedThreadPool();
+        servidor.setExecutor(hilos);
+        servidor.createContext(ruta, this::atender);
+        servidor.start();
+        log.info("🧪 {} simulado escuchando en http://localhost:{}{}", nombre(), puerto, ruta);
+    }
+
+    @PreDestroy
+    public void detener() {
+        servidor.stop(0);
+        hilos.shutdownNow();
+    }
+
+    private void atender(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            try (InputStream cuerpo = exchange.getRequestBody()) {
+                cuerpo.readAllBytes();
+            }
+
+            if (!"POST".equals(exchange.getRequestMethod()) || !aceptaRuta(exchange.getRequestURI().getPath())) {
+                responder(exchange, 404, "{\"message\":\"Not found\"}");
+                return;
+            }
+
+            if (procesarPeticion()) {
+                responder(exchange, 500, "{\"message\":\"Error simulado\"}");
+            } else {
+                responder(exchange, codigoExito(), cuerpoExito());
+            }
+        }
+    }
+
+    private void responder(HttpExchange exchange, int codigo, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(codigo, bytes.length);
+        try (OutputStream salida = exchange.getResponseBody()) {
+            salida.write(bytes);
+        }
+    }
+
+    protected boolean aceptaRuta(String ruta) {
+        return true;
+    }
+
+    protected abstract int codigoExito();
+
+    protected abstract String cuerpoExito();
+}
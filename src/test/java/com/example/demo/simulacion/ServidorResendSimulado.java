@@ -0,0 +1,36 @@
+package com.example.demo.simulacion;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * API de Resend simulada: POST /emails responde 200 con un id.
+ */
+@Component
+@Profile("simulacion")
+public class ServidorResendSimulado extends ServidorHttpSimulado {
+
+    public ServidorResendSimulado(@Value("${simulacion.resend.puerto:8901}") int puerto,
+                                  @Value("${simulacion.resend.latencia-ms:20}") long latenciaMs,
+                                  @Value("${simulacion.resend.tasa-error:0.0}") double tasaError) {
+        super(puerto, "/emails", latenciaMs, tasaError);
+    }
+
+    @Override
+    public String nombre() {
+        return "Resend";
+    }
+
+    @Override
+    protected int codigoExito() {
+        return 200;
+    }
+
+    @Override
+    protected String cuerpoExito() {
+        return "{\"id\":\"" + UUID.randomUUID() + "\"}";
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.demo.simulacion;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sumidero SMTP: acepta cualquier correo y lo descarta.
+ *
+ * Implementa lo mínimo del protocolo que usa JavaMail (EHLO, AUTH, MAIL, RCPT,
+ * DATA, RSET, NOOP, QUIT), sin STARTTLS. Cuenta mensajes y conexiones para
+ * comprobar la reutilización de conexión del envío por lotes.
+ */
+@Component
+@Profile("simulacion")
+public class ServidorSmtpSimulado extends ProveedorSimulado {
+
+    private static final Logger log = LoggerFactory.getLogger(ServidorSmtpSimulado.class);
+
+    private final int puerto;
+    private final AtomicLong conexiones = new AtomicLong();
+    private ServerSocket servidor;
+    private ExecutorService hilos;
+
+    public ServidorSmtpSimulado(@Value("${simulacion.smtp.puerto:2525}") int puerto,
+                                @Value("${simulacion.smtp.latencia-ms:5}") long latenciaMs,
+                                @Value("${simulacion.smtp.tasa-error:0.0}") double tasaError) {
+        super(latenciaMs, tasaError);
+        this.puerto = puerto;
+    }
+
+    @Override
+    public String nombre() {
+        return "SMTP";
+    }
+
+    @PostConstruct
+    public void iniciar() throws IOException {
+        servidor = new ServerSocket(puerto, 50, InetAddress.getLoopbackAddress());
+        hilos = Executors.newCachedThreadPool();
+        hilos.submit(this::aceptarConexiones);
+        log.info("🧪 SMTP simulado escuchando en localhost:{}", getPuerto());
+    }
+
+    @PreDestroy
+    public void detener() throws IOException {
+        servidor.close();
+        hilos.shutdownNow();
+    }
+
+    private void aceptarConexiones() {
+        while (!servidor.isClosed()) {
+            try {
+                Socket socket = servidor.accept();
+                conexiones.incrementAndGet();
+                hilos.submit(() -> atender(socket));
+            } catch (IOException e) {
+                if (!servidor.isClosed()) {
+                    log.warn("SMTP simulado: error aceptando conexión: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void atender(Socket socket) {
+        try (socket;
+             BufferedReader entrada = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter salida = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+
+            responder(salida, "220 localhost SMTP simulado");
+
+            String linea;
+            while ((linea = entrada.readLine()) != null) {
+                String comando = linea.length() >= 4 ? linea.substring(0, 4).toUpperCase() : linea.toUpperCase();
+                switch (comando) {
+                    case "EHLO" -> {
+                        salida.print("250-localhost\r\n");
+                        responder(salida, "250 AUTH PLAIN LOGIN");
+                    }
+                    case "HELO" -> responder(salida, "250 localhost");
+                    case "AUTH" -> autenticar(linea, entrada, salida);
+                    case "MAIL", "RCPT", "RSET", "NOOP" -> responder(salida, "250 OK");
+                    case "DATA" -> {
+                        responder(salida, "354 Fin con <CRLF>.<CRLF>");
+                        while ((linea = entrada.readLine()) != null && !".".equals(linea)) {
+                            // El contenido se descarta
+                        }
+                        if (procesarPeticion()) {
+                            responder(salida, "451 4.3.0 Error simulado");
+                        } else {
+                            responder(salida, "250 OK mensaje aceptado");
+                        }
+                    }
+                    case "QUIT" -> {
+                        responder(salida, "221 Adiós");
+                        return;
+                    }
+                    default -> responder(salida, "502 Comando no implementado");
+                }
+            }
+        } catch (IOException e) {
+            log.debug("SMTP simulado: conexión cerrada: {}", e.getMessage());
+        }
+    }
+
+    private void autenticar(String linea, BufferedReader entrada, PrintWriter salida) throws IOException {
+        String[] partes = linea.split(" ");
+        if (partes.length >= 2 && "LOGIN".equalsIgnoreCase(partes[1])) {
+            // Usuario y contraseña en dos pasos; se acepta cualquiera
+            responder(salida, "334 VXNlcm5hbWU6");
+            entrada.readLine();
+            responder(salida, "334 UGFzc3dvcmQ6");
+            entrada.readLine();
+        } else if (partes.length == 2) {
+            // AUTH PLAIN sin credenciales en la misma línea
+            responder(salida, "334 ");
+            entrada.readLine();
+        }
+        responder(salida, "235 Autenticado");
+    }
+
+    private void responder(PrintWriter salida, String respuesta) {
+        salida.print(respuesta + "\r\n");
+        salida.flush();
+    }
+
+    /**
+     * Puerto en el que escucha (el real si se configuró 0)
+     */
+    public int getPuerto() {
+        return servidor != null ? servidor.getLocalPort() : puerto;
+    }
+
+    public long getConexiones() {
+        return conexiones.get();
+    }
+
+    @Override
+    public Map<String, Object> obtenerMetricas() {
+        Map<String, Object> metricas = super.obtenerMetricas();
+        metricas.put("conexiones", conexiones.get());
+        return metricas;
+    }
+}
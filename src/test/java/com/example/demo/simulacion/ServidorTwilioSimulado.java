@@ -0,0 +1,42 @@
+package com.example.demo.simulacion;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * API de mensajes de Twilio simulada:
+ * POST /2010-04-01/Accounts/{sid}/Messages.json responde 201 con un sid.
+ */
+@Component
+@Profile("simulacion")
+public class ServidorTwilioSimulado extends ServidorHttpSimulado {
+
+    public ServidorTwilioSimulado(@Value("${simulacion.twilio.puerto:8902}") int puerto,
+                                  @Value("${simulacion.twilio.latencia-ms:50}") long latenciaMs,
+                                  @Value("${simulacion.twilio.tasa-error:0.0}") double tasaError) {
+        super(puerto, "/2010-04-01/Accounts/", latenciaMs, tasaError);
+    }
+
+    @Override
+    public String nombre() {
+        return "Twilio";
+    }
+
+    @Override
+    protected boolean aceptaRuta(String ruta) {
+        return ruta.endsWith("/Messages.json");
+    }
+
+    @Override
+    protected int codigoExito() {
+        return 201;
+    }
+
+    @Override
+    protected String cuerpoExito() {
+        return "{\"sid\":\"SM" + UUID.randomUUID().toString().replace("-", "") + "\",\"status\":\"queued\"}";
+    }
+}